@@ -0,0 +1,157 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.cache;
+
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.HealthCheckData;
+import de.telekom.horizon.polaris.model.ReplicatedHealthCheck;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Cluster-wide copy of the {@link HealthCheckCache} entries that have a running health request task.
+ * <br>
+ * Every entry is owned by the member that runs the health request task. When a member leaves the cluster,
+ * the pod that reclaims its circuit breakers adopts the entry and continues with the republish count
+ * and the next-due time of the departed member instead of starting from scratch.
+ * <br>
+ * Entries are only changed by the caller under the Hazelcast key lock, so the partition owner does not need the
+ * classes of Polaris.
+ */
+@Component
+@Slf4j
+public class DistributedHealthCheckCache {
+    static final String MAP_NAME = "polaris-health-checks";
+
+    private final HazelcastInstance hazelcastInstance;
+    private final PolarisConfig polarisConfig;
+    private final IMap<String, ReplicatedHealthCheck> replicatedHealthChecks;
+
+    public DistributedHealthCheckCache(HazelcastInstance hazelcastInstance, PolarisConfig polarisConfig) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.polarisConfig = polarisConfig;
+        configureTimeToLive();
+        this.replicatedHealthChecks = hazelcastInstance.getMap(MAP_NAME);
+    }
+
+    /**
+     * Stores snapshots of the given entries with this pod as owner in one call.
+     * The snapshots expire after {@link PolarisConfig#getRequestCooldownResetMins()}, since the republish count
+     * would be reset by then anyway.
+     *
+     * @param healthChecks The entries of the local {@link HealthCheckCache} by their callback key.
+     * @param nextDueAtMs  Gets the epoch millis when the next health request of a callback key is due.
+     */
+    public void putAll(Map<CallbackKey, HealthCheckData> healthChecks, ToLongFunction<CallbackKey> nextDueAtMs) {
+        if (healthChecks.isEmpty()) {
+            return;
+        }
+
+        var localMemberUuid = getLocalMemberUuid();
+        var snapshots = new HashMap<String, ReplicatedHealthCheck>();
+        healthChecks.forEach((key, healthCheckData) -> snapshots.put(toMapKey(key), ReplicatedHealthCheck.of(localMemberUuid, key, healthCheckData, nextDueAtMs.applyAsLong(key))));
+        // setAll takes no TTL, the snapshots expire by the TTL of the map
+        replicatedHealthChecks.setAll(snapshots);
+    }
+
+    /**
+     * Removes the snapshot of the given entry if it is still owned by this pod.
+     *
+     * @param key The callback key of the entry.
+     */
+    public void removeIfOwned(CallbackKey key) {
+        var mapKey = toMapKey(key);
+        var localMemberUuid = getLocalMemberUuid();
+        withLock(mapKey, () -> {
+            var replicatedHealthCheck = replicatedHealthChecks.get(mapKey);
+            if (replicatedHealthCheck != null && localMemberUuid.equals(replicatedHealthCheck.getOwnerUuid())) {
+                replicatedHealthChecks.delete(mapKey);
+                return true;
+            }
+
+            return false;
+        });
+    }
+
+    /**
+     * Takes over the snapshot of the given entry if its owner is no longer a member of the cluster.
+     *
+     * @param key The callback key of the entry.
+     * @return The adopted snapshot or empty if there is none or it is owned by a running member.
+     */
+    public Optional<ReplicatedHealthCheck> adopt(CallbackKey key) {
+        var memberUuids = hazelcastInstance.getCluster().getMembers().stream()
+                .map(member -> member.getUuid().toString())
+                .collect(Collectors.toCollection(HashSet::new));
+
+        var mapKey = toMapKey(key);
+        var localMemberUuid = getLocalMemberUuid();
+        var adoptedHealthCheck = withLock(mapKey, () -> {
+            var entryView = replicatedHealthChecks.getEntryView(mapKey);
+            if (entryView == null || memberUuids.contains(entryView.getValue().getOwnerUuid())) {
+                return null;
+            }
+
+            // Keep the expiration of the snapshot, writing the value would reset it otherwise
+            long remainingTtlMs = entryView.getExpirationTime() - System.currentTimeMillis();
+            if (remainingTtlMs <= 0) {
+                return null;
+            }
+
+            var replicatedHealthCheck = entryView.getValue();
+            replicatedHealthCheck.setOwnerUuid(localMemberUuid);
+            replicatedHealthChecks.set(mapKey, replicatedHealthCheck, remainingTtlMs, TimeUnit.MILLISECONDS);
+            return replicatedHealthCheck;
+        });
+        if (adoptedHealthCheck != null) {
+            log.info("Adopted health check for callbackUrl {} and httpMethod {} of a departed member: {}", key.callbackUrl(), key.httpMethod(), adoptedHealthCheck);
+        }
+
+        return Optional.ofNullable(adoptedHealthCheck);
+    }
+
+    /**
+     * Builds the map key of a callback key, e.g. {@code HEAD https://example.com/callback}.
+     * The key is built explicitly, so it does not change with the {@code toString()} of {@link CallbackKey}.
+     */
+    static String toMapKey(CallbackKey key) {
+        return key.httpMethod().name() + " " + key.callbackUrl();
+    }
+
+    private void configureTimeToLive() {
+        var timeToLiveSeconds = (int) TimeUnit.MINUTES.toSeconds(polarisConfig.getRequestCooldownResetMins());
+        try {
+            hazelcastInstance.getConfig().addMapConfig(new MapConfig(MAP_NAME).setTimeToLiveSeconds(timeToLiveSeconds));
+        } catch (RuntimeException e) {
+            log.warn("Could not configure the TTL of map {}. Snapshots of departed members are only removed when they get adopted", MAP_NAME, e);
+        }
+    }
+
+    private <T> T withLock(String mapKey, Supplier<T> action) {
+        replicatedHealthChecks.lock(mapKey);
+        try {
+            return action.get();
+        } finally {
+            replicatedHealthChecks.unlock(mapKey);
+        }
+    }
+
+    private String getLocalMemberUuid() {
+        return hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
+    }
+}
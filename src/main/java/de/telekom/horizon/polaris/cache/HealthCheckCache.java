@@ -314,6 +314,31 @@ public class HealthCheckCache {
         return newHealthCheckData;
     }
 
+    /**
+     * Restores the republish count and the last health check of an entry that was taken over from another pod.
+     * The last health check is only restored if the entry has none yet.
+     *
+     * @param callbackUrl           The callback URL.
+     * @param httpMethod            The HTTP method.
+     * @param republishCount        The republish count to be set.
+     * @param lastHealthCheckOrNull The last health check of the other pod.
+     * @return HealthCheckData object after the restore.
+     */
+    public HealthCheckData restore(String callbackUrl, HttpMethod httpMethod, int republishCount, CircuitBreakerHealthCheck lastHealthCheckOrNull) {
+        log.debug("restoring republish count {} and healthCheck {} for callbackUrl {} and httpMethod: {}", republishCount, lastHealthCheckOrNull, callbackUrl, httpMethod);
+        var key = new CallbackKey(callbackUrl, httpMethod);
+        var newHealthCheckData = getCache().computeIfPresent( key, (callbackKey, oldHealthCheckData) -> {
+            log.debug("Entry found for callbackUrl {} and httpMethod: {}. OldHealthCheckData: {}", callbackUrl, httpMethod, oldHealthCheckData);
+            oldHealthCheckData.getAtomicRepublishCount().set(republishCount);
+            if (oldHealthCheckData.getLastHealthCheckOrNull() == null) {
+                oldHealthCheckData.setLastHealthCheckOrNull(lastHealthCheckOrNull);
+            }
+            return oldHealthCheckData;
+        });
+        log.debug("restored entry for callbackUrl {} and httpMethod: {}. Entry now: {}", callbackUrl, httpMethod, newHealthCheckData);
+        return newHealthCheckData;
+    }
+
     /**
      * Resets the republish count to zero for the specified callback URL and HTTP method.
      *
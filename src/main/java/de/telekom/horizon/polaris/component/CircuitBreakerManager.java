@@ -11,16 +11,25 @@ import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
 import de.telekom.horizon.polaris.cache.PartialSubscriptionCache;
 import de.telekom.horizon.polaris.config.PolarisConfig;
 import de.telekom.horizon.polaris.exception.CouldNotDetermineWorkingSetException;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.ClaimsLostEvent;
 import de.telekom.horizon.polaris.model.PartialSubscription;
 import de.telekom.horizon.polaris.service.CircuitBreakerCacheService;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.service.WorkerService;
 import de.telekom.horizon.polaris.task.SubscriptionComparisonTask;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages circuit breakers, handling their states and assignment to the current pod.
@@ -50,6 +59,12 @@ public class CircuitBreakerManager {
      */
     public void loadAndProcessCircuitBreakerMessages(CircuitBreakerStatus status) {
         log.info("Start loadAndProcessCircuitBreakerMessages for circuit breaker status: {}", status);
+        if (polarisConfig.isCircuitBreakerQueryCacheEnabled()) {
+            int claimed = claimCircuitBreakerMessagesInPages(circuitBreakerCacheService.getCircuitBreakerMessagesFromQueryCache(status));
+            log.info("Finished loadAndProcessCircuitBreakerMessages for circuit breaker status: {}, claimed {} circuit breaker messages", status, claimed);
+            return;
+        }
+
         int sumOfClaimedCircuitBreakerMessages = 0;
         int page = 0;
 
@@ -78,6 +93,10 @@ public class CircuitBreakerManager {
      * @throws CouldNotDetermineWorkingSetException If working set determination fails.
      */
     private int claimCircuitBreakerMessagesIfPossible(List<CircuitBreakerMessage> circuitBreakerMessages) {
+        if (polarisConfig.isClaimBatchEnabled()) {
+            return claimCircuitBreakerMessagesInBatch(circuitBreakerMessages);
+        }
+
         int nrOfClaimedCircuitBreakerMessages = 0;
         for (var circuitBreakerMessage : circuitBreakerMessages) {
             boolean wasClaimed = claimCircuitBreakerMessageIfPossible(circuitBreakerMessage);
@@ -101,7 +120,7 @@ public class CircuitBreakerManager {
 
         boolean hasBeenClaimed = false;
 
-        if (workerService.tryGlobalLock()) {
+        if (workerService.tryLock(subscriptionId)) {
             try {
                 if (workerService.tryClaim(subscriptionId)) {
                     var oPartialSubscription = partialSubscriptionCache.get(subscriptionId);
@@ -117,24 +136,199 @@ public class CircuitBreakerManager {
                         hasBeenClaimed = true;
                     }
 
-                    PartialSubscription partialSubscription = oPartialSubscription.get();
-                    PartialSubscription oldPartialSubscription = new PartialSubscription(circuitBreakerMessage.getEnvironment(), subscriptionId, partialSubscription.publisherId(), circuitBreakerMessage.getSubscriberId(), circuitBreakerMessage.getCallbackUrl(), DeliveryType.CALLBACK, partialSubscription.isGetMethodInsteadOfHead(), partialSubscription.isCircuitBreakerOptOut());
-
-                    threadPoolService.startSubscriptionComparisonTask(oldPartialSubscription, partialSubscription);
+                    startSubscriptionComparisonTask(circuitBreakerMessage, oPartialSubscription.get());
                 } else {
                     log.info("Claiming circuit breaker message for subscriptionId {} was not possible, because this pod should not handle this callbackUrl or it is already assigned to another pod.", subscriptionId);
                 }
             } finally {
-                workerService.globalUnlock();
+                workerService.unlock(subscriptionId);
             }
         }
 
         return hasBeenClaimed;
     }
 
+    /**
+     * Claims a page of circuit breaker messages at once and triggers a {@link SubscriptionComparisonTask}
+     * for each claimed message.
+     * <p>
+     * Unlike {@link #claimCircuitBreakerMessageIfPossible(CircuitBreakerMessage)}, no lock is taken, because the claims
+     * are made atomically by {@link WorkerService#tryClaimAll(Collection)}. The claimed OPEN circuit breakers are set to
+     * CHECKING together with a compare-and-set, so circuit breakers that changed in the meantime are skipped.
+     * </p>
+     *
+     * @param circuitBreakerMessages List of circuit breaker messages to process.
+     * @return The number of claimed OPEN circuit breaker messages.
+     */
+    private int claimCircuitBreakerMessagesInBatch(List<CircuitBreakerMessage> circuitBreakerMessages) {
+        if (circuitBreakerMessages.isEmpty()) {
+            return 0;
+        }
+
+        var claimedSubscriptionIds = workerService.tryClaimAll(circuitBreakerMessages.stream().map(CircuitBreakerMessage::getSubscriptionId).toList());
+
+        var openSubscriptionIds = new ArrayList<String>();
+        var comparisons = new ArrayList<Map.Entry<CircuitBreakerMessage, PartialSubscription>>();
+        for (var circuitBreakerMessage : circuitBreakerMessages) {
+            String subscriptionId = circuitBreakerMessage.getSubscriptionId();
+            if (!claimedSubscriptionIds.contains(subscriptionId)) {
+                log.info("Claiming circuit breaker message for subscriptionId {} was not possible, because this pod should not handle this callbackUrl or it is already assigned to another pod.", subscriptionId);
+                continue;
+            }
+
+            var oPartialSubscription = partialSubscriptionCache.get(subscriptionId);
+            if (oPartialSubscription.isEmpty()) {
+                log.warn("Could not find PartialSubscription with id {} for claiming circuit breaker message, closing", subscriptionId);
+                circuitBreakerCacheService.closeCircuitBreaker(subscriptionId);
+                continue;
+            }
+
+            if (CircuitBreakerStatus.OPEN.equals(circuitBreakerMessage.getStatus())) {
+                openSubscriptionIds.add(subscriptionId);
+            }
+            comparisons.add(Map.entry(circuitBreakerMessage, oPartialSubscription.get()));
+        }
+
+        Set<String> checkingSubscriptionIds = openSubscriptionIds.isEmpty()
+                ? Set.of()
+                : circuitBreakerCacheService.compareAndSetStatus(openSubscriptionIds, CircuitBreakerStatus.OPEN, CircuitBreakerStatus.CHECKING);
+
+        for (var comparison : comparisons) {
+            var circuitBreakerMessage = comparison.getKey();
+            if (CircuitBreakerStatus.OPEN.equals(circuitBreakerMessage.getStatus())) {
+                if (!checkingSubscriptionIds.contains(circuitBreakerMessage.getSubscriptionId())) {
+                    log.info("Circuit breaker message for subscriptionId {} is not OPEN anymore, skipping", circuitBreakerMessage.getSubscriptionId());
+                    continue;
+                }
+                circuitBreakerMessage.setStatus(CircuitBreakerStatus.CHECKING);
+            }
+            startSubscriptionComparisonTask(circuitBreakerMessage, comparison.getValue());
+        }
+
+        return checkingSubscriptionIds.size();
+    }
+
+    private void startSubscriptionComparisonTask(CircuitBreakerMessage circuitBreakerMessage, PartialSubscription partialSubscription) {
+        String subscriptionId = circuitBreakerMessage.getSubscriptionId();
+        PartialSubscription oldPartialSubscription = new PartialSubscription(circuitBreakerMessage.getEnvironment(), subscriptionId, partialSubscription.publisherId(), circuitBreakerMessage.getSubscriberId(), circuitBreakerMessage.getCallbackUrl(), DeliveryType.CALLBACK, partialSubscription.isGetMethodInsteadOfHead(), partialSubscription.isCircuitBreakerOptOut());
+
+        threadPoolService.startSubscriptionComparisonTask(oldPartialSubscription, partialSubscription);
+    }
+
+    /**
+     * Claims the given circuit breaker messages page by page.
+     * <p>
+     * The messages are a snapshot of the local query cache, so unlike paging through the circuit breaker map,
+     * claiming a message does not shift the following pages.
+     * </p>
+     *
+     * @param circuitBreakerMessages The circuit breaker messages to claim.
+     * @return The number of claimed circuit breaker messages.
+     */
+    private int claimCircuitBreakerMessagesInPages(List<CircuitBreakerMessage> circuitBreakerMessages) {
+        int batchSize = Math.max(1, polarisConfig.getPollingBatchSize());
+        int nrOfClaimedCircuitBreakerMessages = 0;
+        for (int i = 0; i < circuitBreakerMessages.size(); i += batchSize) {
+            nrOfClaimedCircuitBreakerMessages += claimCircuitBreakerMessagesIfPossible(circuitBreakerMessages.subList(i, Math.min(i + batchSize, circuitBreakerMessages.size())));
+        }
+        return nrOfClaimedCircuitBreakerMessages;
+    }
+
+    /**
+     * Claims circuit breakers as soon as Comet opens them, if the circuit breaker query cache is enabled.
+     * The periodic {@link #loadAndProcessCircuitBreakerMessages(CircuitBreakerStatus)} stays as a safety net.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void listenForOpenedCircuitBreakers() {
+        if (!polarisConfig.isCircuitBreakerQueryCacheEnabled()) {
+            return;
+        }
+
+        circuitBreakerCacheService.addCircuitBreakerAddedListener(circuitBreakerMessage -> {
+            if (CircuitBreakerStatus.OPEN.equals(circuitBreakerMessage.getStatus())) {
+                // Claiming may wait for a lock, so do not block the Hazelcast event thread
+                Thread.ofVirtual().start(() -> claimCircuitBreakerMessagesIfPossible(List.of(circuitBreakerMessage)));
+            }
+        });
+    }
+
+    /**
+     * Claims OPEN, CHECKING and REPUBLISHING circuit breakers whose claim expired, if claim leases are enabled.
+     * <p>
+     * The claim of a hung pod expires without a membership event, so the circuit breakers it worked on would
+     * otherwise only be claimed again on the next start of a pod. Circuit breakers that are still claimed are skipped,
+     * so the tasks of their owners are not started twice.
+     * </p>
+     *
+     * @return The number of claimed OPEN circuit breaker messages.
+     */
+    public int reclaimExpiredClaims() {
+        if (!polarisConfig.isClaimLeaseEnabled()) {
+            return 0;
+        }
+
+        if (polarisConfig.isCircuitBreakerQueryCacheEnabled()) {
+            return claimCircuitBreakerMessagesInPages(getUnclaimedCircuitBreakerMessages(circuitBreakerCacheService.getCircuitBreakerMessagesFromQueryCache()));
+        }
+
+        int sumOfClaimedCircuitBreakerMessages = 0;
+        int page = 0;
+
+        List<CircuitBreakerMessage> circuitBreakerMessages;
+        do {
+            circuitBreakerMessages = circuitBreakerCacheService.getCircuitBreakerMessages(page++, polarisConfig.getPollingBatchSize());
+            sumOfClaimedCircuitBreakerMessages += claimCircuitBreakerMessagesIfPossible(getUnclaimedCircuitBreakerMessages(circuitBreakerMessages));
+        } while (circuitBreakerMessages.size() >= polarisConfig.getPollingBatchSize());
+
+        log.info("Reclaimed {} circuit breaker messages with expired claims", sumOfClaimedCircuitBreakerMessages);
+        return sumOfClaimedCircuitBreakerMessages;
+    }
+
+    private List<CircuitBreakerMessage> getUnclaimedCircuitBreakerMessages(List<CircuitBreakerMessage> circuitBreakerMessages) {
+        var unclaimedSubscriptionIds = workerService.getUnclaimedKeys(circuitBreakerMessages.stream().map(CircuitBreakerMessage::getSubscriptionId).toList());
+        return circuitBreakerMessages.stream()
+                .filter(circuitBreakerMessage -> !CircuitBreakerStatus.CLOSED.equals(circuitBreakerMessage.getStatus()))
+                .filter(circuitBreakerMessage -> unclaimedSubscriptionIds.contains(circuitBreakerMessage.getSubscriptionId()))
+                .toList();
+    }
+
+    /**
+     * Stops working on the subscription IDs whose claims this pod lost, since another pod may work on them now.
+     * <p>
+     * The subscription IDs are removed from the health check cache, so they are not republished by this pod.
+     * Health request tasks without any subscription ID left are stopped.
+     * </p>
+     *
+     * @param claimsLostEvent The event with the lost subscription IDs.
+     */
+    @EventListener
+    public void stopWorkingOnLostClaims(ClaimsLostEvent claimsLostEvent) {
+        var healthCheckCache = threadPoolService.getHealthCheckCache();
+        for (CallbackKey callbackKey : Collections.list(healthCheckCache.getAllKeys())) {
+            var lostSubscriptionIds = new HashSet<>(healthCheckCache.getSubscriptionIds(callbackKey.callbackUrl(), callbackKey.httpMethod()));
+            lostSubscriptionIds.retainAll(claimsLostEvent.subscriptionIds());
+            if (lostSubscriptionIds.isEmpty()) {
+                continue;
+            }
+
+            log.info("Stop working on subscriptionIds {} for callbackUrl: {} and httpMethod: {}, because their claims were lost", lostSubscriptionIds, callbackKey.callbackUrl(), callbackKey.httpMethod());
+            healthCheckCache.remove(callbackKey.callbackUrl(), callbackKey.httpMethod(), lostSubscriptionIds);
+            var oHealthCheckData = healthCheckCache.get(callbackKey.callbackUrl(), callbackKey.httpMethod());
+            if (oHealthCheckData.isPresent() && oHealthCheckData.get().getSubscriptionIds().isEmpty()) {
+                healthCheckCache.update(callbackKey.callbackUrl(), callbackKey.httpMethod(), false);
+                threadPoolService.stopHealthRequestTask(callbackKey.callbackUrl(), callbackKey.httpMethod());
+            }
+        }
+    }
+
     @EventListener
     public void reclaimCircuitBreaker(MembershipEvent membershipEvent) {
         if (membershipEvent.getEventType() == MembershipEvent.MEMBER_REMOVED) {
+            if (polarisConfig.isCircuitBreakerQueryCacheEnabled()) {
+                claimCircuitBreakerMessagesInPages(circuitBreakerCacheService.getCircuitBreakerMessagesFromQueryCache());
+                return;
+            }
+
             int page = 0;
 
             List<CircuitBreakerMessage> openCBs;
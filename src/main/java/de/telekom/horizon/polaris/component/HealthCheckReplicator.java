@@ -0,0 +1,97 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import de.telekom.horizon.polaris.cache.DistributedHealthCheckCache;
+import de.telekom.horizon.polaris.cache.HealthCheckCache;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.HealthCheckData;
+import de.telekom.horizon.polaris.service.ThreadPoolService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the entries of the {@link HealthCheckCache} with a running health request task into the
+ * {@link DistributedHealthCheckCache}, so that another pod can continue them if this pod dies.
+ * <br>
+ * Entries that were copied before but have no running health request task anymore are removed again.
+ */
+@Slf4j
+@Component
+public class HealthCheckReplicator {
+    private final HealthCheckCache healthCheckCache;
+    private final DistributedHealthCheckCache distributedHealthCheckCache;
+    private final PolarisConfig polarisConfig;
+    private final ThreadPoolService threadPoolService;
+
+    private Set<CallbackKey> replicatedKeys = new HashSet<>();
+
+    public HealthCheckReplicator(ThreadPoolService threadPoolService) {
+        this.healthCheckCache = threadPoolService.getHealthCheckCache();
+        this.distributedHealthCheckCache = threadPoolService.getDistributedHealthCheckCache();
+        this.polarisConfig = threadPoolService.getPolarisConfig();
+        this.threadPoolService = threadPoolService;
+    }
+
+    /**
+     * Scheduled task to copy the local health cache into the distributed health cache.
+     * <p>
+     * Together with each entry, the time the next health request is due is stored, taken from the scheduled
+     * health request task of the entry. All entries are written to the distributed health cache in one call.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${polaris.health-cache.distributed.sync-interval-ms}")
+    public synchronized void replicate() {
+        if (!polarisConfig.isHealthCacheDistributedEnabled()) {
+            return;
+        }
+
+        var keys = Collections.list(healthCheckCache.getAllKeys());
+        var healthChecks = new HashMap<CallbackKey, HealthCheckData>();
+        var now = System.currentTimeMillis();
+
+        for (var key : keys) {
+            var oHealthCheckData = healthCheckCache.get(key.callbackUrl(), key.httpMethod());
+            if (oHealthCheckData.isEmpty() || !oHealthCheckData.get().isThreadOpen() || oHealthCheckData.get().getSubscriptionIds().isEmpty()) {
+                continue;
+            }
+
+            healthChecks.put(key, oHealthCheckData.get());
+        }
+
+        try {
+            distributedHealthCheckCache.putAll(healthChecks, key -> threadPoolService.getHealthRequestTask(key.callbackUrl(), key.httpMethod())
+                    .map(future -> now + Math.max(0, future.getDelay(TimeUnit.MILLISECONDS)))
+                    .orElse(now));
+        } catch (Exception exception) {
+            // Keep the previous snapshots until the next run
+            log.warn("Could not replicate {} health checks", healthChecks.size(), exception);
+            return;
+        }
+
+        var newReplicatedKeys = new HashSet<>(healthChecks.keySet());
+
+        for (var key : replicatedKeys) {
+            if (!newReplicatedKeys.contains(key)) {
+                try {
+                    distributedHealthCheckCache.removeIfOwned(key);
+                } catch (Exception exception) {
+                    log.warn("Could not remove replicated health check for callbackUrl {} and httpMethod {}", key.callbackUrl(), key.httpMethod(), exception);
+                }
+            }
+        }
+
+        log.debug("Replicated {} health checks", newReplicatedKeys.size());
+        replicatedKeys = newReplicatedKeys;
+    }
+}
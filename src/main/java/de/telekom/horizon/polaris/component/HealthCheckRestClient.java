@@ -8,17 +8,31 @@ import de.telekom.eni.pandora.horizon.auth.OAuth2TokenCache;
 import de.telekom.horizon.polaris.config.PolarisConfig;
 import de.telekom.horizon.polaris.exception.CallbackException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static de.telekom.horizon.polaris.helper.CompletableFutures.propagateCancellation;
 
 /**
  * Responsible for performing health checks on callback URLs using HTTP HEAD or GET requests.
@@ -36,15 +50,24 @@ import java.io.IOException;
 public class HealthCheckRestClient {
     private final OAuth2TokenCache oAuth2TokenCache;
     private final CloseableHttpClient httpClient;
+    private final HttpClient asyncHttpClient;
     private final PolarisConfig polarisConfig;
 
-    @Autowired
     public HealthCheckRestClient(OAuth2TokenCache oAuth2TokenCache, CloseableHttpClient httpClient, PolarisConfig polarisConfig) {
+        this(oAuth2TokenCache, httpClient, null, polarisConfig);
+    }
+
+    /**
+     * @param asyncHttpClient Only set if asynchronous requests are enabled.
+     */
+    @Autowired
+    public HealthCheckRestClient(OAuth2TokenCache oAuth2TokenCache, CloseableHttpClient httpClient, @Nullable HttpClient asyncHttpClient, PolarisConfig polarisConfig) {
         this.oAuth2TokenCache = oAuth2TokenCache;
         this.polarisConfig = polarisConfig;
         this.oAuth2TokenCache.retrieveAllAccessTokens();
 
         this.httpClient = httpClient;
+        this.asyncHttpClient = asyncHttpClient;
     }
 
     /**
@@ -75,10 +98,34 @@ public class HealthCheckRestClient {
         return doRequest(new HttpGet(callbackUrl), publisherId, subscriberId, environment);
     }
 
+    /**
+     * Performs an HTTP HEAD request to the specified callback URL for a health check without blocking the calling thread.
+     *
+     * @param callbackUrl   The URL to perform the health check.
+     * @param publisherId   The publisher ID to include in the request header.
+     * @param subscriberId  The subscriber ID to include in the request header.
+     * @param environment   The environment or realm for which the request is made.
+     * @return A future of the HTTP response status line, completed exceptionally with a {@link CallbackException} if the request fails.
+     */
+    public CompletableFuture<StatusLine> headAsync(String callbackUrl, String publisherId, String subscriberId, String environment) {
+        return doRequestAsync("HEAD", callbackUrl, publisherId, subscriberId, environment);
+    }
+
+    /**
+     * Performs an HTTP GET request to the specified callback URL for a health check without blocking the calling thread.
+     *
+     * @param callbackUrl   The URL to perform the health check.
+     * @param publisherId   The publisher ID to include in the request header.
+     * @param subscriberId  The subscriber ID to include in the request header.
+     * @param environment   The environment or realm for which the request is made.
+     * @return A future of the HTTP response status line, completed exceptionally with a {@link CallbackException} if the request fails.
+     */
+    public CompletableFuture<StatusLine> getAsync(String callbackUrl, String publisherId, String subscriberId, String environment) {
+        return doRequestAsync("GET", callbackUrl, publisherId, subscriberId, environment);
+    }
+
     private StatusLine doRequest(HttpRequestBase request, String publisherId, String subscriberId, String environment) throws CallbackException {
-        if (environment == null || environment.isEmpty() || environment.equals(polarisConfig.getDefaultEnvironment())){
-            environment = "default";
-        }
+        environment = resolveEnvironment(environment);
 
         request.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + oAuth2TokenCache.getToken(environment));
         request.setHeader("x-pubsub-publisher-id", publisherId);
@@ -93,6 +140,47 @@ public class HealthCheckRestClient {
         }
     }
 
+    private CompletableFuture<StatusLine> doRequestAsync(String method, String callbackUrl, String publisherId, String subscriberId, String environment) {
+        if (asyncHttpClient == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Asynchronous requests are disabled"));
+        }
+
+        HttpRequest request;
+        try {
+            var requestBuilder = HttpRequest.newBuilder(URI.create(callbackUrl))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + oAuth2TokenCache.getToken(resolveEnvironment(environment)))
+                    .header("x-pubsub-publisher-id", publisherId)
+                    .header("x-pubsub-subscriber-id", subscriberId);
+            if (polarisConfig.getMaxTimeout() > 0) {
+                requestBuilder.timeout(Duration.ofMillis(polarisConfig.getMaxTimeout()));
+            }
+            request = requestBuilder.build();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(new CallbackException(String.format("Error %s at callback '%s'", e.getMessage(), callbackUrl), e));
+        }
+
+        var responseFuture = asyncHttpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        // Cancelling the returned future aborts the request
+        return propagateCancellation(responseFuture.handle((response, throwable) -> {
+                    if (throwable != null) {
+                        var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                        throw new CompletionException(new CallbackException(String.format("Error %s at callback '%s'", cause.getMessage(), request.uri()), cause));
+                    }
+
+                    var statusCode = response.statusCode();
+                    return new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH));
+                }), responseFuture);
+    }
+
+    private String resolveEnvironment(String environment) {
+        if (environment == null || environment.isEmpty() || environment.equals(polarisConfig.getDefaultEnvironment())){
+            return "default";
+        }
+
+        return environment;
+    }
+
     /**
      * Scheduled task to trigger the retrieval of OAuth2 access tokens every 4 hours.
      * This ensures that the tokens remain up-to-date and valid for health check requests.
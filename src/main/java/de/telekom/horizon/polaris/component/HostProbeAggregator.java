@@ -0,0 +1,203 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.StatusLine;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static de.telekom.horizon.polaris.helper.CompletableFutures.propagateCancellation;
+
+/**
+ * Shares health check requests between callback URLs with the same origin (scheme, host and port) and HTTP method
+ * of the same subscriber.
+ * <p>
+ * The first health request task of an origin that becomes due probes its own URL. Until the result is older than
+ * the aggregation interval, the tasks of all other URLs of the origin reuse it instead of sending their own request.
+ * Each task keeps its own schedule and cooldown, only the request is shared.
+ * </p>
+ * <p>
+ * The request carries the token of the environment and the ids of publisher and subscriber, so an endpoint may
+ * answer differently for another subscriber, e.g. with 401 or 403. Therefore, results are never shared between
+ * subscribers or environments.
+ * </p>
+ * <p>
+ * Paths of the same host are not guaranteed to behave the same. Therefore, a shared successful result is always
+ * confirmed by a request to the URL itself before it can trigger republishing. If the results disagree, the origin
+ * is no longer aggregated until the request cooldown reset has passed. Shared failures are not confirmed, but since
+ * any URL of the origin can be the next one to probe, a wrongly grouped healthy URL is found within a few intervals.
+ * </p>
+ */
+@Slf4j
+@Component
+public class HostProbeAggregator {
+    private final PolarisConfig polarisConfig;
+    private final ConcurrentHashMap<String, OriginProbe> originProbes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> splitOrigins = new ConcurrentHashMap<>();
+
+    public HostProbeAggregator(PolarisConfig polarisConfig) {
+        this.polarisConfig = polarisConfig;
+    }
+
+    /**
+     * Same as {@link #probeAsync(String, HttpMethod, String, String, Supplier)}, but blocks until the result is available.
+     */
+    public Optional<StatusLine> probe(String callbackUrl, HttpMethod httpMethod, String subscriberId, String environment, Supplier<Optional<StatusLine>> request) {
+        return probeAsync(callbackUrl, httpMethod, subscriberId, environment, () -> CompletableFuture.completedFuture(request.get())).join();
+    }
+
+    /**
+     * Returns the result of a recent or in-flight health check request of the same subscriber to the origin of the
+     * callback URL, or sends the request if there is none.
+     *
+     * @param callbackUrl  The callback URL to be health-checked.
+     * @param httpMethod   The HTTP method (HEAD or GET) for the health check request.
+     * @param subscriberId The subscriber ID the request is sent for.
+     * @param environment  The environment whose token the request is sent with.
+     * @param request      Sends the health check request to the callback URL itself.
+     * @return A future of an Optional containing the StatusLine or an empty Optional if the request failed.
+     */
+    public CompletableFuture<Optional<StatusLine>> probeAsync(String callbackUrl, HttpMethod httpMethod, String subscriberId, String environment, Supplier<CompletableFuture<Optional<StatusLine>>> request) {
+        var origin = getOrigin(callbackUrl);
+        if (origin == null || isSplit(origin)) {
+            return request.get();
+        }
+
+        var originKey = String.join(" ", origin, httpMethod.name(), environment, subscriberId);
+        var originProbe = originProbes.computeIfAbsent(originKey, k -> new OriginProbe());
+
+        CompletableFuture<ProbeResult> sharedResult;
+        CompletableFuture<ProbeResult> ownResult = null;
+        synchronized (originProbe) {
+            if (originProbe.latest != null && originProbe.latest.isYoungerThan(polarisConfig.getRequestHostAggregationIntervalMs())) {
+                sharedResult = CompletableFuture.completedFuture(originProbe.latest);
+            } else if (originProbe.inFlight != null) {
+                sharedResult = originProbe.inFlight;
+            } else {
+                ownResult = new CompletableFuture<>();
+                originProbe.inFlight = ownResult;
+                sharedResult = null;
+            }
+        }
+
+        if (ownResult != null) {
+            var result = ownResult;
+            CompletableFuture<Optional<StatusLine>> ownRequest;
+            try {
+                ownRequest = request.get();
+            } catch (RuntimeException e) {
+                // The tasks waiting for this request must not hang
+                ownRequest = CompletableFuture.failedFuture(e);
+            }
+            // Cancelling the returned future aborts the request, the tasks waiting for it then send their own
+            return propagateCancellation(ownRequest.whenComplete((statusLine, throwable) -> {
+                var probeResult = new ProbeResult(callbackUrl, statusLine != null ? statusLine : Optional.empty(), System.currentTimeMillis());
+                var cancelled = throwable instanceof CancellationException;
+                synchronized (originProbe) {
+                    if (!cancelled) {
+                        originProbe.latest = probeResult;
+                    }
+                    originProbe.inFlight = null;
+                }
+                if (cancelled) {
+                    result.cancel(false);
+                } else {
+                    result.complete(probeResult);
+                }
+            }), ownRequest);
+        }
+
+        return sharedResult
+                // The request was aborted, because the task that sent it was stopped
+                .exceptionallyCompose(throwable -> request.get().thenApply(statusLine -> new ProbeResult(callbackUrl, statusLine, System.currentTimeMillis())))
+                .thenCompose(probeResult -> {
+                    if (probeResult.callbackUrl().equals(callbackUrl)) {
+                        return CompletableFuture.completedFuture(probeResult.statusLine());
+                    }
+
+                    if (!isSuccessful(probeResult.statusLine())) {
+                        log.debug("Reusing failed health check of {} for callback url '{}'", probeResult.callbackUrl(), callbackUrl);
+                        return CompletableFuture.completedFuture(probeResult.statusLine());
+                    }
+
+                    // Confirm success before the callback url gets republished
+                    return request.get().thenApply(statusLine -> {
+                        if (!isSuccessful(statusLine)) {
+                            log.warn("Health check of {} was successful, but failed for callback url '{}'. Will not aggregate health checks for origin {} anymore", probeResult.callbackUrl(), callbackUrl, origin);
+                            splitOrigins.put(origin, System.currentTimeMillis() + polarisConfig.getRequestCooldownResetMins() * 60_000L);
+                            originProbes.remove(originKey, originProbe);
+                        }
+                        return statusLine;
+                    });
+                });
+    }
+
+    /**
+     * Removes results that are too old to be shared and origins whose split has expired.
+     */
+    @Scheduled(fixedDelayString = "${polaris.request.host-aggregation.interval-ms}")
+    public void evictExpired() {
+        var now = System.currentTimeMillis();
+        splitOrigins.values().removeIf(splitUntil -> splitUntil < now);
+        originProbes.values().removeIf(originProbe -> {
+            synchronized (originProbe) {
+                return originProbe.inFlight == null && (originProbe.latest == null || !originProbe.latest.isYoungerThan(polarisConfig.getRequestHostAggregationIntervalMs()));
+            }
+        });
+    }
+
+    public boolean isSplit(String origin) {
+        var splitUntil = splitOrigins.get(origin);
+        return splitUntil != null && splitUntil >= System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the origin of the URL with lower case scheme and host and the default port if there is none,
+     * or {@code null} if the URL can not be parsed.
+     */
+    static String getOrigin(String callbackUrl) {
+        try {
+            var uri = URI.create(callbackUrl);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return null;
+            }
+
+            var scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            var port = uri.getPort();
+            if (port < 0) {
+                port = "https".equals(scheme) ? 443 : 80;
+            }
+            return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isSuccessful(Optional<StatusLine> statusLine) {
+        return statusLine.isPresent() && polarisConfig.getSuccessfulStatusCodes().contains(statusLine.get().getStatusCode());
+    }
+
+    private static class OriginProbe {
+        private ProbeResult latest;
+        private CompletableFuture<ProbeResult> inFlight;
+    }
+
+    private record ProbeResult(String callbackUrl, Optional<StatusLine> statusLine, long probedAtMs) {
+        boolean isYoungerThan(long intervalMs) {
+            return System.currentTimeMillis() - probedAtMs < intervalMs;
+        }
+    }
+}
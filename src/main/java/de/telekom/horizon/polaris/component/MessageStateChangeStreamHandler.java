@@ -0,0 +1,263 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.lock.FencedLock;
+import com.hazelcast.map.IMap;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.service.MessageStateQueryService;
+import de.telekom.horizon.polaris.service.ThreadPoolService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event driven alternative to polling for FAILED and DELIVERING events.
+ * <p>
+ * If enabled, one Polaris pod at a time (the holder of a CP lock) follows a change stream on the status collection.
+ * FAILED events with a callback exception are queued for republishing right away, DELIVERING callback events once
+ * they are older than {@link PolarisConfig#getDeliveringStatesOffsetMins()}. The queue is flushed periodically:
+ * the queued events are loaded again, so that only events which still match get republished.
+ * </p>
+ * <p>
+ * The leader stores the resume token of the change stream in Hazelcast every flush interval and when it stops,
+ * so that the next leader continues where the previous one stopped. Events that were queued but not flushed when a pod died are picked up by the
+ * {@link ScheduledEventFailedHandler} and {@link ScheduledEventDeliveringHandler}, which keep running with
+ * {@link PolarisConfig#getChangeStreamReconciliationIntervalMs()} as a safety net.
+ * </p>
+ */
+@Slf4j
+@Component
+public class MessageStateChangeStreamHandler {
+    static final String RESUME_TOKEN_KEY = "status";
+
+    private final ThreadPoolService threadPoolService;
+    private final PolarisConfig polarisConfig;
+    private final MessageStateQueryService messageStateQueryService;
+    private final MongoTemplate mongoTemplate;
+    private final FencedLock leaderLock;
+    private final IMap<String, String> resumeTokens;
+
+    private final Set<String> failedIds = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> deliveringIdsDueAt = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread watcherThread;
+
+    public MessageStateChangeStreamHandler(ThreadPoolService threadPoolService, MongoTemplate mongoTemplate, HazelcastInstance hazelcastInstance) {
+        this.threadPoolService = threadPoolService;
+        this.polarisConfig = threadPoolService.getPolarisConfig();
+        this.messageStateQueryService = threadPoolService.getMessageStateQueryService();
+        this.mongoTemplate = mongoTemplate;
+        this.leaderLock = hazelcastInstance.getCPSubsystem().getLock("polaris-change-stream-lock");
+        this.resumeTokens = hazelcastInstance.getMap("polaris-change-stream-resume-tokens");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!polarisConfig.isChangeStreamEnabled()) {
+            return;
+        }
+
+        running = true;
+        watcherThread = Thread.ofVirtual().name("polaris-change-stream").start(this::watchWhileLeader);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    /**
+     * Republishes the queued events that still match.
+     */
+    @Scheduled(fixedDelayString = "${polaris.change-stream.flush-interval-ms}", initialDelayString = "${polaris.change-stream.flush-interval-ms}")
+    public void flush() {
+        if (!polarisConfig.isChangeStreamEnabled()) {
+            return;
+        }
+
+        var ids = new ArrayList<String>();
+        drain(failedIds, ids);
+        var now = System.currentTimeMillis();
+        deliveringIdsDueAt.forEach((id, dueAt) -> {
+            if (dueAt <= now && deliveringIdsDueAt.remove(id, dueAt)) {
+                ids.add(id);
+            }
+        });
+
+        if (!ids.isEmpty()) {
+            log.info("Republishing up to {} FAILED/DELIVERING events detected by change stream", ids.size());
+            republishIfStillMatching(ids);
+        }
+    }
+
+    /**
+     * Queues the given changed message state for republishing if it is FAILED with a callback exception or
+     * DELIVERING via callback.
+     *
+     * @param messageState The message state after the change.
+     */
+    void onChange(MessageStateMongoDocument messageState) {
+        if (Status.FAILED.equals(messageState.getStatus())
+                && messageState.getError() != null
+                && polarisConfig.getCallbackExceptionType().equals(messageState.getError().getType())) {
+            failedIds.add(messageState.getUuid());
+        } else if (Status.DELIVERING.equals(messageState.getStatus()) && DeliveryType.CALLBACK.equals(messageState.getDeliveryType())) {
+            var modified = Objects.requireNonNullElseGet(messageState.getModified(), Date::new);
+            var dueAt = modified.toInstant().plus(polarisConfig.getDeliveringStatesOffsetMins(), ChronoUnit.MINUTES).toEpochMilli();
+            deliveringIdsDueAt.put(messageState.getUuid(), dueAt);
+        } else {
+            // Not (or no longer) relevant, e.g. DELIVERED after DELIVERING
+            deliveringIdsDueAt.remove(messageState.getUuid());
+        }
+    }
+
+    private void watchWhileLeader() {
+        while (running) {
+            boolean isLeader = false;
+            try {
+                isLeader = leaderLock.tryLock(polarisConfig.getPollingIntervalMs(), TimeUnit.MILLISECONDS);
+                if (isLeader) {
+                    log.info("Following change stream of message states");
+                    watch();
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.error("Unexpected error while following change stream of message states", e);
+                    sleepQuietly();
+                }
+            } finally {
+                if (isLeader) {
+                    unlockQuietly();
+                }
+            }
+        }
+    }
+
+    private void watch() {
+        var pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.in("operationType", "insert", "update", "replace"),
+                Filters.in("fullDocument.status", Status.FAILED.name(), Status.DELIVERING.name())
+        )));
+
+        var changeStream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(MessageStateMongoDocument.class))
+                .watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+
+        var resumeToken = resumeTokens.get(RESUME_TOKEN_KEY);
+        if (resumeToken != null) {
+            changeStream = changeStream.resumeAfter(BsonDocument.parse(resumeToken));
+        }
+
+        // Only known to the current leadership, so a previous leader can not store an outdated token
+        BsonDocument lastResumeToken = null;
+        var lastStoredAt = System.currentTimeMillis();
+        try (var cursor = changeStream.cursor()) {
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    if (change.getFullDocument() != null) {
+                        onChange(mongoTemplate.getConverter().read(MessageStateMongoDocument.class, change.getFullDocument()));
+                    }
+                    lastResumeToken = change.getResumeToken();
+                }
+
+                if (System.currentTimeMillis() - lastStoredAt >= polarisConfig.getChangeStreamFlushIntervalMs()) {
+                    if (!storeResumeToken(lastResumeToken)) {
+                        return;
+                    }
+                    lastStoredAt = System.currentTimeMillis();
+                }
+            }
+        }
+
+        storeResumeToken(lastResumeToken);
+    }
+
+    /**
+     * Stores the resume token of the change stream if this pod still holds the leader lock.
+     * Must be called by the watcher thread, since the lock is owned by the thread that acquired it.
+     *
+     * @param resumeToken The resume token of the last change or {@code null} if there was none.
+     * @return False if this pod is not the leader anymore and has to stop following the change stream.
+     */
+    boolean storeResumeToken(BsonDocument resumeToken) {
+        if (!leaderLock.isLockedByCurrentThread()) {
+            log.warn("Lost leadership of change stream of message states, not storing resume token");
+            return false;
+        }
+
+        if (resumeToken != null) {
+            resumeTokens.set(RESUME_TOKEN_KEY, resumeToken.toJson());
+        }
+        return true;
+    }
+
+    private void unlockQuietly() {
+        try {
+            leaderLock.unlock();
+        } catch (Exception e) {
+            // E.g. the CP session expired, so the lock is not held anymore anyway
+            log.warn("Could not release leader lock of change stream of message states", e);
+        }
+    }
+
+    private void republishIfStillMatching(List<String> ids) {
+        var upperThresholdTimestamp = Date.from(Instant.now().minus(polarisConfig.getDeliveringStatesOffsetMins(), ChronoUnit.MINUTES));
+        var criteria = new Criteria().orOperator(
+                messageStateQueryService.failedWithCallbackException(),
+                messageStateQueryService.byDeliveryTypeAndStatusAndModifiedLessThanEqual(DeliveryType.CALLBACK, Status.DELIVERING, upperThresholdTimestamp)
+        );
+
+        var batchSize = Math.max(1, polarisConfig.getPollingBatchSize());
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            var messageStates = messageStateQueryService.findByIds(criteria, ids.subList(i, Math.min(i + batchSize, ids.size())));
+            if (!messageStates.isEmpty()) {
+                threadPoolService.startRepublishTask(new SliceImpl<>(messageStates));
+            }
+        }
+    }
+
+    private static void drain(Set<String> source, List<String> target) {
+        for (var iterator = source.iterator(); iterator.hasNext(); ) {
+            target.add(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(polarisConfig.getPollingIntervalMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
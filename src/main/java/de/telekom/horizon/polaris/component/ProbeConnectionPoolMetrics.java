@@ -0,0 +1,79 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Publishes the leased, available and pending connections of the health check connection pool per route.
+ * Routes appear and disappear with the callback endpoints, so the gauges are updated regularly.
+ */
+@Slf4j
+@Component
+public class ProbeConnectionPoolMetrics {
+    private static final String METRIC_NAME = "polaris.probe.connections";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final MeterRegistry meterRegistry;
+    private final PolarisConfig polarisConfig;
+    private final Map<String, List<Meter>> routeMeters = new HashMap<>();
+
+    public ProbeConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager, MeterRegistry meterRegistry, PolarisConfig polarisConfig) {
+        this.connectionManager = connectionManager;
+        this.meterRegistry = meterRegistry;
+        this.polarisConfig = polarisConfig;
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public synchronized void updateRouteMeters() {
+        if (!polarisConfig.isRequestConnectionPoolEnabled()) {
+            return;
+        }
+
+        var routes = new HashMap<String, HttpRoute>();
+        connectionManager.getRoutes().forEach(route -> routes.put(route.getTargetHost().toURI(), route));
+        routes.putIfAbsent("total", null);
+
+        routes.forEach((name, route) -> routeMeters.computeIfAbsent(name, k -> List.of(
+                registerGauge(name, "leased", route, PoolStats::getLeased),
+                registerGauge(name, "available", route, PoolStats::getAvailable),
+                registerGauge(name, "pending", route, PoolStats::getPending),
+                registerGauge(name, "max", route, PoolStats::getMax))));
+
+        // The pool forgets routes without connections, so do their gauges
+        routeMeters.entrySet().removeIf(entry -> {
+            if (routes.containsKey(entry.getKey())) {
+                return false;
+            }
+
+            entry.getValue().forEach(meterRegistry::remove);
+            return true;
+        });
+        log.debug("Published connection pool metrics for {} routes", routeMeters.size() - 1);
+    }
+
+    private Meter registerGauge(String routeName, String state, HttpRoute routeOrNull, Function<PoolStats, Integer> value) {
+        return Gauge.builder(METRIC_NAME, connectionManager, manager -> value.apply(routeOrNull != null ? manager.getStats(routeOrNull) : manager.getTotalStats()))
+                .tag("route", routeName)
+                .tag("state", state)
+                .description("Connections of the health check connection pool")
+                .register(meterRegistry);
+    }
+}
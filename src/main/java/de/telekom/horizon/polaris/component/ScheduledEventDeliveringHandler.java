@@ -9,6 +9,7 @@ import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.eni.pandora.horizon.mongo.repository.MessageStateMongoRepo;
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.service.MessageStateQueryService;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.service.WorkerService;
 import lombok.extern.slf4j.Slf4j;
@@ -45,12 +46,15 @@ import java.util.concurrent.ExecutionException;
 public class ScheduledEventDeliveringHandler {
     private final ThreadPoolService threadPoolService;
     private final MessageStateMongoRepo messageStateMongoRepo;
+    private final MessageStateQueryService messageStateQueryService;
     private final PolarisConfig polarisConfig;
     private final WorkerService workerService;
+    private long lastRunMs;
 
     public ScheduledEventDeliveringHandler(ThreadPoolService threadPoolService) {
         this.threadPoolService = threadPoolService;
         this.messageStateMongoRepo = threadPoolService.getMessageStateMongoRepo();
+        this.messageStateQueryService = threadPoolService.getMessageStateQueryService();
         this.polarisConfig = threadPoolService.getPolarisConfig();
         this.workerService = threadPoolService.getWorkerService();
     }
@@ -66,7 +70,13 @@ public class ScheduledEventDeliveringHandler {
      */
     @Scheduled(fixedDelayString = "${polaris.polling.interval-ms}", initialDelayString = "${random.int(${polaris.polling.interval-ms})}")
     public void run() {
+        if (polarisConfig.isChangeStreamEnabled() && !isReconciliationDue()) {
+            // DELIVERING events are detected by the MessageStateChangeStreamHandler, only poll as safety net
+            return;
+        }
+
         if (workerService.tryGlobalLock()) {
+            lastRunMs = System.currentTimeMillis();
             try {
                 log.info("Start ScheduledEventDeliveringHandler");
 
@@ -80,19 +90,29 @@ public class ScheduledEventDeliveringHandler {
 
                 List<CompletableFuture<Void>> completableFutureList = new ArrayList<>();
 
-                do {
-                    messageStatesSlices = messageStateMongoRepo.findByDeliveryTypeAndStatusAndModifiedLessThanEqual(DeliveryType.CALLBACK, Status.DELIVERING, upperThresholdTimestamp, pageable);
-                    log.debug("messageStatesSlices: {} | {}", messageStatesSlices, messageStatesSlices.get().toList());
-
-                    if(messageStatesSlices.getNumberOfElements() > 0) {
-                        CompletableFuture<Void> republishTask = threadPoolService.startRepublishTask(messageStatesSlices);
+                if (polarisConfig.isPollingKeysetEnabled()) {
+                    // Continue after the last seen document, so that republished documents do not shift the pages
+                    messageStateQueryService.forEachBatch(messageStateQueryService.byDeliveryTypeAndStatusAndModifiedLessThanEqual(DeliveryType.CALLBACK, Status.DELIVERING, upperThresholdTimestamp), batchSize, messageStates -> {
+                        CompletableFuture<Void> republishTask = threadPoolService.startRepublishTask(messageStates);
                         if (republishTask != null) {
                             completableFutureList.add(republishTask);
                         }
-                    }
-                    pageable = pageable.next();
+                    });
+                } else {
+                    do {
+                        messageStatesSlices = messageStateMongoRepo.findByDeliveryTypeAndStatusAndModifiedLessThanEqual(DeliveryType.CALLBACK, Status.DELIVERING, upperThresholdTimestamp, pageable);
+                        log.debug("messageStatesSlices: {} | {}", messageStatesSlices, messageStatesSlices.get().toList());
 
-                } while(messageStatesSlices.hasNext());
+                        if(messageStatesSlices.getNumberOfElements() > 0) {
+                            CompletableFuture<Void> republishTask = threadPoolService.startRepublishTask(messageStatesSlices);
+                            if (republishTask != null) {
+                                completableFutureList.add(republishTask);
+                            }
+                        }
+                        pageable = pageable.next();
+
+                    } while(messageStatesSlices.hasNext());
+                }
 
                 // wait for tasks to complete to really finish the run
                 for(CompletableFuture<Void> completableFuture : completableFutureList) {
@@ -109,4 +129,8 @@ public class ScheduledEventDeliveringHandler {
             }
         }
     }
+
+    private boolean isReconciliationDue() {
+        return System.currentTimeMillis() - lastRunMs >= polarisConfig.getChangeStreamReconciliationIntervalMs();
+    }
 }
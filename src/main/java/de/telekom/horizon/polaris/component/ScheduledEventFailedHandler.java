@@ -7,6 +7,7 @@ package de.telekom.horizon.polaris.component;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.eni.pandora.horizon.mongo.repository.MessageStateMongoRepo;
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.service.MessageStateQueryService;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.service.WorkerService;
 import lombok.extern.slf4j.Slf4j;
@@ -46,13 +47,16 @@ import java.util.concurrent.ExecutionException;
 public class ScheduledEventFailedHandler {
     private final ThreadPoolService threadPoolService;
     private final MessageStateMongoRepo messageStateMongoRepo;
+    private final MessageStateQueryService messageStateQueryService;
     private final PolarisConfig polarisConfig;
 
     private final WorkerService workerService;
+    private long lastRunMs;
 
     public ScheduledEventFailedHandler(ThreadPoolService threadPoolService) {
         this.threadPoolService = threadPoolService;
         this.messageStateMongoRepo = threadPoolService.getMessageStateMongoRepo();
+        this.messageStateQueryService = threadPoolService.getMessageStateQueryService();
         this.polarisConfig = threadPoolService.getPolarisConfig();
         this.workerService = threadPoolService.getWorkerService();
     }
@@ -68,7 +72,13 @@ public class ScheduledEventFailedHandler {
      */
     @Scheduled(fixedDelayString = "${polaris.polling.interval-ms}", initialDelayString = "${random.int(${polaris.polling.interval-ms})}")
     public void run() {
+        if (polarisConfig.isChangeStreamEnabled() && !isReconciliationDue()) {
+            // FAILED events are detected by the MessageStateChangeStreamHandler, only poll as safety net
+            return;
+        }
+
         if (workerService.tryGlobalLock()) {
+            lastRunMs = System.currentTimeMillis();
             try {
                 log.info("Start ScheduledEventFailedHandler");
 
@@ -79,19 +89,29 @@ public class ScheduledEventFailedHandler {
 
                 List<CompletableFuture<Void>> completableFutureList = new ArrayList<>();
 
-                do {
-                    messageStatesSlices = messageStateMongoRepo.findStatusFailedWithCallbackExceptionAsc(pageable);
-                    log.debug("messageStatesSlices: {} | {}", messageStatesSlices, messageStatesSlices.get().toList());
-
-                    if(messageStatesSlices.getNumberOfElements() > 0) {
-                        CompletableFuture<Void> republishTask = threadPoolService.startRepublishTask(messageStatesSlices);
+                if (polarisConfig.isPollingKeysetEnabled()) {
+                    // Continue after the last seen document, so that republished documents do not shift the pages
+                    messageStateQueryService.forEachBatch(messageStateQueryService.failedWithCallbackException(), batchSize, messageStates -> {
+                        CompletableFuture<Void> republishTask = threadPoolService.startRepublishTask(messageStates);
                         if (republishTask != null) {
                             completableFutureList.add(republishTask);
                         }
-                    }
+                    });
+                } else {
+                    do {
+                        messageStatesSlices = messageStateMongoRepo.findStatusFailedWithCallbackExceptionAsc(pageable);
+                        log.debug("messageStatesSlices: {} | {}", messageStatesSlices, messageStatesSlices.get().toList());
+
+                        if(messageStatesSlices.getNumberOfElements() > 0) {
+                            CompletableFuture<Void> republishTask = threadPoolService.startRepublishTask(messageStatesSlices);
+                            if (republishTask != null) {
+                                completableFutureList.add(republishTask);
+                            }
+                        }
 
-                    pageable = pageable.next();
-                } while(messageStatesSlices.hasNext());
+                        pageable = pageable.next();
+                    } while(messageStatesSlices.hasNext());
+                }
 
                 // wait for tasks to complete to really finish the run
                 for(CompletableFuture<Void> completableFuture : completableFutureList) {
@@ -108,4 +128,8 @@ public class ScheduledEventFailedHandler {
             }
         }
     }
+
+    private boolean isReconciliationDue() {
+        return System.currentTimeMillis() - lastRunMs >= polarisConfig.getChangeStreamReconciliationIntervalMs();
+    }
 }
@@ -18,6 +18,7 @@ import org.springframework.stereotype.Component;
  * <ul>
  *   <li>During initialization, it continues working on assigned messages in the {@link CircuitBreakerManager}.</li>
  *   <li>Periodically, it loads and processes open circuit breaker messages in the {@link CircuitBreakerManager}.</li>
+ *   <li>Periodically, it reclaims circuit breaker messages whose claim lease expired in the {@link CircuitBreakerManager}.</li>
  * </ul>
  * The polling interval for processing open circuit breaker messages is configured in the {@link PolarisConfig}.
  * </p>
@@ -60,4 +61,16 @@ public class ScheduledEventWaitingHandler {
         circuitBreakerManager.loadAndProcessCircuitBreakerMessages(CircuitBreakerStatus.OPEN);
         log.info("Finished ScheduledEventWaitingHandler");
     }
+
+    /**
+     * Periodically reclaims circuit breaker messages of all non-CLOSED statuses whose claim lease expired.
+     * <p>
+     * Calls {@link CircuitBreakerManager#reclaimExpiredClaims()} once per claim lease TTL, which does nothing
+     * if claim leases are disabled.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${polaris.claim.lease.ttl-ms}", initialDelayString = "${polaris.claim.lease.ttl-ms}")
+    protected void reclaimExpiredClaimsScheduled() {
+        circuitBreakerManager.reclaimExpiredClaims();
+    }
 }
@@ -0,0 +1,25 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.config;
+
+import de.telekom.horizon.polaris.helper.BackoffPolicy;
+import de.telekom.horizon.polaris.helper.DecorrelatedJitterBackoffPolicy;
+import de.telekom.horizon.polaris.helper.FixedBackoffPolicy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BackoffConfig {
+
+    @Bean
+    public BackoffPolicy backoffPolicy(PolarisConfig polarisConfig) {
+        if (polarisConfig.isRequestBackoffJitterEnabled()) {
+            return new DecorrelatedJitterBackoffPolicy(polarisConfig.getRequestBackoffJitterBaseMs(), polarisConfig.getRequestBackoffJitterCapMs(),
+                    polarisConfig.getRequestBackoffJitterMultiplier(), polarisConfig.getRequestBackoffJitterOverrides());
+        }
+
+        return new FixedBackoffPolicy(polarisConfig);
+    }
+}
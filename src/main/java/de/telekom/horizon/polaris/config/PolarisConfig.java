@@ -22,19 +22,116 @@ public class PolarisConfig {
     @Value("${polaris.max-connections}")
     private int maxConnections;
 
+    @Value("${polaris.lock.striped.enabled}")
+    private boolean lockStripedEnabled;
+    @Value("${polaris.lock.striped.stripes}")
+    private int lockStripes;
+    @Value("${polaris.ownership.ring.enabled}")
+    private boolean ownershipRingEnabled;
+    @Value("${polaris.ownership.ring.virtual-nodes}")
+    private int ownershipRingVirtualNodes;
+    @Value("${polaris.claim.batch.enabled}")
+    private boolean claimBatchEnabled;
+    @Value("${polaris.claim.indexed-removal.enabled}")
+    private boolean claimIndexedRemovalEnabled;
+    @Value("${polaris.claim.lease.enabled}")
+    private boolean claimLeaseEnabled;
+    @Value("${polaris.claim.lease.ttl-ms}")
+    private long claimLeaseTtlMs;
+    @Value("${polaris.claim.lease.heartbeat-interval-ms}")
+    private long claimLeaseHeartbeatIntervalMs;
+    @Value("${polaris.circuit-breaker.query-cache.enabled}")
+    private boolean circuitBreakerQueryCacheEnabled;
+    @Value("${polaris.circuit-breaker.atomic-updates.enabled}")
+    private boolean circuitBreakerAtomicUpdatesEnabled;
+    @Value("${polaris.health-cache.distributed.enabled}")
+    private boolean healthCacheDistributedEnabled;
+    @Value("${polaris.health-cache.distributed.sync-interval-ms}")
+    private int healthCacheDistributedSyncIntervalMs;
+
     @Value("${polaris.picking.timeout-ms}")
     private int pickingTimeoutMs;
+    @Value("${polaris.picking.range.enabled}")
+    private boolean pickingRangeEnabled;
+    @Value("${polaris.picking.range.max-gap}")
+    private int pickingRangeMaxGap;
+    @Value("${polaris.picking.range.max-poll-records}")
+    private int pickingRangeMaxPollRecords;
+    @Value("${polaris.picking.pool.enabled}")
+    private boolean pickingPoolEnabled;
+    @Value("${polaris.picking.pool.max-consumers-per-topic}")
+    private int pickingPoolMaxConsumersPerTopic;
+    @Value("${polaris.picking.pool.prewarm-consumers-per-topic}")
+    private int pickingPoolPrewarmConsumersPerTopic;
+    @Value("${polaris.picking.parallel.enabled}")
+    private boolean pickingParallelEnabled;
+    @Value("${polaris.picking.parallel.max-partitions}")
+    private int pickingParallelMaxPartitions;
 
     @Value("${polaris.polling.interval-ms}")
     private int pollingIntervalMs;
     @Value("${polaris.polling.batch-size}")
     private int pollingBatchSize;
+    @Value("${polaris.polling.keyset.enabled}")
+    private boolean pollingKeysetEnabled;
+    @Value("${polaris.change-stream.enabled}")
+    private boolean changeStreamEnabled;
+    @Value("${polaris.change-stream.flush-interval-ms}")
+    private int changeStreamFlushIntervalMs;
+    @Value("${polaris.change-stream.reconciliation-interval-ms}")
+    private long changeStreamReconciliationIntervalMs;
+    @Value("${polaris.virtual-threads.enabled}")
+    private boolean virtualThreadsEnabled;
     @Value("${polaris.request.threadpool.pool-size}")
     private int requestThreadpoolPoolSize;
     @Value("${polaris.request.delay-mins}")
     private int requestDelayInbetweenMins;
     @Value("${polaris.request.cooldown-reset-mins}")
     private int requestCooldownResetMins;
+    @Value("${polaris.request.async.enabled}")
+    private boolean requestAsyncEnabled;
+    @Value("${polaris.request.async.threads}")
+    private int requestAsyncThreads;
+    @Value("${polaris.request.timer-wheel.enabled}")
+    private boolean requestTimerWheelEnabled;
+    @Value("${polaris.request.timer-wheel.tick-ms}")
+    private long requestTimerWheelTickMs;
+    @Value("${polaris.request.timer-wheel.size}")
+    private int requestTimerWheelSize;
+    @Value("${polaris.request.host-aggregation.enabled}")
+    private boolean requestHostAggregationEnabled;
+    @Value("${polaris.request.host-aggregation.interval-ms}")
+    private long requestHostAggregationIntervalMs;
+    @Value("${polaris.request.backoff.jitter.enabled}")
+    private boolean requestBackoffJitterEnabled;
+    @Value("${polaris.request.backoff.jitter.base-ms}")
+    private long requestBackoffJitterBaseMs;
+    @Value("${polaris.request.backoff.jitter.cap-ms}")
+    private long requestBackoffJitterCapMs;
+    @Value("${polaris.request.backoff.jitter.multiplier}")
+    private double requestBackoffJitterMultiplier;
+    @Value("#{'${polaris.request.backoff.jitter.overrides}'.split(',')}")
+    private List<String> requestBackoffJitterOverrides;
+    @Value("${polaris.request.connection-pool.enabled}")
+    private boolean requestConnectionPoolEnabled;
+    @Value("${polaris.request.connection-pool.max-per-route}")
+    private int requestConnectionPoolMaxPerRoute;
+    @Value("${polaris.request.connection-pool.connect-timeout-ms}")
+    private int requestConnectionPoolConnectTimeoutMs;
+    @Value("${polaris.request.connection-pool.socket-timeout-ms}")
+    private int requestConnectionPoolSocketTimeoutMs;
+    @Value("${polaris.request.connection-pool.idle-timeout-ms}")
+    private long requestConnectionPoolIdleTimeoutMs;
+    @Value("${polaris.request.connection-pool.ttl-ms}")
+    private long requestConnectionPoolTtlMs;
+    @Value("${polaris.request.connection-pool.validate-after-inactivity-ms}")
+    private int requestConnectionPoolValidateAfterInactivityMs;
+    @Value("${polaris.request.dns-cache.enabled}")
+    private boolean requestDnsCacheEnabled;
+    @Value("${polaris.request.dns-cache.positive-ttl-ms}")
+    private long requestDnsCachePositiveTtlMs;
+    @Value("${polaris.request.dns-cache.negative-ttl-ms}")
+    private long requestDnsCacheNegativeTtlMs;
 
     @Value("#{${polaris.subscription-check.threadpool.max-size}?: T(java.lang.Integer).MAX_VALUE }")
     private int subscriptionCheckThreadpoolMaxPoolSize;
@@ -54,8 +151,26 @@ public class PolarisConfig {
     private int republishingBatchSize;
     @Value("${polaris.republish.timeout-ms}")
     private int republishingTimeoutMs;
+    @Value("${polaris.republish.async.enabled}")
+    private boolean republishingAsyncEnabled;
+    @Value("${polaris.republish.raw-patch.enabled}")
+    private boolean republishingRawPatchEnabled;
+    @Value("${polaris.republish.pipeline.enabled}")
+    private boolean republishingPipelineEnabled;
+    @Value("${polaris.republish.pipeline.queue-capacity}")
+    private int republishingPipelineQueueCapacity;
+    @Value("${polaris.republish.projection.enabled}")
+    private boolean republishingProjectionEnabled;
+    @Value("${polaris.republish.lease.enabled}")
+    private boolean republishLeaseEnabled;
+    @Value("${polaris.republish.lease.ttl-ms}")
+    private long republishLeaseTtlMs;
+    @Value("${polaris.republish.lease.heartbeat-interval-ms}")
+    private long republishLeaseHeartbeatIntervalMs;
     @Value("${polaris.deliveringStates-offset-mins}")
     private int deliveringStatesOffsetMins;
+    @Value("${polaris.callback-exception-type}")
+    private String callbackExceptionType;
 
     @Value("#{'${polaris.request.successful-status-codes}'.split(',')}")
     private List<Integer> successfulStatusCodes;
@@ -5,14 +5,33 @@
 package de.telekom.horizon.polaris.config.rest;
 
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.CachingDnsResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.ssl.SSLContexts;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class HttpClientConfig {
 
@@ -22,16 +41,69 @@ public class HttpClientConfig {
         this.polarisConfig = polarisConfig;
     }
 
+    /**
+     * Resolves the hosts of the callback urls for the health check client. The asynchronous client uses the
+     * JVM-wide address cache instead, which can be configured with networkaddress.cache.ttl.
+     */
+    @Bean
+    public DnsResolver dnsResolver(MeterRegistry meterRegistry) {
+        if (polarisConfig.isRequestDnsCacheEnabled()) {
+            return new CachingDnsResolver(SystemDefaultDnsResolver.INSTANCE, polarisConfig.getRequestDnsCachePositiveTtlMs(), polarisConfig.getRequestDnsCacheNegativeTtlMs(),
+                    Executors.newVirtualThreadPerTaskExecutor(), meterRegistry);
+        }
+
+        return SystemDefaultDnsResolver.INSTANCE;
+    }
+
     @Bean
-    public PoolingHttpClientConnectionManager poolingHttpClientConnectionManager() {
-        var connectionManager = new PoolingHttpClientConnectionManager();
+    public PoolingHttpClientConnectionManager poolingHttpClientConnectionManager(DnsResolver dnsResolver) {
+        if (polarisConfig.isRequestConnectionPoolEnabled()) {
+            return probeConnectionManager(dnsResolver);
+        }
+
+        var socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        var connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry, dnsResolver);
         connectionManager.setMaxTotal(polarisConfig.getMaxConnections());
         connectionManager.setDefaultMaxPerRoute(polarisConfig.getMaxConnections());
         return connectionManager;
     }
 
+    /**
+     * Connection manager for health checks, which mostly go to endpoints that are slow or down.
+     * <ul>
+     *     <li>Every host gets at most max-per-route connections, so one slow host can not take the whole pool.</li>
+     *     <li>Connections live at most ttl-ms and are checked before reuse if they were idle for validate-after-inactivity-ms.</li>
+     *     <li>All https connections share one SSL context, so TLS sessions get resumed from its session cache.</li>
+     * </ul>
+     */
+    private PoolingHttpClientConnectionManager probeConnectionManager(DnsResolver dnsResolver) {
+        var socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(SSLContexts.createSystemDefault(), SSLConnectionSocketFactory.getDefaultHostnameVerifier()))
+                .build();
+
+        var connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry, null, null, dnsResolver, polarisConfig.getRequestConnectionPoolTtlMs(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(polarisConfig.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(Math.min(polarisConfig.getRequestConnectionPoolMaxPerRoute(), polarisConfig.getMaxConnections()));
+        connectionManager.setValidateAfterInactivity(polarisConfig.getRequestConnectionPoolValidateAfterInactivityMs());
+        // Also limits the TLS handshake, which happens before the request config applies
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(polarisConfig.getRequestConnectionPoolSocketTimeoutMs()).build());
+        return connectionManager;
+    }
+
     @Bean
     public RequestConfig requestConfig() {
+        if (polarisConfig.isRequestConnectionPoolEnabled()) {
+            return RequestConfig.custom()
+                    .setConnectionRequestTimeout(polarisConfig.getRequestConnectionPoolConnectTimeoutMs())
+                    .setConnectTimeout(polarisConfig.getRequestConnectionPoolConnectTimeoutMs())
+                    .setSocketTimeout(polarisConfig.getRequestConnectionPoolSocketTimeoutMs())
+                    .build();
+        }
+
         return RequestConfig.custom()
                 .setConnectionRequestTimeout((int) polarisConfig.getMaxTimeout())
                 .setConnectTimeout((int) polarisConfig.getMaxTimeout())
@@ -41,6 +113,26 @@ public class HttpClientConfig {
 
     @Bean
     public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager poolingHttpClientConnectionManager, RequestConfig requestConfig) {
+        if (polarisConfig.isRequestConnectionPoolEnabled()) {
+            long idleTimeoutMs = polarisConfig.getRequestConnectionPoolIdleTimeoutMs();
+            // Keep connections alive as long as the server allows, but not longer than they may be idle
+            ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+                long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return keepAliveMs > 0 ? Math.min(keepAliveMs, idleTimeoutMs) : idleTimeoutMs;
+            };
+
+            return HttpClientBuilder
+                    .create()
+                    .disableCookieManagement()
+                    // Without a user token, connections of all requests can be reused
+                    .disableConnectionState()
+                    .setConnectionManager(poolingHttpClientConnectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS)
+                    .build();
+        }
 
         return HttpClientBuilder
                 .create()
@@ -49,4 +141,35 @@ public class HttpClientConfig {
                 .setDefaultRequestConfig(requestConfig)
                 .build();
     }
+
+    /**
+     * Threads of the asynchronous HTTP client. The client does not shut down an executor it was given,
+     * so this is done when the context closes.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnProperty(value = "polaris.request.async.enabled", havingValue = "true")
+    public ExecutorService asyncHttpClientExecutor() {
+        return Executors.newFixedThreadPool(Math.max(1, polarisConfig.getRequestAsyncThreads()));
+    }
+
+    /**
+     * Non-blocking HTTP client for asynchronous health checks. Requests in flight do not hold a thread,
+     * the few executor threads only handle the responses.
+     * <p>
+     * Like the Apache client, it follows all redirects of the HEAD and GET requests, also from https to http.
+     * </p>
+     */
+    @Bean
+    @ConditionalOnProperty(value = "polaris.request.async.enabled", havingValue = "true")
+    public HttpClient asyncHttpClient(ExecutorService asyncHttpClientExecutor) {
+        var builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.ALWAYS)
+                .executor(asyncHttpClientExecutor);
+        if (polarisConfig.getMaxTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(polarisConfig.getMaxTimeout()));
+        }
+
+        return builder.build();
+    }
 }
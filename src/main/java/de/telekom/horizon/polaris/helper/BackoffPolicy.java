@@ -0,0 +1,40 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.model.CallbackKey;
+
+import java.time.Duration;
+
+/**
+ * Decides how long a callback endpoint has to wait for its next health request.
+ */
+public interface BackoffPolicy {
+
+    /**
+     * Returns the delay of the first health request after the circuit breaker of the endpoint has been opened again.
+     *
+     * @param callbackKey    The callback url and http method of the endpoint.
+     * @param republishCount How often the events of the endpoint have been republished without the circuit breaker staying closed.
+     * @return The delay, zero if the endpoint should be checked immediately.
+     */
+    Duration getCooldown(CallbackKey callbackKey, int republishCount);
+
+    /**
+     * Returns the delay of the next health request after a failed one.
+     *
+     * @param callbackKey The callback url and http method of the endpoint.
+     * @return The delay.
+     */
+    Duration getRetryDelay(CallbackKey callbackKey);
+
+    /**
+     * Forgets the previous delays of the endpoint, e.g. after a successful health request.
+     *
+     * @param callbackKey The callback url and http method of the endpoint.
+     */
+    default void reset(CallbackKey callbackKey) {
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs every task on its own virtual thread, but lets at most {@code maxConcurrency} tasks run at once.
+ * <p>
+ * Tasks above the limit wait for a permit on their (parked) virtual thread in submission order, so submitting never
+ * blocks the caller. Executions are timed by {@link ExecutorServiceMetrics} and the permits in use and the waiting
+ * tasks are reported as {@code executor.active} and {@code executor.queued}, like for the platform-thread pools.
+ * A task submitted with {@code submit} that gets cancelled while waiting does not take a permit.
+ * </p>
+ */
+public class BoundedVirtualThreadExecutor implements AsyncTaskExecutor, AutoCloseable {
+    private final ExecutorService executorService;
+    private final Semaphore semaphore;
+    private final int maxConcurrency;
+
+    public BoundedVirtualThreadExecutor(String name, int maxConcurrency, MeterRegistry meterRegistry) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        this.semaphore = new Semaphore(maxConcurrency, true);
+        var virtualThreadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.executorService = ExecutorServiceMetrics.monitor(meterRegistry, virtualThreadExecutor, name);
+
+        Gauge.builder("executor.active", this, BoundedVirtualThreadExecutor::getActiveCount)
+                .tags(Tags.of("name", name))
+                .description("The approximate number of threads that are actively executing tasks")
+                .register(meterRegistry);
+        Gauge.builder("executor.queued", semaphore, Semaphore::getQueueLength)
+                .tags(Tags.of("name", name))
+                .description("The approximate number of tasks that are waiting for a permit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executorService.execute(() -> {
+            if (isCancelled(task)) {
+                return;
+            }
+
+            // Waiting must not be interrupted, else the future of the task would never complete
+            semaphore.acquireUninterruptibly();
+            try {
+                // The task may have been cancelled while waiting for the permit
+                if (!isCancelled(task)) {
+                    task.run();
+                }
+            } finally {
+                semaphore.release();
+            }
+        });
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        var future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        var future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - semaphore.availablePermits();
+    }
+
+    /**
+     * Interrupts the running tasks and rejects new ones. Tasks that still wait for a permit run once they get one.
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    private static boolean isCancelled(Runnable task) {
+        return task instanceof Future<?> future && future.isCancelled();
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.DnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * DNS resolver for callback hosts that caches successful lookups as well as unknown hosts.
+ * <p>
+ * Answers are cached for their TTL. A host that is still looked up after 80% of the TTL is resolved again in the
+ * background while the cached answer is returned, so hosts that are checked regularly are rarely resolved on the
+ * request path. Unknown hosts are cached with their own, usually shorter, TTL, because dead endpoints often fail
+ * at DNS and are checked again and again.
+ * </p>
+ * <p>
+ * Publishes {@code polaris.dns.cache} (hits and misses), {@code polaris.dns.cache.size} and the duration of the
+ * actual lookups as {@code polaris.dns.resolve}.
+ * </p>
+ */
+@Slf4j
+public class CachingDnsResolver implements DnsResolver {
+    private static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    private final DnsResolver delegate;
+    private final long positiveTtlMs;
+    private final long negativeTtlMs;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Answer> answers = new ConcurrentHashMap<>();
+    private final Set<String> refreshingHosts = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Timer resolvedTimer;
+    private final Timer unknownHostTimer;
+    private volatile long lastCleanupAtMs;
+
+    public CachingDnsResolver(DnsResolver delegate, long positiveTtlMs, long negativeTtlMs, Executor refreshExecutor, MeterRegistry meterRegistry) {
+        this(delegate, positiveTtlMs, negativeTtlMs, refreshExecutor, meterRegistry, System::currentTimeMillis);
+    }
+
+    CachingDnsResolver(DnsResolver delegate, long positiveTtlMs, long negativeTtlMs, Executor refreshExecutor, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.delegate = delegate;
+        this.positiveTtlMs = positiveTtlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+
+        FunctionCounter.builder("polaris.dns.cache", hits, LongAdder::sum).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("polaris.dns.cache", misses, LongAdder::sum).tag("result", "miss").register(meterRegistry);
+        Gauge.builder("polaris.dns.cache.size", answers, ConcurrentHashMap::size).register(meterRegistry);
+        this.resolvedTimer = Timer.builder("polaris.dns.resolve").tag("outcome", "resolved").register(meterRegistry);
+        this.unknownHostTimer = Timer.builder("polaris.dns.resolve").tag("outcome", "unknown-host").register(meterRegistry);
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long now = clock.getAsLong();
+        var answer = answers.get(host);
+        if (answer != null && now < answer.expiresAtMs()) {
+            hits.increment();
+            if (now >= answer.refreshAtMs() && refreshingHosts.add(host)) {
+                refreshInBackground(host);
+            }
+            return answer.get(host);
+        }
+
+        misses.increment();
+        removeExpiredAnswers(now);
+
+        answer = lookup(host);
+        answers.put(host, answer);
+        return answer.get(host);
+    }
+
+    private void refreshInBackground(String host) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    answers.put(host, lookup(host));
+                } finally {
+                    refreshingHosts.remove(host);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshingHosts.remove(host);
+            log.warn("Could not refresh DNS answer for host {} in the background", host, e);
+        }
+    }
+
+    private Answer lookup(String host) {
+        long start = System.nanoTime();
+        try {
+            var addresses = delegate.resolve(host);
+            resolvedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Answer.of(addresses, null, clock.getAsLong(), positiveTtlMs);
+        } catch (UnknownHostException e) {
+            unknownHostTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Answer.of(null, e, clock.getAsLong(), negativeTtlMs);
+        }
+    }
+
+    /**
+     * Removes the answers of hosts that were not looked up for a while, at most once per negative TTL.
+     */
+    private void removeExpiredAnswers(long now) {
+        if (now - lastCleanupAtMs < negativeTtlMs) {
+            return;
+        }
+
+        lastCleanupAtMs = now;
+        answers.values().removeIf(answer -> answer.expiresAtMs() <= now);
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private record Answer(InetAddress[] addresses, UnknownHostException unknownHostException, long refreshAtMs, long expiresAtMs) {
+
+        static Answer of(InetAddress[] addresses, UnknownHostException unknownHostException, long now, long ttlMs) {
+            return new Answer(addresses, unknownHostException, now + (long) (ttlMs * REFRESH_AHEAD_RATIO), now + ttlMs);
+        }
+
+        InetAddress[] get(String host) throws UnknownHostException {
+            if (addresses == null) {
+                // A new exception, so the stack trace shows the current request
+                var exception = new UnknownHostException(host);
+                exception.initCause(unknownHostException);
+                throw exception;
+            }
+            return addresses.clone();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers for {@link CompletableFuture}s.
+ */
+public final class CompletableFutures {
+
+    private CompletableFutures() {
+    }
+
+    /**
+     * Cancels the source future once the derived future is cancelled.
+     * <p>
+     * A future derived with e.g. {@link CompletableFuture#thenApply} completes when its source completes, but cancelling
+     * it leaves the source running. This hands the cancellation back, so cancelling the derived future of an HTTP
+     * request also aborts the request.
+     * </p>
+     *
+     * @param derived The future derived from the source.
+     * @param source  The future to cancel with the derived one.
+     * @return The derived future.
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> derived, Future<?> source) {
+        derived.whenComplete((result, throwable) -> {
+            if (derived.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring that assigns keys to members.
+ * <p>
+ * Every member is placed on the ring with a number of virtual nodes. A key is owned by the member of the first
+ * virtual node at or after the hash of the key. When a member joins or leaves, only the keys between its virtual
+ * nodes and their predecessors change their owner.
+ * </p>
+ * <p>
+ * The hash only depends on the key and the member ids, so every Polaris pod computes the same owner for a key
+ * as long as it knows the same members.
+ * </p>
+ */
+public class ConsistentHashRing {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> members;
+
+    public ConsistentHashRing(Collection<String> members, int virtualNodesPerMember) {
+        this.members = Collections.unmodifiableSet(new TreeSet<>(members));
+        for (var member : this.members) {
+            for (int i = 0; i < Math.max(1, virtualNodesPerMember); i++) {
+                // On a (very unlikely) collision, the smaller member id wins on every pod
+                ring.merge(hash(member + "#" + i), member, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    /**
+     * Returns the member that owns the given key.
+     *
+     * @param key The key, e.g. a subscription id.
+     * @return The id of the owning member or {@code null} if the ring has no members.
+     */
+    public String getOwner(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+
+        var entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public Set<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * 64-bit FNV-1a with the MurmurHash3 finalizer, so that similar keys spread over the whole ring.
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
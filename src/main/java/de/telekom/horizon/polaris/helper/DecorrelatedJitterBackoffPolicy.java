@@ -0,0 +1,112 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.model.CallbackKey;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Backoff with decorrelated jitter, so that endpoints which failed at the same time do not keep being checked
+ * at the same time.
+ * <p>
+ * Every delay is drawn uniformly between the base and {@code multiplier} times the previous delay, limited by the cap.
+ * Between failed health requests the previous delay is the last one of the endpoint. For the cooldown before the
+ * first health request it is the curve {@code base * multiplier ^ (republishCount - 1)}, so endpoints that got
+ * republished more often still wait longer.
+ * </p>
+ * <p>
+ * Base and cap can be overridden for callback urls starting with a given prefix, written as
+ * {@code prefix=baseMs:capMs}. The longest matching prefix wins.
+ * </p>
+ */
+public class DecorrelatedJitterBackoffPolicy implements BackoffPolicy {
+    private final Limits defaultLimits;
+    private final List<Limits> overrides;
+    private final double multiplier;
+    private final Supplier<RandomGenerator> random;
+    private final ConcurrentHashMap<CallbackKey, Long> previousRetryDelaysMs = new ConcurrentHashMap<>();
+
+    public DecorrelatedJitterBackoffPolicy(long baseMs, long capMs, double multiplier, Collection<String> overrides) {
+        this(baseMs, capMs, multiplier, overrides, ThreadLocalRandom::current);
+    }
+
+    DecorrelatedJitterBackoffPolicy(long baseMs, long capMs, double multiplier, Collection<String> overrides, Supplier<RandomGenerator> random) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+
+        this.defaultLimits = new Limits("", baseMs, capMs);
+        this.overrides = overrides.stream()
+                .filter(StringUtils::isNotBlank)
+                .map(Limits::parse)
+                .sorted(Comparator.comparingInt((Limits limits) -> limits.prefix().length()).reversed())
+                .toList();
+        this.multiplier = multiplier;
+        this.random = random;
+    }
+
+    @Override
+    public Duration getCooldown(CallbackKey callbackKey, int republishCount) {
+        if (republishCount <= 0) {
+            return Duration.ZERO;
+        }
+
+        var limits = getLimits(callbackKey);
+        var previousDelayMs = limits.baseMs() * Math.pow(multiplier, republishCount - 1);
+        return Duration.ofMillis(nextDelayMs(limits, previousDelayMs));
+    }
+
+    @Override
+    public Duration getRetryDelay(CallbackKey callbackKey) {
+        var limits = getLimits(callbackKey);
+        var delayMs = previousRetryDelaysMs.compute(callbackKey, (key, previousDelayMs) -> nextDelayMs(limits, previousDelayMs != null ? previousDelayMs : limits.baseMs()));
+        return Duration.ofMillis(delayMs);
+    }
+
+    @Override
+    public void reset(CallbackKey callbackKey) {
+        previousRetryDelaysMs.remove(callbackKey);
+    }
+
+    private long nextDelayMs(Limits limits, double previousDelayMs) {
+        // The double is saturated at Long.MAX_VALUE if the curve grows too large
+        long upperMs = Math.min(limits.capMs(), (long) (previousDelayMs * multiplier));
+        if (upperMs <= limits.baseMs()) {
+            return Math.min(limits.baseMs(), limits.capMs());
+        }
+
+        return limits.baseMs() + random.get().nextLong(upperMs - limits.baseMs() + 1);
+    }
+
+    private Limits getLimits(CallbackKey callbackKey) {
+        var callbackUrl = Objects.toString(callbackKey.callbackUrl(), "");
+        return overrides.stream()
+                .filter(limits -> callbackUrl.startsWith(limits.prefix()))
+                .findFirst()
+                .orElse(defaultLimits);
+    }
+
+    private record Limits(String prefix, long baseMs, long capMs) {
+        static Limits parse(String override) {
+            var prefixAndLimits = StringUtils.split(override.trim(), "=", 2);
+            var limits = prefixAndLimits.length == 2 ? StringUtils.split(prefixAndLimits[1], ":") : new String[0];
+            if (limits.length != 2) {
+                throw new IllegalArgumentException("Backoff override must look like prefix=baseMs:capMs, but was " + override);
+            }
+
+            return new Limits(prefixAndLimits[0], Long.parseLong(limits[0].trim()), Long.parseLong(limits[1].trim()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.task.HealthRequestTask;
+
+import java.time.Duration;
+
+/**
+ * Waits 2 ^ republishCount minutes (max 60 minutes) before the first health request and a fixed delay between
+ * failed ones. Every endpoint gets the same delays.
+ */
+public class FixedBackoffPolicy implements BackoffPolicy {
+    private final PolarisConfig polarisConfig;
+
+    public FixedBackoffPolicy(PolarisConfig polarisConfig) {
+        this.polarisConfig = polarisConfig;
+    }
+
+    @Override
+    public Duration getCooldown(CallbackKey callbackKey, int republishCount) {
+        return HealthRequestTask.calculateCooldown(republishCount);
+    }
+
+    @Override
+    public Duration getRetryDelay(CallbackKey callbackKey) {
+        return Duration.ofMinutes(polarisConfig.getRequestDelayInbetweenMins());
+    }
+}
@@ -0,0 +1,301 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ListenableScheduledFuture;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timer that keeps its timeouts in a hashed wheel instead of a priority queue.
+ * <p>
+ * The wheel is an array of buckets, each covering one tick. A timeout is put into the bucket of its deadline and
+ * remembers how many rotations of the wheel are left until it is due. Scheduling and cancelling are O(1): callers
+ * only append to a queue and a single ticker thread moves the timeouts into or out of their bucket.
+ * </p>
+ * <p>
+ * Due timeouts are run on the given worker executor, so slow tasks never delay the ticker. Deadlines are only as
+ * exact as the tick duration, which is fine for timers in the range of minutes.
+ * </p>
+ */
+public class HashedWheelTimer {
+    // Limits the work per tick if a lot of timeouts are scheduled at once
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final int STATE_SCHEDULED = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor workerExecutor;
+    private final Queue<Timeout<?>> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<?>> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong scheduledTimeouts = new AtomicLong();
+    private final long startNanos;
+    private final Thread ticker;
+    private volatile boolean stopped;
+    private long tick;
+
+    public HashedWheelTimer(String name, Duration tickDuration, int ticksPerWheel, Executor workerExecutor) {
+        if (tickDuration.toNanos() <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new Bucket[normalizeTicksPerWheel(ticksPerWheel)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.workerExecutor = workerExecutor;
+
+        this.startNanos = System.nanoTime();
+        this.ticker = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    /**
+     * Schedules the task to run on the worker executor after the given delay.
+     *
+     * @param task  The task to run.
+     * @param delay The delay, rounded up to the next tick.
+     * @return A future that completes with the result of the task. Cancelling it removes the timeout from the wheel.
+     */
+    public <V> ListenableScheduledFuture<V> schedule(Callable<V> task, Duration delay) {
+        if (stopped) {
+            throw new RejectedExecutionException("Timer has been stopped");
+        }
+
+        var timeout = new Timeout<>(task, System.nanoTime() - startNanos + Math.max(0, delay.toNanos()));
+        scheduledTimeouts.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of timeouts that are neither expired nor cancelled.
+     */
+    public long getScheduledTimeouts() {
+        return scheduledTimeouts.get();
+    }
+
+    /**
+     * Stops the ticker and cancels all timeouts that are not due yet.
+     */
+    public void stop() {
+        stopped = true;
+        ticker.interrupt();
+    }
+
+    private void run() {
+        while (!stopped) {
+            if (!waitForNextTick()) {
+                break;
+            }
+
+            removeCancelledTimeouts();
+            transferPendingTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts();
+            tick++;
+        }
+
+        for (var bucket : wheel) {
+            bucket.cancelAll();
+        }
+        pendingTimeouts.forEach(timeout -> timeout.cancel(false));
+    }
+
+    private boolean waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos <= 0) {
+                return true;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (stopped) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout<?> timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            var timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.isDone()) {
+                // Cancelled before it reached the wheel
+                continue;
+            }
+
+            long dueTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            // Timeouts that are already overdue go into the current bucket
+            wheel[(int) (Math.max(dueTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    private static int normalizeTicksPerWheel(int ticksPerWheel) {
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+
+        // A power of two allows to find the bucket with a mask instead of a modulo
+        int normalized = 1;
+        while (normalized < ticksPerWheel) {
+            normalized <<= 1;
+        }
+        return normalized;
+    }
+
+    /**
+     * Doubly linked list of timeouts, only accessed by the ticker thread.
+     */
+    private final class Bucket {
+        private Timeout<?> head;
+        private Timeout<?> tail;
+
+        void add(Timeout<?> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout<?> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expireTimeouts() {
+            var timeout = head;
+            while (timeout != null) {
+                var next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void cancelAll() {
+            var timeout = head;
+            while (timeout != null) {
+                var next = timeout.next;
+                remove(timeout);
+                timeout.cancel(false);
+                timeout = next;
+            }
+        }
+    }
+
+    private final class Timeout<V> extends AbstractFuture<V> implements ListenableScheduledFuture<V>, Runnable {
+        private final Callable<V> task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout<?> prev;
+        private Timeout<?> next;
+        private volatile int state = STATE_SCHEDULED;
+
+        Timeout(Callable<V> task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_SCHEDULED, STATE_EXPIRED)) {
+                return;
+            }
+
+            scheduledTimeouts.decrementAndGet();
+            try {
+                workerExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+
+            try {
+                set(task.call());
+            } catch (Throwable throwable) {
+                setException(throwable);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // Like a FutureTask, an expired timeout can still be cancelled until its task has finished
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && STATE_UPDATER.compareAndSet(this, STATE_SCHEDULED, STATE_CANCELLED)) {
+                scheduledTimeouts.decrementAndGet();
+                cancelledTimeouts.add(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.service.PickingConsumerPool;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Picks a batch of events from Kafka by reading contiguous offset ranges instead of receiving every event on its own.
+ * <p>
+ * The offsets of a batch are grouped by topic partition and sorted. Offsets that lie at most
+ * {@link PolarisConfig#getPickingRangeMaxGap()} apart are read as one range with a single seek and as many polls
+ * as needed. Records inside a range that are not part of the batch are dropped right after they have been read.
+ * </p>
+ * <p>
+ * The consumers are borrowed per topic from the {@link PickingConsumerPool}.
+ * </p>
+ */
+@Slf4j
+public class OffsetRangePicker {
+    private final PickingConsumerPool pickingConsumerPool;
+    private final PolarisConfig polarisConfig;
+
+    public OffsetRangePicker(PickingConsumerPool pickingConsumerPool, PolarisConfig polarisConfig) {
+        this.pickingConsumerPool = pickingConsumerPool;
+        this.polarisConfig = polarisConfig;
+    }
+
+    /**
+     * Picks the records at the given offsets.
+     * <p>
+     * A partition that can not be read is recorded as failure in the returned {@link PickedRecords}, the other
+     * partitions of the batch are picked nevertheless.
+     * </p>
+     *
+     * @param offsetsByPartition The offsets to pick, grouped by topic partition.
+     * @return The picked records.
+     */
+    public PickedRecords pick(Map<TopicPartition, ? extends Collection<Long>> offsetsByPartition) {
+        var pickedRecords = new PickedRecords();
+        if (offsetsByPartition.isEmpty()) {
+            return pickedRecords;
+        }
+
+        var partitionsByTopic = offsetsByPartition.keySet().stream().collect(Collectors.groupingBy(TopicPartition::topic));
+        for (var entry : partitionsByTopic.entrySet()) {
+            pickTopic(entry.getKey(), entry.getValue(), offsetsByPartition, pickedRecords);
+        }
+
+        log.debug("Picked {} records from {} partitions", pickedRecords.size(), offsetsByPartition.size());
+        return pickedRecords;
+    }
+
+    private void pickTopic(String topic, List<TopicPartition> topicPartitions, Map<TopicPartition, ? extends Collection<Long>> offsetsByPartition, PickedRecords pickedRecords) {
+        Consumer<String, String> consumer;
+        try {
+            consumer = pickingConsumerPool.borrow(topic);
+        } catch (Exception e) {
+            log.error("Could not borrow consumer for picking {} partitions of topic {}", topicPartitions.size(), topic, e);
+            topicPartitions.forEach(topicPartition -> pickedRecords.addFailure(topicPartition, e));
+            return;
+        }
+
+        boolean healthy = true;
+        try {
+            for (var topicPartition : topicPartitions) {
+                healthy &= pickPartition(consumer, topicPartition, new TreeSet<>(offsetsByPartition.get(topicPartition)), pickedRecords);
+            }
+        } finally {
+            pickingConsumerPool.giveBack(topic, consumer, healthy);
+        }
+    }
+
+    /**
+     * Picks the given offsets of a single topic partition with an already created consumer.
+     * Failures are recorded in the given {@link PickedRecords} and do not affect other partitions.
+     *
+     * @param consumer       The consumer to read with. Gets (re-)assigned to the topic partition.
+     * @param topicPartition The topic partition to read from.
+     * @param offsets        The sorted offsets to pick.
+     * @param pickedRecords  The result to add the picked records to.
+     * @return {@code false} if reading the partition failed.
+     */
+    protected boolean pickPartition(Consumer<String, String> consumer, TopicPartition topicPartition, NavigableSet<Long> offsets, PickedRecords pickedRecords) {
+        try {
+            consumer.assign(List.of(topicPartition));
+
+            // Offsets at or beyond the end offset do not exist (yet), there is no need to wait for them
+            var endOffset = consumer.endOffsets(List.of(topicPartition)).getOrDefault(topicPartition, Long.MAX_VALUE);
+            var existingOffsets = offsets.headSet(endOffset, false);
+            if (existingOffsets.size() < offsets.size()) {
+                log.warn("{} offsets of partition {} are beyond the end offset {}", offsets.size() - existingOffsets.size(), topicPartition, endOffset);
+            }
+
+            for (var range : splitIntoRanges(existingOffsets)) {
+                pickRange(consumer, topicPartition, range, pickedRecords);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Could not pick {} offsets from partition {}", offsets.size(), topicPartition, e);
+            pickedRecords.addFailure(topicPartition, e);
+            return false;
+        }
+    }
+
+    /**
+     * Splits sorted offsets into ranges whose neighbouring offsets are at most {@link PolarisConfig#getPickingRangeMaxGap()} apart.
+     *
+     * @param offsets The sorted offsets.
+     * @return The ranges in ascending order.
+     */
+    protected List<NavigableSet<Long>> splitIntoRanges(NavigableSet<Long> offsets) {
+        var ranges = new ArrayList<NavigableSet<Long>>();
+        NavigableSet<Long> currentRange = null;
+        for (var offset : offsets) {
+            if (currentRange == null || offset - currentRange.last() > polarisConfig.getPickingRangeMaxGap()) {
+                currentRange = new TreeSet<>();
+                ranges.add(currentRange);
+            }
+            currentRange.add(offset);
+        }
+        return ranges;
+    }
+
+    private void pickRange(Consumer<String, String> consumer, TopicPartition topicPartition, NavigableSet<Long> range, PickedRecords pickedRecords) {
+        long lastOffset = range.last();
+        var missingOffsets = new HashSet<>(range);
+        var deadline = System.currentTimeMillis() + polarisConfig.getPickingTimeoutMs();
+
+        consumer.seek(topicPartition, range.first());
+        while (!missingOffsets.isEmpty()) {
+            var remainingMs = deadline - System.currentTimeMillis();
+            if (remainingMs <= 0) {
+                log.warn("Timeout while picking range [{}, {}] from partition {}, {} offsets are still missing", range.first(), lastOffset, topicPartition, missingOffsets.size());
+                break;
+            }
+
+            for (var consumerRecord : consumer.poll(Duration.ofMillis(remainingMs)).records(topicPartition)) {
+                // Records that are not needed by the batch are not kept
+                if (missingOffsets.remove(consumerRecord.offset())) {
+                    pickedRecords.add(consumerRecord);
+                }
+            }
+
+            // Missing offsets behind the position have been removed by compaction or retention
+            if (consumer.position(topicPartition) > lastOffset) {
+                break;
+            }
+        }
+    }
+}
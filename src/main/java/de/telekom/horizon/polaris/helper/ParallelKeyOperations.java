@@ -0,0 +1,82 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Runs a blocking operation, e.g. a call to a Hazelcast map, for many keys at once.
+ * <p>
+ * Every operation runs on its own virtual thread, so the round-trips to the cluster overlap instead of adding up.
+ * At most {@code maxConcurrency} operations are in flight at the same time. Operations run by the caller are plain
+ * map operations, so unlike entry processors they do not need the classes of Polaris on the partition owners.
+ * </p>
+ */
+@Slf4j
+public final class ParallelKeyOperations {
+    public static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+    private ParallelKeyOperations() {
+    }
+
+    /**
+     * Same as {@link #runForAll(Collection, int, Function)} with {@link #DEFAULT_MAX_CONCURRENCY}.
+     */
+    public static <K, R> Map<K, R> runForAll(Collection<K> keys, Function<K, R> operation) {
+        return runForAll(keys, DEFAULT_MAX_CONCURRENCY, operation);
+    }
+
+    /**
+     * Runs the operation for every key and waits for all of them.
+     *
+     * @param keys           The keys.
+     * @param maxConcurrency The maximum number of operations in flight at the same time.
+     * @param operation      The blocking operation for a single key.
+     * @return The result per key. Keys whose operation failed are missing, a {@code null} result is kept.
+     */
+    public static <K, R> Map<K, R> runForAll(Collection<K> keys, int maxConcurrency, Function<K, R> operation) {
+        var results = new HashMap<K, R>();
+        if (keys.isEmpty()) {
+            return results;
+        }
+
+        var inFlightOperations = new Semaphore(Math.max(1, maxConcurrency));
+        var futures = new HashMap<K, Future<R>>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var key : keys) {
+                futures.put(key, executor.submit(() -> {
+                    inFlightOperations.acquire();
+                    try {
+                        return operation.apply(key);
+                    } finally {
+                        inFlightOperations.release();
+                    }
+                }));
+            }
+
+            for (var entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.values().forEach(future -> future.cancel(true));
+                    break;
+                } catch (ExecutionException e) {
+                    log.warn("Operation for key {} failed", entry.getKey(), e.getCause());
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,36 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.model.event.SubscriptionEventMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+/**
+ * {@link SubscriptionEventMessage} whose serialized form has been patched by the {@link SubscriptionEventMessagePatcher}.
+ * <p>
+ * Only the fields needed for republishing are set. The message is produced with the patched JSON, the key and the
+ * headers of the picked record instead of being serialized again.
+ * </p>
+ */
+public class PatchedSubscriptionEventMessage extends SubscriptionEventMessage {
+    private final transient String json;
+    private final transient ConsumerRecord<String, String> consumerRecord;
+
+    public PatchedSubscriptionEventMessage(String uuid, String subscriptionId, Status status, DeliveryType deliveryType, String json, ConsumerRecord<String, String> consumerRecord) {
+        this.json = json;
+        this.consumerRecord = consumerRecord;
+        setUuid(uuid);
+        setSubscriptionId(subscriptionId);
+        setStatus(status);
+        setDeliveryType(deliveryType);
+    }
+
+    public ProducerRecord<String, String> toProducerRecord(String topic) {
+        return new ProducerRecord<>(topic, null, consumerRecord.key(), json, consumerRecord.headers());
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.exception.CouldNotPickMessageException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Result of picking a batch of offset ranges from Kafka.
+ * <p>
+ * Holds the picked {@link ConsumerRecord ConsumerRecords} per topic partition and offset, and the exception
+ * for every topic partition that could not be read at all.
+ * </p>
+ *
+ * @see OffsetRangePicker
+ */
+public class PickedRecords {
+    private final Map<TopicPartition, Map<Long, ConsumerRecord<String, String>>> records = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Exception> failures = new ConcurrentHashMap<>();
+
+    void add(ConsumerRecord<String, String> consumerRecord) {
+        var topicPartition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+        records.computeIfAbsent(topicPartition, k -> new ConcurrentHashMap<>()).put(consumerRecord.offset(), consumerRecord);
+    }
+
+    void addFailure(TopicPartition topicPartition, Exception exception) {
+        failures.put(topicPartition, exception);
+    }
+
+    void addAll(PickedRecords other) {
+        other.records.forEach((topicPartition, recordsByOffset) -> records.computeIfAbsent(topicPartition, k -> new ConcurrentHashMap<>()).putAll(recordsByOffset));
+        failures.putAll(other.failures);
+    }
+
+    /**
+     * Returns the picked record at the given coordinates.
+     *
+     * @param topic     The topic of the record.
+     * @param partition The partition of the record.
+     * @param offset    The offset of the record.
+     * @return The picked record or an empty {@link Optional} if the record was not found in the picked range.
+     * @throws CouldNotPickMessageException If the partition of the record could not be read.
+     */
+    public Optional<ConsumerRecord<String, String>> get(String topic, int partition, long offset) throws CouldNotPickMessageException {
+        var topicPartition = new TopicPartition(topic, partition);
+        var failure = failures.get(topicPartition);
+        if (failure != null) {
+            throw new CouldNotPickMessageException(failure.getMessage(), failure);
+        }
+
+        return Optional.ofNullable(records.getOrDefault(topicPartition, Map.of()).get(offset));
+    }
+
+    public int size() {
+        return records.values().stream().mapToInt(Map::size).sum();
+    }
+}
@@ -21,12 +21,17 @@ import de.telekom.horizon.polaris.exception.HorizonPolarisException;
 import de.telekom.horizon.polaris.model.PartialSubscription;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.data.domain.Slice;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.lang.Nullable;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -44,28 +49,51 @@ public class Republisher {
     protected final PolarisConfig polarisConfig;
     protected final HorizonTracer tracer;
     protected final EventWriter eventWriter;
+    protected final OffsetRangePicker offsetRangePicker;
     protected static final ObjectMapper objectMapper = new ObjectMapper();
+    protected static final SubscriptionEventMessagePatcher subscriptionEventMessagePatcher = new SubscriptionEventMessagePatcher(objectMapper);
 
     public Republisher(KafkaTemplate<String, String> kafkaTemplate,
                        PartialSubscriptionCache partialSubscriptionCache,
                        PolarisConfig polarisConfig,
                        HorizonTracer tracer,
                        EventWriter eventWriter) {
+        this(kafkaTemplate, partialSubscriptionCache, polarisConfig, tracer, eventWriter, null);
+    }
+
+    /**
+     * @param offsetRangePicker If set, the events of a batch are picked as offset ranges instead of one by one.
+     */
+    public Republisher(KafkaTemplate<String, String> kafkaTemplate,
+                       PartialSubscriptionCache partialSubscriptionCache,
+                       PolarisConfig polarisConfig,
+                       HorizonTracer tracer,
+                       EventWriter eventWriter,
+                       @Nullable OffsetRangePicker offsetRangePicker) {
         this.kafkaTemplate = kafkaTemplate;
         this.partialSubscriptionCache = partialSubscriptionCache;
         this.polarisConfig = polarisConfig;
         this.tracer = tracer;
         this.eventWriter = eventWriter;
+        this.offsetRangePicker = offsetRangePicker;
     }
 
     /**
      * Picks the consumer records from the DB and republishes them.
      * Successfully picked messages and republishes them as {@link SubscriptionEventMessage} with the status {@link Status#PROCESSED}.
      * Unsuccessful picked messages are send as {@link StatusMessage} with the status {@link Status#FAILED}
+     * <p>
+     * With {@link PolarisConfig#isRepublishingAsyncEnabled()} this waits until all messages of the batch are acknowledged.
+     * </p>
      *
      * @return The {@link MessageStateMongoDocument MessageStateMongoDocuments} whereof the EventMessage could not get picked from Kafka
      */
     public void pickAndRepublishBatch(Slice<MessageStateMongoDocument> messageStates) {
+        if (polarisConfig.isRepublishingAsyncEnabled()) {
+            awaitRepublished(pickAndRepublishBatchAsync(messageStates));
+            return;
+        }
+
         log.info("Picking old messages & generating the producer records for {} event/message states", messageStates.getNumberOfElements());
         log.debug("messageStates: {}", messageStates.getContent());
         if(messageStates.getNumberOfElements() <= 0) { return; }
@@ -79,7 +107,7 @@ public class Republisher {
         if(!identifiableMessages.isEmpty()) {
             for(var identifiableMessage: identifiableMessages) {
                 try {
-                    eventWriter.send(uuidToTopic.getOrDefault(identifiableMessage.getUuid(), EventRetentionTime.DEFAULT.getTopic()), identifiableMessage);
+                    send(uuidToTopic.getOrDefault(identifiableMessage.getUuid(), EventRetentionTime.DEFAULT.getTopic()), identifiableMessage);
                 } catch (JsonProcessingException e) {
                     log.error("Could not publish message {}", identifiableMessage);
                 }
@@ -88,6 +116,93 @@ public class Republisher {
         log.info("Republished {} identifiableMessages", identifiableMessages.size());
     }
 
+    /**
+     * Picks the consumer records from the DB and sends all of them without waiting for the acknowledgements.
+     * <p>
+     * Every message that could not be sent or was not acknowledged is logged on its own.
+     * Use {@link #awaitRepublished(CompletableFuture)} to wait for the returned future, picking the next batch in
+     * the meantime is fine.
+     * </p>
+     *
+     * @param messageStates The message states of the events to republish.
+     * @return A future that completes when every message of the batch is either acknowledged or failed.
+     */
+    public CompletableFuture<Void> pickAndRepublishBatchAsync(Slice<MessageStateMongoDocument> messageStates) {
+        return republishBatchAsync(messageStates, pickBatch(messageStates));
+    }
+
+    /**
+     * Picks the events of the given message states from Kafka, see {@link #pickMessages(Slice)}.
+     *
+     * @param messageStates The message states of the events to pick.
+     * @return The messages to republish, in the order of the message states.
+     */
+    public List<IdentifiableMessage> pickBatch(Slice<MessageStateMongoDocument> messageStates) {
+        log.info("Picking old messages & generating the producer records for {} event/message states", messageStates.getNumberOfElements());
+        log.debug("messageStates: {}", messageStates.getContent());
+        if(messageStates.getNumberOfElements() <= 0) { return List.of(); }
+
+        return pickMessages(messageStates);
+    }
+
+    /**
+     * Sends already picked messages without waiting for the acknowledgements.
+     *
+     * @param messageStates        The message states the messages have been picked for.
+     * @param identifiableMessages The messages returned by {@link #pickBatch(Slice)}.
+     * @return A future that completes when every message of the batch is either acknowledged or failed.
+     * @see #pickAndRepublishBatchAsync(Slice)
+     */
+    public CompletableFuture<Void> republishBatchAsync(Slice<MessageStateMongoDocument> messageStates, List<IdentifiableMessage> identifiableMessages) {
+        if (identifiableMessages.isEmpty()) { return CompletableFuture.completedFuture(null); }
+
+        Map<String, String> uuidToTopic = messageStates.stream().collect(Collectors.toMap(MessageStateMongoDocument::getUuid, MessageStateMongoDocument::getTopic));
+
+        log.info("Republishing {} identifiableMessages asynchronously", identifiableMessages.size());
+        log.debug("identifiableMessages: {}", identifiableMessages);
+        var failedMessages = new AtomicInteger();
+        var futures = new ArrayList<CompletableFuture<?>>(identifiableMessages.size());
+        for (var identifiableMessage : identifiableMessages) {
+            var topic = uuidToTopic.getOrDefault(identifiableMessage.getUuid(), EventRetentionTime.DEFAULT.getTopic());
+            try {
+                futures.add(send(topic, identifiableMessage).whenComplete((sendResult, exception) -> {
+                    if (exception != null) {
+                        failedMessages.incrementAndGet();
+                        log.error("Could not publish message {} to topic {}", identifiableMessage.getUuid(), topic, exception);
+                    }
+                }));
+            } catch (Exception e) {
+                failedMessages.incrementAndGet();
+                log.error("Could not publish message {}", identifiableMessage, e);
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .handle((unused, exception) -> {
+                    log.info("Republished {} identifiableMessages, {} failed", identifiableMessages.size() - failedMessages.get(), failedMessages.get());
+                    return null;
+                });
+    }
+
+    /**
+     * Waits up to {@link PolarisConfig#getRepublishingTimeoutMs()} for a batch sent with
+     * {@link #pickAndRepublishBatchAsync(Slice)} to be acknowledged.
+     *
+     * @param republished The future returned by {@link #pickAndRepublishBatchAsync(Slice)}.
+     */
+    public void awaitRepublished(CompletableFuture<Void> republished) {
+        try {
+            republished.get(polarisConfig.getRepublishingTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.error("Republished messages were not acknowledged within {} ms", polarisConfig.getRepublishingTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting for republished messages to be acknowledged", e);
+        } catch (ExecutionException e) {
+            log.error("Unexpected error while waiting for republished messages to be acknowledged", e);
+        }
+    }
+
     /**
      * Picks messages from Kafka based on information retrieved from the database and returns a list of {@link IdentifiableMessage}s.
      * <p>
@@ -98,17 +213,23 @@ public class Republisher {
      * If an error occurs during the picking or processing of a message, a new identifiable message with a FAILED status
      * is created, containing information about the error.
      * </p>
+     * <p>
+     * If an {@link OffsetRangePicker} is set, all events of the batch are picked upfront as offset ranges.
+     * With {@link PolarisConfig#isPickingParallelEnabled()} the partitions are picked at the same time.
+     * The returned messages keep the order of the given message states in any case.
+     * </p>
      *
      * @param messageStates The message states containing information about the events to be picked and republished.
      * @return The list of {@link IdentifiableMessage identifiable messages} representing the picked and processed events.
      */
     protected List<IdentifiableMessage> pickMessages(Slice<MessageStateMongoDocument> messageStates) {
         List<IdentifiableMessage> identifiableMessages = new ArrayList<>();
+        var oPickedRecords = pickRanges(messageStates);
         for (var messageState : messageStates) {
             log.debug("messageState: {}", messageState);
             var subscriptionId = messageState.getSubscriptionId();
             var coords = messageState.getCoordinates();
-            var topic = Objects.requireNonNullElse(messageState.getEventRetentionTime(), EventRetentionTime.DEFAULT).getTopic();
+            var topic = getTopic(messageState);
 
             IdentifiableMessage identifiableMessage = null;
 
@@ -120,14 +241,17 @@ public class Republisher {
             }
 
             try {
-                var oConsumerRecord = pick(topic, coords.partition(), coords.offset());
+                var oConsumerRecord = oPickedRecords.isPresent()
+                        ? oPickedRecords.get().get(topic, coords.partition(), coords.offset())
+                        : pick(topic, coords.partition(), coords.offset());
                 if(oConsumerRecord.isEmpty()) {
                     log.warn("Could not pick event {}. Picked consumer record is null!", generateEventLogMessageText(messageState.getEvent().getId(), topic, coords.offset(), coords.partition()));
 
                     identifiableMessage = new StatusMessage(messageState.getUuid(), messageState.getEvent(), subscriptionId, Status.FAILED, messageState.getDeliveryType()).withThrowable(new CouldNotPickMessageException("Picked consumer record is null!"));
                 } else {
-                    var subscriptionEventMessage = deserializeSubscriptionEventMessage(oConsumerRecord.get().value());
-                    identifiableMessage = resetSubscriptionEventMessage(subscriptionEventMessage, messageState, oConsumerRecord.get());
+                    identifiableMessage = polarisConfig.isRepublishingRawPatchEnabled()
+                            ? patchSubscriptionEventMessage(messageState, oConsumerRecord.get())
+                            : resetSubscriptionEventMessage(deserializeSubscriptionEventMessage(oConsumerRecord.get().value()), messageState, oConsumerRecord.get());
                 }
             } catch (HorizonPolarisException exception) {
                 log.error("Could not pick event {}", generateEventLogMessageText(messageState.getEvent().getId(), topic, coords.offset(), coords.partition()), exception);
@@ -177,6 +301,46 @@ public class Republisher {
         return subscriptionEventMessage;
     }
 
+    /**
+     * Same as {@link #resetSubscriptionEventMessage(SubscriptionEventMessage, MessageStateMongoDocument, ConsumerRecord)},
+     * but patches the status and delivery type in the JSON of the {@link ConsumerRecord} instead of binding it.
+     * Falls back to binding the whole message if the JSON does not have the expected structure.
+     *
+     * @param messageState   The MessageStateMongoDocument containing information about the event.
+     * @param consumerRecord The ConsumerRecord containing information about the picked event.
+     * @return The patched SubscriptionEventMessage.
+     */
+    private SubscriptionEventMessage patchSubscriptionEventMessage(MessageStateMongoDocument messageState, ConsumerRecord<String, String> consumerRecord) throws JsonProcessingException {
+        var json = consumerRecord.value();
+        var oFields = subscriptionEventMessagePatcher.readFields(json);
+        if (oFields.isPresent()) {
+            var fields = oFields.get();
+            var oDeliveryType = partialSubscriptionCache.get(fields.subscriptionId()).map(PartialSubscription::deliveryType);
+            var oPatchedJson = subscriptionEventMessagePatcher.patch(json, Status.PROCESSED, oDeliveryType.orElse(null));
+            if (oPatchedJson.isPresent()) {
+                var republishSpan = tracer.startSpanFromKafkaHeaders("picked message from kafka", consumerRecord.headers());
+                republishSpan.finish();
+
+                oDeliveryType.ifPresent(messageState::setDeliveryType);
+                return new PatchedSubscriptionEventMessage(fields.uuid(), fields.subscriptionId(), Status.PROCESSED, oDeliveryType.orElse(fields.deliveryType()), oPatchedJson.get(), consumerRecord);
+            }
+        }
+
+        log.debug("Unexpected structure of SubscriptionEventMessage {}, falling back to full binding", messageState.getUuid());
+        return resetSubscriptionEventMessage(deserializeSubscriptionEventMessage(json), messageState, consumerRecord);
+    }
+
+    /**
+     * Sends the message with the {@link EventWriter}. A {@link PatchedSubscriptionEventMessage} is sent as it is,
+     * without serializing it again.
+     */
+    private CompletableFuture<SendResult<String, String>> send(String topic, IdentifiableMessage identifiableMessage) throws JsonProcessingException {
+        if (identifiableMessage instanceof PatchedSubscriptionEventMessage patchedSubscriptionEventMessage) {
+            return kafkaTemplate.send(patchedSubscriptionEventMessage.toProducerRecord(topic));
+        }
+        return eventWriter.send(topic, identifiableMessage);
+    }
+
     private String generateEventLogMessageText(String eventId, String topic, long offset, int partition) {
         return String.format("with id %s sitting at offset (%d) | partition (%d) in topic %s", eventId, offset, partition, topic);
     }
@@ -185,6 +349,64 @@ public class Republisher {
         return objectMapper.readValue(json, SubscriptionEventMessage.class);
     }
 
+    private Optional<PickedRecords> pickRanges(Slice<MessageStateMongoDocument> messageStates) {
+        if (offsetRangePicker == null) {
+            return Optional.empty();
+        }
+
+        Map<TopicPartition, List<Long>> offsetsByPartition = messageStates.stream()
+                .filter(messageState -> messageState.getCoordinates() != null)
+                .collect(Collectors.groupingBy(
+                        messageState -> new TopicPartition(getTopic(messageState), messageState.getCoordinates().partition()),
+                        Collectors.mapping(messageState -> (long) messageState.getCoordinates().offset(), Collectors.toList())));
+
+        if (!polarisConfig.isPickingParallelEnabled() || offsetsByPartition.size() <= 1) {
+            return Optional.of(offsetRangePicker.pick(offsetsByPartition));
+        }
+
+        return Optional.of(pickPartitionsInParallel(offsetsByPartition));
+    }
+
+    /**
+     * Picks every topic partition on its own virtual thread.
+     * At most {@link PolarisConfig#getPickingParallelMaxPartitions()} partitions are picked at the same time.
+     */
+    private PickedRecords pickPartitionsInParallel(Map<TopicPartition, List<Long>> offsetsByPartition) {
+        var pickedRecords = new PickedRecords();
+        var inFlightPartitions = new Semaphore(Math.max(1, polarisConfig.getPickingParallelMaxPartitions()));
+        var futures = new HashMap<TopicPartition, Future<PickedRecords>>();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var entry : offsetsByPartition.entrySet()) {
+                futures.put(entry.getKey(), executor.submit(() -> {
+                    inFlightPartitions.acquire();
+                    try {
+                        return offsetRangePicker.pick(Map.of(entry.getKey(), entry.getValue()));
+                    } finally {
+                        inFlightPartitions.release();
+                    }
+                }));
+            }
+
+            for (var entry : futures.entrySet()) {
+                try {
+                    pickedRecords.addAll(entry.getValue().get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    pickedRecords.addFailure(entry.getKey(), e);
+                } catch (ExecutionException e) {
+                    pickedRecords.addFailure(entry.getKey(), e);
+                }
+            }
+        }
+
+        return pickedRecords;
+    }
+
+    private String getTopic(MessageStateMongoDocument messageState) {
+        return Objects.requireNonNullElse(messageState.getEventRetentionTime(), EventRetentionTime.DEFAULT).getTopic();
+    }
+
     private Optional<ConsumerRecord<String, String>> pick(String topic, int partition, long offset) throws HorizonPolarisException {
         try {
             return Optional.ofNullable(kafkaTemplate.receive(topic, partition, offset, Duration.of(5000, ChronoUnit.MILLIS)));
@@ -0,0 +1,147 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.model.event.SubscriptionEventMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Optional;
+
+/**
+ * Rewrites the serialized JSON of a {@link SubscriptionEventMessage} on token level.
+ * <p>
+ * Republishing only changes the status and the delivery type of a picked message. Instead of binding the whole
+ * payload to a {@link SubscriptionEventMessage} and serializing it again, the tokens are copied as they are and only
+ * the top-level {@code status} and {@code deliveryType} values are replaced.
+ * </p>
+ * <p>
+ * All methods return an empty {@link Optional} if the JSON does not have the expected structure, so that the
+ * caller can fall back to full binding.
+ * </p>
+ */
+@Slf4j
+public class SubscriptionEventMessagePatcher {
+    private static final String FIELD_UUID = "uuid";
+    private static final String FIELD_SUBSCRIPTION_ID = "subscriptionId";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_DELIVERY_TYPE = "deliveryType";
+
+    private final ObjectMapper objectMapper;
+
+    public SubscriptionEventMessagePatcher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Top-level fields of a serialized {@link SubscriptionEventMessage} that are needed for republishing.
+     */
+    public record Fields(String uuid, String subscriptionId, DeliveryType deliveryType) { }
+
+    /**
+     * Reads the uuid, subscription id and delivery type without binding the rest of the message.
+     *
+     * @param json The serialized {@link SubscriptionEventMessage}.
+     * @return The fields or an empty {@link Optional} if one of them is missing.
+     */
+    public Optional<Fields> readFields(String json) {
+        try (var parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+
+            String uuid = null;
+            String subscriptionId = null;
+            DeliveryType deliveryType = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.currentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case FIELD_UUID -> uuid = readText(parser);
+                    case FIELD_SUBSCRIPTION_ID -> subscriptionId = readText(parser);
+                    case FIELD_DELIVERY_TYPE -> deliveryType = parser.currentToken() == JsonToken.VALUE_STRING ? parser.readValueAs(DeliveryType.class) : null;
+                    default -> parser.skipChildren();
+                }
+
+                if (uuid != null && subscriptionId != null && deliveryType != null) {
+                    return Optional.of(new Fields(uuid, subscriptionId, deliveryType));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Could not read fields of SubscriptionEventMessage", e);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Copies the given JSON and replaces the top-level status and delivery type.
+     *
+     * @param json         The serialized {@link SubscriptionEventMessage}.
+     * @param status       The new status.
+     * @param deliveryType The new delivery type or {@code null} to keep the current one.
+     * @return The patched JSON or an empty {@link Optional} if the status or delivery type field is missing or not a scalar value.
+     */
+    public Optional<String> patch(String json, Status status, @Nullable DeliveryType deliveryType) {
+        var writer = new StringWriter(json.length() + 16);
+        boolean statusPatched = false;
+        boolean deliveryTypeFound = false;
+
+        try (var parser = objectMapper.createParser(json); var generator = objectMapper.createGenerator(writer)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.currentName();
+                generator.copyCurrentEvent(parser);
+                parser.nextToken();
+
+                if (FIELD_STATUS.equals(fieldName) && parser.currentToken().isScalarValue()) {
+                    generator.writeObject(status);
+                    statusPatched = true;
+                } else if (FIELD_DELIVERY_TYPE.equals(fieldName) && parser.currentToken().isScalarValue()) {
+                    if (deliveryType != null) {
+                        generator.writeObject(deliveryType);
+                    } else {
+                        generator.copyCurrentEvent(parser);
+                    }
+                    deliveryTypeFound = true;
+                } else {
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                return Optional.empty();
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            log.debug("Could not patch SubscriptionEventMessage", e);
+            return Optional.empty();
+        }
+
+        if (!statusPatched || !deliveryTypeFound) {
+            return Optional.empty();
+        }
+
+        return Optional.of(writer.toString());
+    }
+
+    private String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+}
@@ -0,0 +1,14 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.model;
+
+import java.util.Set;
+
+/**
+ * Published when this pod could not renew the claim leases of the given subscription IDs,
+ * so another pod may have claimed them in the meantime.
+ */
+public record ClaimsLostEvent(Set<String> subscriptionIds) {
+}
@@ -0,0 +1,20 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.model;
+
+import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
+
+import java.util.Date;
+
+/**
+ * Position of a keyset scan over message states sorted by timestamp and id.
+ * The next page of the scan starts after the document at this position.
+ */
+public record KeysetPosition(Date timestamp, String id) {
+
+    public static KeysetPosition of(MessageStateMongoDocument messageState) {
+        return new KeysetPosition(messageState.getTimestamp(), messageState.getUuid());
+    }
+}
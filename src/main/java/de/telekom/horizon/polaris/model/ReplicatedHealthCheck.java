@@ -0,0 +1,45 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.model;
+
+import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerHealthCheck;
+import de.telekom.horizon.polaris.cache.DistributedHealthCheckCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.http.HttpMethod;
+
+import java.io.Serializable;
+import java.util.HashSet;
+
+/**
+ * Lives in the {@link DistributedHealthCheckCache} as value.
+ * <br>
+ * Snapshot of a {@link HealthCheckData} together with the member that runs the health request task for it and the
+ * time the next health request is due. Another pod uses it to continue the health request task of a departed pod.
+ */
+@ToString
+@Getter
+@AllArgsConstructor
+public class ReplicatedHealthCheck implements Serializable {
+    @Setter
+    private String ownerUuid;
+    private String callbackUrl;
+    private String httpMethod;
+    private HashSet<String> subscriptionIds;
+    private int republishCount;
+    private CircuitBreakerHealthCheck lastHealthCheckOrNull;
+    private long nextDueAtMs;
+
+    public static ReplicatedHealthCheck of(String ownerUuid, CallbackKey key, HealthCheckData healthCheckData, long nextDueAtMs) {
+        return new ReplicatedHealthCheck(ownerUuid, key.callbackUrl(), key.httpMethod().name(), new HashSet<>(healthCheckData.getSubscriptionIds()),
+                healthCheckData.getRepublishCount(), healthCheckData.getLastHealthCheckOrNull(), nextDueAtMs);
+    }
+
+    public CallbackKey getCallbackKey() {
+        return new CallbackKey(callbackUrl, HttpMethod.valueOf(httpMethod));
+    }
+}
@@ -0,0 +1,27 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.model;
+
+import de.telekom.horizon.polaris.service.SubscriptionRepublishingHolder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.HashSet;
+
+/**
+ * Lives in the distributed map of the {@link SubscriptionRepublishingHolder} as value.
+ * <br>
+ * Contains the member that currently republishes a callback endpoint and the subscription ids of the
+ * republish requests that arrived in the meantime and are republished in one follow-up run.
+ */
+@ToString
+@Getter
+@AllArgsConstructor
+public class RepublishingState implements Serializable {
+    private String ownerUuid;
+    private HashSet<String> pendingSubscriptionIds;
+}
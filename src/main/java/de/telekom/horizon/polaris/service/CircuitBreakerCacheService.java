@@ -4,32 +4,85 @@
 
 package de.telekom.horizon.polaris.service;
 
+import com.hazelcast.config.IndexType;
+import com.hazelcast.core.DistributedObject;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.map.QueryCache;
+import com.hazelcast.map.listener.EntryAddedListener;
 import com.hazelcast.query.PagingPredicate;
+import com.hazelcast.query.Predicates;
 import de.telekom.eni.pandora.horizon.cache.service.CacheService;
+import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerHealthCheck;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerMessage;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
-import lombok.AllArgsConstructor;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.ParallelKeyOperations;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static com.hazelcast.query.Predicates.equal;
 import static com.hazelcast.query.Predicates.pagingPredicate;
 
 /**
  * Service for interacting with the circuit breaker {@link CacheService}.
+ * <p>
+ * The query cache and the atomic updates work on the Hazelcast map behind the {@link CacheService}. The atomic updates
+ * only use plain map operations under the key lock, so they also work if the partition owners are members of other
+ * Horizon components, see {@link PolarisConfig#isCircuitBreakerAtomicUpdatesEnabled()}.
+ * </p>
  */
 @Slf4j
 @Component
-@AllArgsConstructor
 public class CircuitBreakerCacheService {
+    static final String QUERY_CACHE_NAME = "polaris-active-circuit-breakers";
 
     private final CacheService circuitBreakerCache;
 
     private final WorkerService workerService;
 
+    private final QueryCache<String, CircuitBreakerMessage> activeCircuitBreakers;
+
+    private final IMap<String, CircuitBreakerMessage> circuitBreakerMap;
+
+    private final boolean atomicUpdatesEnabled;
+
+    @Autowired
+    public CircuitBreakerCacheService(CacheService circuitBreakerCache, WorkerService workerService, HazelcastInstance hazelcastInstance, PolarisConfig polarisConfig) {
+        this(circuitBreakerCache, workerService, hazelcastInstance, polarisConfig, getMapName(circuitBreakerCache));
+    }
+
+    CircuitBreakerCacheService(CacheService circuitBreakerCache, WorkerService workerService, HazelcastInstance hazelcastInstance, PolarisConfig polarisConfig, String circuitBreakerMapName) {
+        this.circuitBreakerCache = circuitBreakerCache;
+        this.workerService = workerService;
+        this.circuitBreakerMap = hazelcastInstance.getMap(circuitBreakerMapName);
+        this.atomicUpdatesEnabled = polarisConfig.isCircuitBreakerAtomicUpdatesEnabled();
+
+        if (polarisConfig.isCircuitBreakerQueryCacheEnabled()) {
+            // Continuously updated local view of the circuit breakers Polaris works on
+            this.activeCircuitBreakers = circuitBreakerMap.getQueryCache(QUERY_CACHE_NAME, Predicates.in("status", CircuitBreakerStatus.OPEN, CircuitBreakerStatus.CHECKING, CircuitBreakerStatus.REPUBLISHING), true);
+            this.activeCircuitBreakers.addIndex(IndexType.HASH, "status");
+        } else {
+            this.activeCircuitBreakers = null;
+        }
+    }
+
     /**
      * Gets all {@link CircuitBreakerMessage}s from the cache.
      *
@@ -92,6 +145,45 @@ public class CircuitBreakerCacheService {
         return circuitBreakerCache.getWithQuery(pagingPredicate);
     }
 
+    /**
+     * Gets all {@link CircuitBreakerMessage}s with a specific status from the local query cache.
+     *
+     * @param status The circuit breaker status, one of OPEN, CHECKING or REPUBLISHING.
+     * @return A list of {@link CircuitBreakerMessage}s with the specified status.
+     * @throws IllegalStateException If the query cache is not enabled.
+     */
+    public List<CircuitBreakerMessage> getCircuitBreakerMessagesFromQueryCache(CircuitBreakerStatus status) {
+        return new ArrayList<>(getActiveCircuitBreakers().values(Predicates.equal("status", status)));
+    }
+
+    /**
+     * Gets all OPEN, CHECKING and REPUBLISHING {@link CircuitBreakerMessage}s from the local query cache.
+     *
+     * @return A list of {@link CircuitBreakerMessage}s.
+     * @throws IllegalStateException If the query cache is not enabled.
+     */
+    public List<CircuitBreakerMessage> getCircuitBreakerMessagesFromQueryCache() {
+        return new ArrayList<>(getActiveCircuitBreakers().values());
+    }
+
+    /**
+     * Registers a listener that is called for every {@link CircuitBreakerMessage} that enters the local query cache,
+     * e.g. because Comet opened a circuit breaker.
+     *
+     * @param listener The listener, called on a Hazelcast event thread.
+     * @throws IllegalStateException If the query cache is not enabled.
+     */
+    public void addCircuitBreakerAddedListener(Consumer<CircuitBreakerMessage> listener) {
+        getActiveCircuitBreakers().addEntryListener((EntryAddedListener<String, CircuitBreakerMessage>) event -> listener.accept(event.getValue()), true);
+    }
+
+    private QueryCache<String, CircuitBreakerMessage> getActiveCircuitBreakers() {
+        if (activeCircuitBreakers == null) {
+            throw new IllegalStateException("Circuit breaker query cache is not enabled");
+        }
+        return activeCircuitBreakers;
+    }
+
     /**
      * Closes the circuit breaker for the specified subscription ID.
      *
@@ -108,6 +200,11 @@ public class CircuitBreakerCacheService {
      * @param subscriptionIds The list of subscription IDs.
      */
     public void closeCircuitBreakersIfRepublishing(List<String> subscriptionIds) {
+        if (atomicUpdatesEnabled) {
+            closeIfRepublishing(subscriptionIds);
+            return;
+        }
+
         for (var subscriptionId: subscriptionIds) {
             var result = circuitBreakerCache.get(subscriptionId);
             if (result.isEmpty())
@@ -136,6 +233,11 @@ public class CircuitBreakerCacheService {
      * @param status         The new circuit breaker status.
      */
     public void updateCircuitBreakerStatus(String subscriptionId, CircuitBreakerStatus status) {
+        if (atomicUpdatesEnabled) {
+            compareAndSetStatus(subscriptionId, null, status);
+            return;
+        }
+
         var result = circuitBreakerCache.get(subscriptionId);
         if (result.isPresent()) {
             var circuitBreakerMessage = (CircuitBreakerMessage) result.get();
@@ -143,4 +245,170 @@ public class CircuitBreakerCacheService {
             circuitBreakerCache.update(subscriptionId, circuitBreakerMessage);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Atomically sets the status of the circuit breaker if it has the expected status, see {@link #updateLocked(String, Predicate)}.
+     *
+     * @param subscriptionId The subscription ID.
+     * @param expectedStatus The expected current status or {@code null} to accept any status.
+     * @param newStatus      The new circuit breaker status.
+     * @return True if the status has been set, false if there is no circuit breaker or its status did not match.
+     */
+    public boolean compareAndSetStatus(String subscriptionId, @Nullable CircuitBreakerStatus expectedStatus, CircuitBreakerStatus newStatus) {
+        return updateLocked(subscriptionId, circuitBreakerMessage -> {
+            if (expectedStatus != null && !expectedStatus.equals(circuitBreakerMessage.getStatus())) {
+                return false;
+            }
+
+            circuitBreakerMessage.setStatus(newStatus);
+            return true;
+        });
+    }
+
+    /**
+     * Multi-key variant of {@link #compareAndSetStatus(String, CircuitBreakerStatus, CircuitBreakerStatus)}.
+     * The circuit breakers are updated in parallel, see {@link ParallelKeyOperations}.
+     *
+     * @return The subscription IDs whose status has been set.
+     */
+    public Set<String> compareAndSetStatus(Collection<String> subscriptionIds, @Nullable CircuitBreakerStatus expectedStatus, CircuitBreakerStatus newStatus) {
+        return successfulKeys(ParallelKeyOperations.runForAll(new HashSet<>(subscriptionIds), subscriptionId -> compareAndSetStatus(subscriptionId, expectedStatus, newStatus)));
+    }
+
+    /**
+     * Atomically sets the last health check of the circuit breakers, see {@link #updateLocked(String, Predicate)}.
+     * The circuit breakers are updated in parallel, see {@link ParallelKeyOperations}.
+     *
+     * @param subscriptionIds The subscription IDs.
+     * @param lastHealthCheck The last health check.
+     * @return The subscription IDs of the updated circuit breakers.
+     */
+    public Set<String> setLastHealthCheck(Collection<String> subscriptionIds, @Nullable CircuitBreakerHealthCheck lastHealthCheck) {
+        return successfulKeys(ParallelKeyOperations.runForAll(new HashSet<>(subscriptionIds), subscriptionId -> setLastHealthCheck(subscriptionId, lastHealthCheck)));
+    }
+
+    /**
+     * Single-key variant of {@link #setLastHealthCheck(Collection, CircuitBreakerHealthCheck)}.
+     *
+     * @return True if the circuit breaker has been updated, false if there is no circuit breaker.
+     */
+    public boolean setLastHealthCheck(String subscriptionId, @Nullable CircuitBreakerHealthCheck lastHealthCheck) {
+        return updateLocked(subscriptionId, circuitBreakerMessage -> {
+            circuitBreakerMessage.setLastHealthCheck(lastHealthCheck);
+            return true;
+        });
+    }
+
+    /**
+     * Atomically closes the circuit breakers if they are in the REPUBLISHING status and removes the claims of the
+     * closed ones. The circuit breakers are closed in parallel, see {@link ParallelKeyOperations}.
+     *
+     * @param subscriptionIds The subscription IDs.
+     * @return The subscription IDs of the closed circuit breakers.
+     */
+    public Set<String> closeIfRepublishing(Collection<String> subscriptionIds) {
+        return successfulKeys(ParallelKeyOperations.runForAll(new HashSet<>(subscriptionIds), this::closeIfRepublishing));
+    }
+
+    /**
+     * Single-key variant of {@link #closeIfRepublishing(Collection)}.
+     *
+     * @return True if the circuit breaker has been closed.
+     */
+    public boolean closeIfRepublishing(String subscriptionId) {
+        boolean closed;
+        circuitBreakerMap.lock(subscriptionId);
+        try {
+            var circuitBreakerMessage = circuitBreakerMap.get(subscriptionId);
+            closed = circuitBreakerMessage != null && CircuitBreakerStatus.REPUBLISHING.equals(circuitBreakerMessage.getStatus());
+            if (closed) {
+                circuitBreakerMap.delete(subscriptionId);
+            }
+        } finally {
+            circuitBreakerMap.unlock(subscriptionId);
+        }
+
+        if (closed) {
+            workerService.removeClaim(subscriptionId);
+        }
+        return closed;
+    }
+
+    /**
+     * Updates the circuit breaker while holding the lock of its key in the circuit breaker map.
+     * <p>
+     * Writes of other members to a locked key wait for the lock, so the update is atomic like an entry processor.
+     * Unlike an entry processor, it only needs plain map operations on the partition owner, which may be a member
+     * of another Horizon component without the classes of Polaris.
+     * </p>
+     *
+     * @param subscriptionId The subscription ID.
+     * @param update         Updates the circuit breaker message and returns whether it should be written back.
+     * @return True if the circuit breaker has been updated, false if there is no circuit breaker or the update was skipped.
+     */
+    private boolean updateLocked(String subscriptionId, Predicate<CircuitBreakerMessage> update) {
+        circuitBreakerMap.lock(subscriptionId);
+        try {
+            var circuitBreakerMessage = circuitBreakerMap.get(subscriptionId);
+            if (circuitBreakerMessage == null || !update.test(circuitBreakerMessage)) {
+                return false;
+            }
+
+            circuitBreakerMap.set(subscriptionId, circuitBreakerMessage);
+            return true;
+        } finally {
+            circuitBreakerMap.unlock(subscriptionId);
+        }
+    }
+
+    private static Set<String> successfulKeys(Map<String, Boolean> results) {
+        return results.entrySet().stream()
+                .filter(result -> Boolean.TRUE.equals(result.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Gets the name of the Hazelcast map behind the circuit breaker {@link CacheService}.
+     * <p>
+     * The {@link CacheService} of pandora does not expose its map, so the name is read from its fields. This keeps the
+     * query cache and the atomic updates on the map that Comet and the {@link CacheService} use, instead of configuring
+     * its name a second time.
+     * </p>
+     *
+     * @param cacheService The circuit breaker cache.
+     * @return The name of the map.
+     * @throws IllegalStateException If the cache holds neither a Hazelcast map nor its name.
+     */
+    static String getMapName(CacheService cacheService) {
+        String mapName = null;
+        for (Class<?> type = cacheService.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (var field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+
+                var value = readField(field, cacheService);
+                if (value instanceof DistributedObject distributedObject) {
+                    return distributedObject.getName();
+                }
+                if (mapName == null && value instanceof String name && field.getName().toLowerCase(Locale.ROOT).contains("name")) {
+                    mapName = name;
+                }
+            }
+        }
+
+        if (mapName == null) {
+            throw new IllegalStateException("Could not determine the name of the Hazelcast map behind the circuit breaker cache");
+        }
+        return mapName;
+    }
+
+    private static Object readField(Field field, Object target) {
+        try {
+            return field.trySetAccessible() ? field.get(target) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.service;
+
+import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.KeysetPosition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Queries message states with a keyset (seek) scan instead of offset based paging.
+ * <p>
+ * Every page is sorted by {@code timestamp} and {@code _id} and continues right after the last document of the
+ * previous page. Documents that change while the scan is running do not shift the following pages, and MongoDB
+ * never has to skip over the documents of earlier pages.
+ * </p>
+ * <p>
+ * With {@link PolarisConfig#isRepublishingProjectionEnabled()} only the fields needed for republishing are loaded,
+ * all other fields of the returned {@link MessageStateMongoDocument MessageStateMongoDocuments} are {@code null}.
+ * </p>
+ */
+@Slf4j
+@Service
+public class MessageStateQueryService {
+    static final String FIELD_ID = "_id";
+    static final String FIELD_TIMESTAMP = "timestamp";
+    static final String FIELD_STATUS = "status";
+    static final String FIELD_SUBSCRIPTION_ID = "subscriptionId";
+    static final String FIELD_DELIVERY_TYPE = "deliveryType";
+    static final String FIELD_MODIFIED = "modified";
+
+    /**
+     * The fields that are needed to pick and republish an event: id, coordinates, status, delivery type,
+     * subscription id, event id, event retention time (and with that the topic) and timestamp.
+     */
+    static final String[] REPUBLISH_FIELDS = {FIELD_ID, "coordinates", FIELD_STATUS, FIELD_DELIVERY_TYPE, FIELD_SUBSCRIPTION_ID, "event.id", "eventRetentionTime", FIELD_TIMESTAMP};
+    static final String FIELD_ERROR_TYPE = "error.type";
+
+    private final MongoTemplate mongoTemplate;
+    private final PolarisConfig polarisConfig;
+
+    public MessageStateQueryService(MongoTemplate mongoTemplate, PolarisConfig polarisConfig) {
+        this.mongoTemplate = mongoTemplate;
+        this.polarisConfig = polarisConfig;
+    }
+
+    /**
+     * Criteria for the message states of the given subscriptions that are WAITING or FAILED with a callback
+     * exception, like {@code MessageStateMongoRepo#findByStatusWaitingOrWithCallbackExceptionAndSubscriptionIdsAndTimestampLessThanEqual}.
+     *
+     * @param subscriptionIds        The subscription ids of the message states.
+     * @param timestampLessThanEqual The maximum timestamp of the message states.
+     * @return The criteria.
+     */
+    public Criteria waitingOrFailedWithCallbackException(List<String> subscriptionIds, Date timestampLessThanEqual) {
+        return new Criteria().andOperator(
+                Criteria.where(FIELD_SUBSCRIPTION_ID).in(subscriptionIds),
+                Criteria.where(FIELD_TIMESTAMP).lte(timestampLessThanEqual),
+                new Criteria().orOperator(
+                        Criteria.where(FIELD_STATUS).is(Status.WAITING),
+                        Criteria.where(FIELD_STATUS).is(Status.FAILED).and(FIELD_ERROR_TYPE).is(polarisConfig.getCallbackExceptionType())
+                )
+        );
+    }
+
+    /**
+     * Criteria for all message states that are FAILED with a callback exception, like
+     * {@code MessageStateMongoRepo#findStatusFailedWithCallbackExceptionAsc}.
+     *
+     * @return The criteria.
+     */
+    public Criteria failedWithCallbackException() {
+        return Criteria.where(FIELD_STATUS).is(Status.FAILED).and(FIELD_ERROR_TYPE).is(polarisConfig.getCallbackExceptionType());
+    }
+
+    /**
+     * Criteria for the message states with the given delivery type and status that have not been modified since the
+     * given date, like {@code MessageStateMongoRepo#findByDeliveryTypeAndStatusAndModifiedLessThanEqual}.
+     *
+     * @param deliveryType          The delivery type of the message states.
+     * @param status                The status of the message states.
+     * @param modifiedLessThanEqual The maximum modification date of the message states.
+     * @return The criteria.
+     */
+    public Criteria byDeliveryTypeAndStatusAndModifiedLessThanEqual(DeliveryType deliveryType, Status status, Date modifiedLessThanEqual) {
+        return Criteria.where(FIELD_DELIVERY_TYPE).is(deliveryType)
+                .and(FIELD_STATUS).is(status)
+                .and(FIELD_MODIFIED).lte(modifiedLessThanEqual);
+    }
+
+    /**
+     * Criteria for the message states of the given subscriptions with one of the given statuses and the given delivery
+     * type, like {@code MessageStateMongoRepo#findByStatusInAndDeliveryTypeAndSubscriptionIdsAsc}.
+     *
+     * @param statuses        The statuses of the message states.
+     * @param deliveryType    The delivery type of the message states.
+     * @param subscriptionIds The subscription ids of the message states.
+     * @return The criteria.
+     */
+    public Criteria byStatusAndDeliveryType(List<Status> statuses, DeliveryType deliveryType, List<String> subscriptionIds) {
+        return new Criteria().andOperator(
+                Criteria.where(FIELD_STATUS).in(statuses),
+                Criteria.where(FIELD_DELIVERY_TYPE).is(deliveryType),
+                Criteria.where(FIELD_SUBSCRIPTION_ID).in(subscriptionIds)
+        );
+    }
+
+    /**
+     * Finds the next page of message states matching the given criteria.
+     *
+     * @param criteria The criteria the message states have to match.
+     * @param after    The position of the last document of the previous page or {@code null} for the first page.
+     * @param limit    The maximum number of message states.
+     * @return The message states sorted by timestamp and id. Fewer than {@code limit} documents mark the last page.
+     */
+    public List<MessageStateMongoDocument> findNextBatch(Criteria criteria, @Nullable KeysetPosition after, int limit) {
+        var query = new Query(after == null ? criteria : new Criteria().andOperator(criteria, seekAfter(after)))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_TIMESTAMP, FIELD_ID))
+                .limit(limit);
+        project(query);
+
+        log.debug("Query message states after {}: {}", after, query);
+        return mongoTemplate.find(query, MessageStateMongoDocument.class);
+    }
+
+    /**
+     * Finds a page of message states matching the given criteria, like the paged {@code MessageStateMongoRepo} queries.
+     *
+     * @param criteria The criteria the message states have to match.
+     * @param pageable The page to find.
+     * @return The page of message states.
+     */
+    public Slice<MessageStateMongoDocument> findSlice(Criteria criteria, Pageable pageable) {
+        // Read one more document than requested to find out whether there is a next page
+        var query = new Query(criteria)
+                .with(pageable.getSort())
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1);
+        project(query);
+
+        var messageStates = mongoTemplate.find(query, MessageStateMongoDocument.class);
+        var hasNext = messageStates.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? messageStates.subList(0, pageable.getPageSize()) : messageStates, pageable, hasNext);
+    }
+
+    /**
+     * Finds the message states with the given ids that (still) match the given criteria.
+     *
+     * @param criteria The criteria the message states have to match.
+     * @param ids      The ids of the message states.
+     * @return The matching message states sorted by timestamp and id.
+     */
+    public List<MessageStateMongoDocument> findByIds(Criteria criteria, Collection<String> ids) {
+        var query = new Query(new Criteria().andOperator(criteria, Criteria.where(FIELD_ID).in(ids)))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_TIMESTAMP, FIELD_ID));
+        project(query);
+
+        return mongoTemplate.find(query, MessageStateMongoDocument.class);
+    }
+
+    /**
+     * Scans all message states matching the given criteria page by page with {@link #findNextBatch(Criteria, KeysetPosition, int)}.
+     *
+     * @param criteria  The criteria the message states have to match.
+     * @param batchSize The maximum number of message states per page.
+     * @param action    Called for every non-empty page, in order.
+     */
+    public void forEachBatch(Criteria criteria, int batchSize, Consumer<Slice<MessageStateMongoDocument>> action) {
+        KeysetPosition position = null;
+        List<MessageStateMongoDocument> messageStates;
+        do {
+            messageStates = findNextBatch(criteria, position, batchSize);
+            if (messageStates.isEmpty()) {
+                return;
+            }
+
+            action.accept(new SliceImpl<>(messageStates));
+            position = KeysetPosition.of(messageStates.getLast());
+        } while (messageStates.size() >= batchSize);
+    }
+
+    private void project(Query query) {
+        if (polarisConfig.isRepublishingProjectionEnabled()) {
+            query.fields().include(REPUBLISH_FIELDS);
+        }
+    }
+
+    private Criteria seekAfter(KeysetPosition after) {
+        return new Criteria().orOperator(
+                Criteria.where(FIELD_TIMESTAMP).gt(after.timestamp()),
+                new Criteria().andOperator(
+                        Criteria.where(FIELD_TIMESTAMP).is(after.timestamp()),
+                        Criteria.where(FIELD_ID).gt(after.id())
+                )
+        );
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.service;
+
+import de.telekom.eni.pandora.horizon.model.meta.EventRetentionTime;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.exception.CouldNotPickMessageException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of long-lived Kafka consumers used for picking events, keyed by topic.
+ * <p>
+ * Creating a consumer, fetching the metadata and assigning partitions is expensive compared to reading a few
+ * records. If pooling is enabled, picking consumers are created once (and pre-created on startup), borrowed by the
+ * republishing tasks, manually assigned and seeked, and handed back afterwards.
+ * If pooling is disabled, every borrow creates a new consumer which gets closed when it is handed back.
+ * </p>
+ */
+@Slf4j
+@Service
+public class PickingConsumerPool {
+    private static final String METRIC_BORROW_WAIT = "polaris.picking.consumer.borrow.wait";
+    private static final String METRIC_REUSED = "polaris.picking.consumer.reused";
+    private static final String METRIC_CREATED = "polaris.picking.consumer.created";
+    private static final String METRIC_IDLE = "polaris.picking.consumer.idle";
+    private static final String TAG_TOPIC = "topic";
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final PolarisConfig polarisConfig;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TopicPool> topicPools = new ConcurrentHashMap<>();
+
+    public PickingConsumerPool(ConsumerFactory<String, String> consumerFactory, PolarisConfig polarisConfig, MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.polarisConfig = polarisConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Pre-creates the configured number of consumers for every event retention topic and fetches their metadata,
+     * so that the first republishing tasks do not have to pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (!polarisConfig.isPickingPoolEnabled()) {
+            return;
+        }
+
+        var topics = Arrays.stream(EventRetentionTime.values()).map(EventRetentionTime::getTopic).distinct().toList();
+        for (var topic : topics) {
+            var topicPool = getTopicPool(topic);
+            for (int i = 0; i < polarisConfig.getPickingPoolPrewarmConsumersPerTopic() && topicPool.idle.size() < polarisConfig.getPickingPoolMaxConsumersPerTopic(); i++) {
+                try {
+                    var consumer = createConsumer(topic);
+                    consumer.partitionsFor(topic);
+                    topicPool.idle.offer(consumer);
+                } catch (Exception e) {
+                    log.warn("Could not pre-create picking consumer for topic {}", topic, e);
+                    break;
+                }
+            }
+        }
+        log.info("Pre-created picking consumers for topics {}", topics);
+    }
+
+    /**
+     * Borrows a consumer for the given topic. Waits up to {@link PolarisConfig#getPickingTimeoutMs()} if all
+     * consumers of the topic are in use.
+     *
+     * @param topic The topic the consumer is used for.
+     * @return A consumer that must be handed back with {@link #giveBack(String, Consumer, boolean)}.
+     * @throws CouldNotPickMessageException If no consumer became available in time.
+     */
+    public Consumer<String, String> borrow(String topic) throws CouldNotPickMessageException {
+        if (!polarisConfig.isPickingPoolEnabled()) {
+            return createConsumer(topic);
+        }
+
+        var topicPool = getTopicPool(topic);
+        var sample = Timer.start(meterRegistry);
+        boolean acquired;
+        try {
+            acquired = topicPool.permits.tryAcquire(polarisConfig.getPickingTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CouldNotPickMessageException("Interrupted while waiting for a picking consumer", e);
+        } finally {
+            sample.stop(Timer.builder(METRIC_BORROW_WAIT).tag(TAG_TOPIC, topic).register(meterRegistry));
+        }
+
+        if (!acquired) {
+            throw new CouldNotPickMessageException(String.format("No picking consumer for topic %s available after %d ms", topic, polarisConfig.getPickingTimeoutMs()));
+        }
+
+        var consumer = topicPool.idle.poll();
+        if (consumer != null) {
+            topicPool.reused.increment();
+            return consumer;
+        }
+
+        try {
+            return createConsumer(topic);
+        } catch (RuntimeException e) {
+            topicPool.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a borrowed consumer back to the pool.
+     *
+     * @param topic    The topic the consumer was borrowed for.
+     * @param consumer The borrowed consumer.
+     * @param healthy  {@code false} if the consumer failed while it was borrowed. It gets closed instead of reused.
+     */
+    public void giveBack(String topic, Consumer<String, String> consumer, boolean healthy) {
+        if (!polarisConfig.isPickingPoolEnabled()) {
+            closeQuietly(consumer);
+            return;
+        }
+
+        var topicPool = getTopicPool(topic);
+        try {
+            if (healthy) {
+                // Drop the assignment, so that no records are fetched while the consumer is idle
+                consumer.unsubscribe();
+                topicPool.idle.offer(consumer);
+            } else {
+                closeQuietly(consumer);
+            }
+        } catch (Exception e) {
+            log.warn("Could not hand back picking consumer for topic {}, closing it", topic, e);
+            closeQuietly(consumer);
+        } finally {
+            topicPool.permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        topicPools.values().forEach(topicPool -> {
+            Consumer<String, String> consumer;
+            while ((consumer = topicPool.idle.poll()) != null) {
+                closeQuietly(consumer);
+            }
+        });
+    }
+
+    private TopicPool getTopicPool(String topic) {
+        return topicPools.computeIfAbsent(topic, this::createTopicPool);
+    }
+
+    private TopicPool createTopicPool(String topic) {
+        var topicPool = new TopicPool(polarisConfig.getPickingPoolMaxConsumersPerTopic(), Counter.builder(METRIC_REUSED).tag(TAG_TOPIC, topic).register(meterRegistry));
+        Gauge.builder(METRIC_IDLE, topicPool.idle, BlockingQueue::size).tag(TAG_TOPIC, topic).register(meterRegistry);
+        return topicPool;
+    }
+
+    private Consumer<String, String> createConsumer(String topic) {
+        var properties = new Properties();
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, polarisConfig.getPickingRangeMaxPollRecords());
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        var consumer = consumerFactory.createConsumer(null, null, null, properties);
+        meterRegistry.counter(METRIC_CREATED, TAG_TOPIC, topic).increment();
+        return consumer;
+    }
+
+    private void closeQuietly(Consumer<String, String> consumer) {
+        try {
+            consumer.close();
+        } catch (Exception e) {
+            log.warn("Could not close picking consumer", e);
+        }
+    }
+
+    private static class TopicPool {
+        private final BlockingQueue<Consumer<String, String>> idle = new LinkedBlockingQueue<>();
+        private final Semaphore permits;
+        private final Counter reused;
+
+        private TopicPool(int maxConsumers, Counter reused) {
+            this.permits = new Semaphore(maxConsumers, true);
+            this.reused = reused;
+        }
+    }
+}
@@ -4,27 +4,312 @@
 
 package de.telekom.horizon.polaris.service;
 
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.ParallelKeyOperations;
 import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.RepublishingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Makes sure that only one republishing runs per callback endpoint at a time.
+ * <p>
+ * A republishing is started with {@link #tryStartRepublishing(CallbackKey, Collection)}, which returns a {@link Lease}
+ * if no other republishing runs for the callback endpoint. Otherwise, the subscription ids are merged into the running
+ * republishing, which republishes all merged subscription ids in one follow-up run.
+ * </p>
+ * <p>
+ * By default, the leases are held on this pod only. If {@code polaris.republish.lease.enabled} is set, the leases are
+ * held in a Hazelcast map for the whole cluster. They expire after {@code polaris.republish.lease.ttl-ms}, unless the
+ * holding pod renews them on a heartbeat, so the lease of a dead pod does not block the callback endpoint.
+ * A lease whose holder already left the cluster is taken over right away together with its pending subscription ids.
+ * The map is only changed by the caller under the Hazelcast key lock, so the partition owner does not need the
+ * classes of Polaris.
+ * </p>
+ */
+@Slf4j
 @Service
 public class SubscriptionRepublishingHolder {
+    static final String MAP_NAME = "polaris-republishing-leases";
 
-    private final Set<CallbackKey> callbackKeys = ConcurrentHashMap.newKeySet();
+    private final HazelcastInstance hazelcastInstance;
+    private final PolarisConfig polarisConfig;
+    private final IMap<String, RepublishingState> leases;
+
+    // Pending subscription ids per callback endpoint, used if the leases are held on this pod only
+    private final ConcurrentHashMap<CallbackKey, Set<String>> localLeases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CallbackKey, Lease> heldLeases = new ConcurrentHashMap<>();
+
+    public SubscriptionRepublishingHolder(HazelcastInstance hazelcastInstance, PolarisConfig polarisConfig) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.polarisConfig = polarisConfig;
+        this.leases = polarisConfig.isRepublishLeaseEnabled() ? hazelcastInstance.getMap(MAP_NAME) : null;
+    }
 
     public boolean isRepublishing(CallbackKey key) {
-        return callbackKeys.contains(key);
+        return leases != null ? leases.containsKey(key.toString()) : localLeases.containsKey(key);
+    }
+
+    /**
+     * Tries to start a republishing for the given callback endpoint.
+     * <p>
+     * If another republishing is in flight for the callback endpoint, the given subscription ids are merged into it
+     * and will be republished by its follow-up run. If the lease is held by a pod that left the cluster, the lease is
+     * taken over and its pending subscription ids are returned by the first {@link Lease#takeFollowUpOrRelease()}.
+     * </p>
+     *
+     * @param key             The callback endpoint.
+     * @param subscriptionIds The subscription ids to republish.
+     * @return The lease, if the caller should republish the subscription ids, or empty if they were merged into a running republishing.
+     */
+    public Optional<Lease> tryStartRepublishing(CallbackKey key, Collection<String> subscriptionIds) {
+        boolean isStarted = leases != null ? tryAcquireOrMergeDistributed(key, subscriptionIds) : tryAcquireOrMergeLocally(key, subscriptionIds);
+        if (isStarted) {
+            var lease = new Lease(key);
+            heldLeases.put(key, lease);
+            return Optional.of(lease);
+        }
+
+        log.info("Republishing already in progress for callbackUrl: {} and httpMethod: {}. Merged subscriptionIds {} into its follow-up run", key.callbackUrl(), key.httpMethod(), subscriptionIds);
+        return Optional.empty();
+    }
+
+    /**
+     * Renews the TTL of all leases held by this pod.
+     * <p>
+     * The owners of all leases are read in one call and the leases still owned by this pod are renewed in parallel.
+     * Leases that expired, were taken over by another pod or could not be renewed are lost. They are forgotten and
+     * their republishing stops before its next follow-up run, because another pod may republish the callback endpoint
+     * in the meantime.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${polaris.republish.lease.heartbeat-interval-ms}")
+    public void renewLeases() {
+        if (leases == null || heldLeases.isEmpty()) {
+            return;
+        }
+
+        var heldLeasesByMapKey = new HashMap<String, Lease>();
+        heldLeases.forEach((key, lease) -> heldLeasesByMapKey.put(key.toString(), lease));
+        var localMemberUuid = getLocalMemberUuid();
+        Map<String, RepublishingState> states = leases.getAll(heldLeasesByMapKey.keySet());
+
+        var ownedMapKeys = heldLeasesByMapKey.keySet().stream()
+                .filter(mapKey -> states.get(mapKey) != null && localMemberUuid.equals(states.get(mapKey).getOwnerUuid()))
+                .toList();
+        Map<String, Boolean> renewed = ParallelKeyOperations.runForAll(ownedMapKeys, mapKey -> leases.setTtl(mapKey, polarisConfig.getRepublishLeaseTtlMs(), TimeUnit.MILLISECONDS));
+
+        heldLeasesByMapKey.forEach((mapKey, lease) -> {
+            if (!Boolean.TRUE.equals(renewed.get(mapKey))) {
+                log.warn("Lost republishing lease for callbackUrl {} and httpMethod {}, because it could not be renewed", lease.getKey().callbackUrl(), lease.getKey().httpMethod());
+                lease.isLost = true;
+                heldLeases.remove(lease.getKey(), lease);
+            }
+        });
+    }
+
+    private boolean tryAcquireOrMergeLocally(CallbackKey key, Collection<String> subscriptionIds) {
+        while (true) {
+            if (localLeases.putIfAbsent(key, new HashSet<>()) == null) {
+                return true;
+            }
+
+            boolean isMerged = localLeases.computeIfPresent(key, (callbackKey, pendingSubscriptionIds) -> {
+                pendingSubscriptionIds.addAll(subscriptionIds);
+                return pendingSubscriptionIds;
+            }) != null;
+            if (isMerged) {
+                return false;
+            }
+            // The running republishing finished in the meantime, try again
+        }
+    }
+
+    /**
+     * Acquires the lease if there is none or its holder left the cluster, otherwise merges the subscription ids into it.
+     *
+     * @return {@code true} if the lease was acquired, {@code false} if the subscription ids were merged.
+     */
+    private boolean tryAcquireOrMergeDistributed(CallbackKey key, Collection<String> subscriptionIds) {
+        var mapKey = key.toString();
+        return withLock(mapKey, () -> {
+            var localMemberUuid = getLocalMemberUuid();
+            var state = leases.get(mapKey);
+            if (state == null) {
+                setLease(mapKey, new RepublishingState(localMemberUuid, new HashSet<>()));
+                return true;
+            }
+
+            if (!isClusterMember(state.getOwnerUuid())) {
+                log.warn("Taking over republishing lease of departed member {} for callbackUrl {} and httpMethod {} with pending subscriptionIds {}", state.getOwnerUuid(), key.callbackUrl(), key.httpMethod(), state.getPendingSubscriptionIds());
+                setLease(mapKey, new RepublishingState(localMemberUuid, state.getPendingSubscriptionIds()));
+                return true;
+            }
+
+            state.getPendingSubscriptionIds().addAll(subscriptionIds);
+            setLease(mapKey, state);
+            return false;
+        });
+    }
+
+    private List<String> takeFollowUpOrRelease(CallbackKey key) {
+        List<String> followUpSubscriptionIds;
+        if (leases != null) {
+            var mapKey = key.toString();
+            followUpSubscriptionIds = withLock(mapKey, () -> {
+                var localMemberUuid = getLocalMemberUuid();
+                var state = leases.get(mapKey);
+                if (state == null || !localMemberUuid.equals(state.getOwnerUuid())) {
+                    return List.of();
+                }
+
+                if (state.getPendingSubscriptionIds().isEmpty()) {
+                    leases.delete(mapKey);
+                    return List.of();
+                }
+
+                setLease(mapKey, new RepublishingState(localMemberUuid, new HashSet<>()));
+                return new ArrayList<>(state.getPendingSubscriptionIds());
+            });
+        } else {
+            var pending = new ArrayList<String>();
+            localLeases.computeIfPresent(key, (callbackKey, pendingSubscriptionIds) -> {
+                pending.addAll(pendingSubscriptionIds);
+                return pendingSubscriptionIds.isEmpty() ? null : new HashSet<>();
+            });
+            followUpSubscriptionIds = pending;
+        }
+
+        if (followUpSubscriptionIds == null || followUpSubscriptionIds.isEmpty()) {
+            heldLeases.remove(key);
+            return List.of();
+        }
+
+        return followUpSubscriptionIds;
+    }
+
+    private List<String> release(CallbackKey key) {
+        List<String> droppedSubscriptionIds;
+        if (leases != null) {
+            var mapKey = key.toString();
+            droppedSubscriptionIds = withLock(mapKey, () -> {
+                var state = leases.get(mapKey);
+                if (state == null || !getLocalMemberUuid().equals(state.getOwnerUuid())) {
+                    return List.of();
+                }
+
+                leases.delete(mapKey);
+                return new ArrayList<>(state.getPendingSubscriptionIds());
+            });
+        } else {
+            var pendingSubscriptionIds = localLeases.remove(key);
+            droppedSubscriptionIds = pendingSubscriptionIds != null ? List.copyOf(pendingSubscriptionIds) : List.of();
+        }
+        heldLeases.remove(key);
+
+        if (!droppedSubscriptionIds.isEmpty()) {
+            log.warn("Released republishing lease for callbackUrl {} and httpMethod {} without republishing the merged subscriptionIds {}", key.callbackUrl(), key.httpMethod(), droppedSubscriptionIds);
+        }
+        return droppedSubscriptionIds;
+    }
+
+    private <T> T withLock(String mapKey, Supplier<T> action) {
+        leases.lock(mapKey);
+        try {
+            return action.get();
+        } finally {
+            leases.unlock(mapKey);
+        }
+    }
+
+    // Writing the whole value resets the TTL, so it has to be passed on every write
+    private void setLease(String mapKey, RepublishingState state) {
+        leases.set(mapKey, state, polarisConfig.getRepublishLeaseTtlMs(), TimeUnit.MILLISECONDS);
     }
 
-    public void startRepublishing(CallbackKey key) {
-        callbackKeys.add(key);
+    private boolean isClusterMember(String memberUuid) {
+        return hazelcastInstance.getCluster().getMembers().stream()
+                .map(Member::getUuid)
+                .anyMatch(uuid -> uuid.toString().equals(memberUuid));
     }
 
-    public void indicateRepublishingFinished(CallbackKey key) {
-        callbackKeys.remove(key);
+    private String getLocalMemberUuid() {
+        return hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
     }
 
+    /**
+     * Lease for a republishing of a callback endpoint.
+     */
+    public class Lease {
+        private final CallbackKey key;
+        private boolean isReleased;
+        // Set by the heartbeat if the lease could not be renewed
+        private volatile boolean isLost;
+
+        private Lease(CallbackKey key) {
+            this.key = key;
+        }
+
+        public CallbackKey getKey() {
+            return key;
+        }
+
+        /**
+         * @return Whether the lease could not be renewed, so another pod may republish the callback endpoint.
+         */
+        public boolean isLost() {
+            return isLost;
+        }
+
+        /**
+         * Returns the subscription ids that were merged into this republishing since the last call and keeps the lease
+         * for the follow-up run. If there are none, the lease is released. A lost lease has no follow-up run, the merged
+         * subscription ids belong to the pod that holds the lease now.
+         *
+         * @return The subscription ids to republish in the follow-up run or an empty list if the lease was released or lost.
+         */
+        public List<String> takeFollowUpOrRelease() {
+            if (isReleased) {
+                return List.of();
+            }
+
+            if (isLost) {
+                isReleased = true;
+                return List.of();
+            }
+
+            var followUpSubscriptionIds = SubscriptionRepublishingHolder.this.takeFollowUpOrRelease(key);
+            isReleased = followUpSubscriptionIds.isEmpty();
+            return followUpSubscriptionIds;
+        }
+
+        /**
+         * Releases the lease, if not released yet. Merged subscription ids that were not taken are returned,
+         * so the caller can hand them back to the health check of the callback endpoint.
+         *
+         * @return The merged subscription ids that were not republished or an empty list if there are none.
+         */
+        public List<String> release() {
+            if (isReleased) {
+                return List.of();
+            }
+
+            if (isLost) {
+                isReleased = true;
+                return List.of();
+            }
+
+            isReleased = true;
+            return SubscriptionRepublishingHolder.this.release(key);
+        }
+    }
 }
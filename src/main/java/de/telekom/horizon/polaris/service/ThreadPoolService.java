@@ -10,19 +10,26 @@ import de.telekom.eni.pandora.horizon.kafka.event.EventWriter;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.eni.pandora.horizon.mongo.repository.MessageStateMongoRepo;
 import de.telekom.eni.pandora.horizon.tracing.HorizonTracer;
+import de.telekom.horizon.polaris.cache.DistributedHealthCheckCache;
 import de.telekom.horizon.polaris.cache.HealthCheckCache;
 import de.telekom.horizon.polaris.cache.PartialSubscriptionCache;
 import de.telekom.horizon.polaris.component.HealthCheckRestClient;
+import de.telekom.horizon.polaris.component.HostProbeAggregator;
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.BackoffPolicy;
+import de.telekom.horizon.polaris.helper.BoundedVirtualThreadExecutor;
+import de.telekom.horizon.polaris.helper.HashedWheelTimer;
 import de.telekom.horizon.polaris.model.CallbackKey;
 import de.telekom.horizon.polaris.model.PartialSubscription;
 import de.telekom.horizon.polaris.task.*;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpMethod;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -35,8 +42,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -56,77 +67,147 @@ import java.util.concurrent.ThreadPoolExecutor;
 @Component
 public class ThreadPoolService {
     @Getter(AccessLevel.PRIVATE)
-    private final ThreadPoolTaskExecutor subscriptionCheckTaskExecutor;
+    private final AsyncTaskExecutor subscriptionCheckTaskExecutor;
     @Getter(AccessLevel.PRIVATE)
-    private final ThreadPoolTaskExecutor republishingTaskExecutor;
+    private final AsyncTaskExecutor republishingTaskExecutor;
     @Getter(AccessLevel.PRIVATE)
     private final ListeningScheduledExecutorService requestTaskScheduler;
+    @Nullable
+    @Getter(AccessLevel.PRIVATE)
+    private final HashedWheelTimer requestTaskTimer;
+    @Nullable
+    @Getter(AccessLevel.PRIVATE)
+    private final Executor requestTaskWorkerExecutor;
 
     private final CircuitBreakerCacheService circuitBreakerCacheService;
     private final HealthCheckCache healthCheckCache;
     private final PartialSubscriptionCache partialSubscriptionCache;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final PickingConsumerPool pickingConsumerPool;
     private final PolarisConfig polarisConfig;
     private final HealthCheckRestClient restClient;
     private final HorizonTracer tracer;
     private final MessageStateMongoRepo messageStateMongoRepo;
+    private final MessageStateQueryService messageStateQueryService;
     private final ConcurrentHashMap<CallbackKey, ListenableScheduledFuture<?>> requestingTasks;
+    @Getter(AccessLevel.PRIVATE)
+    private final ConcurrentHashMap<CallbackKey, CompletableFuture<Boolean>> inFlightRequests;
     private final EventWriter eventWriter;
     private final MeterRegistry meterRegistry;
     private final SubscriptionRepublishingHolder subscriptionRepublishingHolder;
     private final WorkerService workerService;
+    private final DistributedHealthCheckCache distributedHealthCheckCache;
+    private final HostProbeAggregator hostProbeAggregator;
+    private final BackoffPolicy backoffPolicy;
 
     public ThreadPoolService(CircuitBreakerCacheService circuitBreakerCacheService,
                              HealthCheckCache healthCheckCache,
                              PartialSubscriptionCache partialSubscriptionCache,
                              KafkaTemplate<String, String> kafkaTemplate,
+                             PickingConsumerPool pickingConsumerPool,
                              PolarisConfig polarisConfig,
                              HealthCheckRestClient restClient,
                              HorizonTracer tracer,
                              MessageStateMongoRepo messageStateMongoRepo,
+                             MessageStateQueryService messageStateQueryService,
                              EventWriter eventWriter,
                              MeterRegistry meterRegistry,
-                             SubscriptionRepublishingHolder subscriptionRepublishingHolder, WorkerService workerService) {
+                             SubscriptionRepublishingHolder subscriptionRepublishingHolder, WorkerService workerService,
+                             DistributedHealthCheckCache distributedHealthCheckCache,
+                             HostProbeAggregator hostProbeAggregator,
+                             BackoffPolicy backoffPolicy) {
         this.circuitBreakerCacheService = circuitBreakerCacheService;
         this.restClient = restClient;
         this.healthCheckCache = healthCheckCache;
         this.partialSubscriptionCache = partialSubscriptionCache;
         this.kafkaTemplate = kafkaTemplate;
+        this.pickingConsumerPool = pickingConsumerPool;
         this.polarisConfig = polarisConfig;
         this.tracer = tracer;
         this.messageStateMongoRepo = messageStateMongoRepo;
+        this.messageStateQueryService = messageStateQueryService;
         this.eventWriter = eventWriter;
         this.meterRegistry = meterRegistry;
         this.subscriptionRepublishingHolder = subscriptionRepublishingHolder;
         this.workerService = workerService;
+        this.distributedHealthCheckCache = distributedHealthCheckCache;
+        this.hostProbeAggregator = hostProbeAggregator;
+        this.backoffPolicy = backoffPolicy;
 
-        this.republishingTaskExecutor = new ThreadPoolTaskExecutor();
-        this.subscriptionCheckTaskExecutor = new ThreadPoolTaskExecutor();
+        this.republishingTaskExecutor = createTaskExecutor("republishingTaskExecutor", polarisConfig.getRepublishingThreadpoolCorePoolSize(), polarisConfig.getRepublishingThreadpoolMaxPoolSize(), polarisConfig.getRepublishingThreadpoolQueueCapacity());
+        this.subscriptionCheckTaskExecutor = createTaskExecutor("subscriptionCheckTaskExecutor", polarisConfig.getSubscriptionCheckThreadpoolCorePoolSize(), polarisConfig.getSubscriptionCheckThreadpoolMaxPoolSize(), polarisConfig.getSubscriptionCheckThreadpoolQueueCapacity());
         this.requestingTasks = new ConcurrentHashMap<>();
+        this.inFlightRequests = new ConcurrentHashMap<>();
 
         // Need to do this, bc Spring does not have ScheduledFuture return values for their ThreadPoolScheduledTaskExecutor (issue: https://github.com/spring-projects/spring-framework/issues/17987)
-        var scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(polarisConfig.getRequestThreadpoolPoolSize());
+        var scheduledThreadPoolExecutor = polarisConfig.isVirtualThreadsEnabled()
+                ? new ScheduledThreadPoolExecutor(polarisConfig.getRequestThreadpoolPoolSize(), Thread.ofVirtual().name("requestTaskScheduler-", 0).factory())
+                : new ScheduledThreadPoolExecutor(polarisConfig.getRequestThreadpoolPoolSize());
         scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true); // Set to true, else OutOfMemory can occur, when Task do not get removed
         this.requestTaskScheduler = MoreExecutors.listeningDecorator(scheduledThreadPoolExecutor);
         ExecutorServiceMetrics.monitor(meterRegistry, scheduledThreadPoolExecutor, "requestTaskScheduler", Collections.emptyList());
 
-        initializeTaskExecutor();
+        // The timer wheel only keeps the timeouts, due requests are executed on a separate worker pool
+        if (polarisConfig.isRequestTimerWheelEnabled()) {
+            if (polarisConfig.isVirtualThreadsEnabled()) {
+                this.requestTaskWorkerExecutor = new BoundedVirtualThreadExecutor("requestTaskWorkerExecutor", polarisConfig.getRequestThreadpoolPoolSize(), meterRegistry);
+            } else {
+                var threadPoolExecutor = Executors.newFixedThreadPool(polarisConfig.getRequestThreadpoolPoolSize());
+                ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "requestTaskWorkerExecutor", Collections.emptyList());
+                this.requestTaskWorkerExecutor = threadPoolExecutor;
+            }
+            this.requestTaskTimer = new HashedWheelTimer("request-task-timer", Duration.ofMillis(polarisConfig.getRequestTimerWheelTickMs()), polarisConfig.getRequestTimerWheelSize(), requestTaskWorkerExecutor);
+        } else {
+            this.requestTaskWorkerExecutor = null;
+            this.requestTaskTimer = null;
+        }
+    }
+
+    /**
+     * Creates a platform-thread pool or, if virtual threads are enabled, an executor that runs every task on a virtual
+     * thread. In that case the max pool size limits how many tasks run at once.
+     */
+    private AsyncTaskExecutor createTaskExecutor(String name, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        if (polarisConfig.isVirtualThreadsEnabled()) {
+            return new BoundedVirtualThreadExecutor(name, maxPoolSize, meterRegistry);
+        }
+
+        var taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setMaxPoolSize(maxPoolSize);
+        taskExecutor.setCorePoolSize(corePoolSize);
+        taskExecutor.setQueueCapacity(queueCapacity);
+        taskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        taskExecutor.afterPropertiesSet();
+        ExecutorServiceMetrics.monitor(meterRegistry, taskExecutor.getThreadPoolExecutor(), name, Collections.emptyList());
+        return taskExecutor;
     }
 
-    private void initializeTaskExecutor() {
-        republishingTaskExecutor.setMaxPoolSize(polarisConfig.getRepublishingThreadpoolMaxPoolSize());
-        republishingTaskExecutor.setCorePoolSize(polarisConfig.getRepublishingThreadpoolCorePoolSize());
-        republishingTaskExecutor.setQueueCapacity(polarisConfig.getRepublishingThreadpoolQueueCapacity());
-        republishingTaskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        republishingTaskExecutor.afterPropertiesSet();
-        ExecutorServiceMetrics.monitor(meterRegistry, republishingTaskExecutor.getThreadPoolExecutor(), "republishingTaskExecutor", Collections.emptyList());
-
-        subscriptionCheckTaskExecutor.setMaxPoolSize(polarisConfig.getSubscriptionCheckThreadpoolMaxPoolSize());
-        subscriptionCheckTaskExecutor.setCorePoolSize(polarisConfig.getSubscriptionCheckThreadpoolCorePoolSize());
-        subscriptionCheckTaskExecutor.setQueueCapacity(polarisConfig.getSubscriptionCheckThreadpoolQueueCapacity());
-        subscriptionCheckTaskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        subscriptionCheckTaskExecutor.afterPropertiesSet();
-        ExecutorServiceMetrics.monitor(meterRegistry, subscriptionCheckTaskExecutor.getThreadPoolExecutor(), "subscriptionCheckTaskExecutor", Collections.emptyList());
+    /**
+     * Shuts down the executors, which are created here and not managed by Spring.
+     */
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down the executors of the ThreadPoolService");
+        shutdown(subscriptionCheckTaskExecutor);
+        shutdown(republishingTaskExecutor);
+        requestTaskScheduler.shutdownNow();
+        // Stop the timer first, so no due timeout is handed to the stopped worker pool
+        if (requestTaskTimer != null) {
+            requestTaskTimer.stop();
+        }
+        if (requestTaskWorkerExecutor != null) {
+            shutdown(requestTaskWorkerExecutor);
+        }
+    }
+
+    private static void shutdown(Executor executor) {
+        if (executor instanceof BoundedVirtualThreadExecutor boundedVirtualThreadExecutor) {
+            boundedVirtualThreadExecutor.close();
+        } else if (executor instanceof ThreadPoolTaskExecutor threadPoolTaskExecutor) {
+            threadPoolTaskExecutor.shutdown();
+        } else if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
     }
 
     private void handleRepublishingCallbackFinished(List<PartialSubscription> partialSubscriptions) {
@@ -145,11 +226,14 @@ public class ThreadPoolService {
         }
     }
 
-    private void handleRequestFinished(ListenableScheduledFuture<Boolean> future, Boolean wasSuccessful, String callbackUrl, String environment, HttpMethod httpMethod, String publisherId, String subscriberId, @Nullable Throwable throwable) {
+    private void handleRequestFinished(boolean isCancelled, Boolean wasSuccessful, String callbackUrl, String environment, HttpMethod httpMethod, String publisherId, String subscriberId, @Nullable Throwable throwable) {
         var key = new CallbackKey(callbackUrl, httpMethod);
         requestingTasks.remove(key);
+        if (isCancelled || Boolean.TRUE.equals(wasSuccessful)) {
+            backoffPolicy.reset(key);
+        }
 
-        var isCancelled = future.isCancelled(); // If StopRequestTask in threadPoolService gets called, this gets true
+        // If StopRequestTask in threadPoolService gets called, isCancelled is true
         if (isCancelled) {
             log.info("Thread got interrupted, will set isThreadOpen to false for callbackUrl: {} and httpMethod: {}", callbackUrl, httpMethod);
             // Set isThreadOpen to false
@@ -229,11 +313,11 @@ public class ThreadPoolService {
 
     public void startHealthRequestTask(String callbackUrl, String publisherId, String subscriberId, String environment, HttpMethod httpMethod) {
         log.info("Starting HealthRequest task for callbackUrl {}, environment {} and httpMethod {},", callbackUrl, environment, httpMethod);
-        Duration delay = Duration.ofMinutes(polarisConfig.getRequestDelayInbetweenMins());
+        Duration delay = backoffPolicy.getRetryDelay(new CallbackKey(callbackUrl, httpMethod));
         this.startHealthRequestTask(callbackUrl, publisherId, subscriberId, environment, httpMethod, delay);
     }
 
-    public ListenableScheduledFuture<Boolean> startHealthRequestTask(String callbackUrl, String publisherId, String subscriberId, String environment, HttpMethod httpMethod, Duration initialDelay) {
+    public ListenableScheduledFuture<?> startHealthRequestTask(String callbackUrl, String publisherId, String subscriberId, String environment, HttpMethod httpMethod, Duration initialDelay) {
         log.info("Starting HealthRequest task with initialDelay {} for callbackUrl {}, environment {} and httpMethod {}", initialDelay, callbackUrl, environment, httpMethod);
 
         var key = new CallbackKey(callbackUrl, httpMethod);
@@ -243,7 +327,11 @@ public class ThreadPoolService {
         }
 
         var healthRequestTask = new HealthRequestTask(callbackUrl, publisherId, subscriberId, environment, httpMethod, this);
-        var future = requestTaskScheduler.schedule(healthRequestTask, initialDelay);
+        if (polarisConfig.isRequestAsyncEnabled()) {
+            return startAsyncHealthRequestTask(key, healthRequestTask, callbackUrl, publisherId, subscriberId, environment, httpMethod, initialDelay);
+        }
+
+        var future = scheduleHealthRequestTask(healthRequestTask, initialDelay);
 
         requestingTasks.put(key, future);
 
@@ -251,18 +339,58 @@ public class ThreadPoolService {
         Futures.addCallback(future, new FutureCallback<>() {
             @Override
             public void onSuccess(Boolean wasSuccessful) {
-                handleRequestFinished(future, wasSuccessful, callbackUrl, environment, httpMethod, publisherId, subscriberId,null);
+                handleRequestFinished(future.isCancelled(), wasSuccessful, callbackUrl, environment, httpMethod, publisherId, subscriberId,null);
             }
 
             @Override
             public void onFailure(Throwable throwable) {
-                handleRequestFinished(future, false, callbackUrl, environment, httpMethod, publisherId, subscriberId, throwable);
+                handleRequestFinished(future.isCancelled(), false, callbackUrl, environment, httpMethod, publisherId, subscriberId, throwable);
             }
         }, MoreExecutors.directExecutor()); // Careful: Do not use directExecutor on heavy-weight task.
         // We only can do it bc we are just doing logs. Will be executor in ThreadPoolService Thread (this)
         return future;
     }
 
+    /**
+     * Schedules a health request task that only sends the request on the scheduler thread.
+     * The response is handled on a thread of the asynchronous HTTP client, so slow endpoints do not block the scheduler.
+     * Until the response arrives, the request stays in flight and can be cancelled by {@link #stopHealthRequestTask(String, HttpMethod)}.
+     */
+    private ListenableScheduledFuture<?> startAsyncHealthRequestTask(CallbackKey key, HealthRequestTask healthRequestTask, String callbackUrl, String publisherId, String subscriberId, String environment, HttpMethod httpMethod, Duration initialDelay) {
+        ListenableScheduledFuture<?> future = scheduleHealthRequestTask(() -> {
+            var request = healthRequestTask.callAsync();
+            inFlightRequests.put(key, request);
+            request.whenComplete((wasSuccessful, throwable) -> {
+                inFlightRequests.remove(key, request);
+                handleRequestFinished(request.isCancelled(), wasSuccessful, callbackUrl, environment, httpMethod, publisherId, subscriberId, throwable);
+            });
+            return null;
+        }, initialDelay);
+
+        requestingTasks.put(key, future);
+
+        Futures.addCallback(future, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                // The request is in flight now, it calls handleRequestFinished on completion
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                handleRequestFinished(future.isCancelled(), false, callbackUrl, environment, httpMethod, publisherId, subscriberId, throwable);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private <V> ListenableScheduledFuture<V> scheduleHealthRequestTask(Callable<V> task, Duration initialDelay) {
+        if (requestTaskTimer != null) {
+            return requestTaskTimer.schedule(task, initialDelay);
+        }
+
+        return requestTaskScheduler.schedule(task, initialDelay);
+    }
+
     public void stopHealthRequestTask(String callbackUrl, HttpMethod httpMethod) {
         log.info("Stopping HealthRequest task for callbackUrl {}  and httpMethod {}", callbackUrl, httpMethod);
         var key = new CallbackKey(callbackUrl, httpMethod);
@@ -274,6 +402,10 @@ public class ThreadPoolService {
         try {
             var future = requestingTasks.get(key);
             future.cancel(false); // We do not need to interrupt. Lets RequestTask finish and set isThreadOpen to false. Could also be done here
+            var request = inFlightRequests.get(key);
+            if (request != null) {
+                request.cancel(false);
+            }
         } catch (Exception exception) {
             log.warn("Unexpected Exception while stopping health request task for callbackUrl {} and httpMethod: {}", callbackUrl, httpMethod, exception);
         }
@@ -9,14 +9,36 @@ import com.hazelcast.cluster.MembershipEvent;
 import com.hazelcast.cluster.MembershipListener;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.cp.lock.FencedLock;
+import com.hazelcast.config.IndexType;
 import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicates;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.ConsistentHashRing;
+import de.telekom.horizon.polaris.helper.ParallelKeyOperations;
+import de.telekom.horizon.polaris.model.ClaimsLostEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class WorkerService implements MembershipListener {
+    static final String METRIC_RECLAIM = "polaris.claims.reclaim";
+    static final String TAG_PHASE = "phase";
+    // Member attribute set by horizon.cache.attributes, other Horizon components share the cluster
+    static final String MEMBER_ATTRIBUTE_QUALIFIER = "qualifier";
+    static final String POLARIS_QUALIFIER = "polaris";
 
     private final HazelcastInstance hazelcastInstance;
 
@@ -26,25 +48,221 @@ public class WorkerService implements MembershipListener {
 
     private final IMap<String, String> claims;
 
-    public WorkerService(HazelcastInstance hazelcastInstance, ApplicationEventPublisher applicationEventPublisher) {
+    private final PolarisConfig polarisConfig;
+
+    private final FencedLock[] stripedLocks;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile ConsistentHashRing ownershipRing;
+
+    // Claims of this pod that are renewed on heartbeat, if claim leases are enabled
+    private final Set<String> heldClaims = ConcurrentHashMap.newKeySet();
+
+    // Keys whose claim lease this pod could not renew, until it claims them again
+    private final Set<String> lostClaims = ConcurrentHashMap.newKeySet();
+
+    public WorkerService(HazelcastInstance hazelcastInstance, ApplicationEventPublisher applicationEventPublisher, PolarisConfig polarisConfig, MeterRegistry meterRegistry) {
         this.hazelcastInstance = hazelcastInstance;
         this.applicationEventPublisher = applicationEventPublisher;
+        this.polarisConfig = polarisConfig;
+        this.meterRegistry = meterRegistry;
+        if (polarisConfig.isOwnershipRingEnabled()) {
+            rebuildOwnershipRing(hazelcastInstance.getCluster().getMembers());
+        }
         this.hazelcastInstance.getCluster().addMembershipListener(this);
         this.globalLock = hazelcastInstance.getCPSubsystem().getLock("polaris-lock");
         this.claims = hazelcastInstance.getMap("polaris-member-claims");
+        if (polarisConfig.isClaimIndexedRemovalEnabled()) {
+            // The value of a claim is the uuid of the owning member
+            this.claims.addIndex(IndexType.HASH, "this");
+        }
+        this.stripedLocks = new FencedLock[polarisConfig.isLockStripedEnabled() ? Math.max(1, polarisConfig.getLockStripes()) : 0];
     }
 
+    /**
+     * Tries to claim the given key, e.g. a subscription id, for this pod.
+     * <p>
+     * The first pod that puts its member uuid into the claims map wins. If the ownership ring is enabled, only the
+     * pod that owns the key on the ring tries to claim it. The other pods only check whether they claimed the key
+     * before the ring changed, since they keep handling it until its circuit breaker gets closed.
+     * </p>
+     * <p>
+     * If claim leases are enabled, the claim expires after {@link PolarisConfig#getClaimLeaseTtlMs()} unless this pod
+     * renews it on heartbeat, see {@link #renewClaims()}. The lease is put and renewed by the caller, so the partition
+     * owner does not need the classes of Polaris.
+     * </p>
+     *
+     * @param key The key to claim.
+     * @return True if this pod is responsible for the key, false otherwise.
+     */
     public boolean tryClaim(String key) {
         var uuid = hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
 
+        var ring = ownershipRing;
+        if (ring != null && !uuid.equals(ring.getOwner(key))) {
+            return uuid.equals(claims.get(key));
+        }
+
+        if (polarisConfig.isClaimLeaseEnabled()) {
+            return putClaim(key, uuid, polarisConfig.getClaimLeaseTtlMs());
+        }
+
         return claims.computeIfAbsent(key, k -> uuid).equals(uuid);
     }
 
+    /**
+     * Tries to claim all given keys for this pod at once, see {@link #tryClaim(String)}.
+     * <p>
+     * Every key is claimed atomically with a {@code putIfAbsent} on the claims map, so no lock is needed. The calls
+     * run in parallel, see {@link ParallelKeyOperations}, and only need plain map operations on the partition owners.
+     * Keys that another pod owns on the ownership ring are only looked up with a single cluster call,
+     * like in {@link #tryClaim(String)}.
+     * </p>
+     *
+     * @param keys The keys to claim.
+     * @return The keys this pod is responsible for.
+     */
+    public Set<String> tryClaimAll(Collection<String> keys) {
+        var uuid = hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
+
+        var keysToClaim = new HashSet<>(keys);
+        var claimedKeys = new HashSet<String>();
+
+        var ring = ownershipRing;
+        if (ring != null) {
+            var keysOfOtherPods = keysToClaim.stream().filter(key -> !uuid.equals(ring.getOwner(key))).collect(Collectors.toSet());
+            keysToClaim.removeAll(keysOfOtherPods);
+            if (!keysOfOtherPods.isEmpty()) {
+                claims.getAll(keysOfOtherPods).forEach((key, owner) -> {
+                    if (uuid.equals(owner)) {
+                        claimedKeys.add(key);
+                    }
+                });
+            }
+        }
+
+        if (keysToClaim.isEmpty()) {
+            return claimedKeys;
+        }
+
+        long ttlMs = polarisConfig.isClaimLeaseEnabled() ? polarisConfig.getClaimLeaseTtlMs() : 0;
+        Map<String, Boolean> results = ParallelKeyOperations.runForAll(keysToClaim, key -> putClaim(key, uuid, ttlMs));
+        results.forEach((key, isClaimed) -> {
+            if (Boolean.TRUE.equals(isClaimed)) {
+                claimedKeys.add(key);
+            }
+        });
+        return claimedKeys;
+    }
+
+    /**
+     * Puts the claim of this pod for the key, if nobody claimed it yet.
+     * With a TTL, the claim is held as a lease that expires unless it is renewed, see {@link #renewClaims()}.
+     * A lease this pod already holds is renewed.
+     *
+     * @param key   The key to claim.
+     * @param uuid  The member uuid of this pod.
+     * @param ttlMs The TTL of the lease in milliseconds or 0 for a claim without lease.
+     * @return True if this pod holds the claim afterwards, false otherwise.
+     */
+    private boolean putClaim(String key, String uuid, long ttlMs) {
+        if (ttlMs <= 0) {
+            var owner = claims.putIfAbsent(key, uuid);
+            return owner == null || uuid.equals(owner);
+        }
+
+        var owner = claims.putIfAbsent(key, uuid, ttlMs, TimeUnit.MILLISECONDS);
+        boolean isClaimed = owner == null || (uuid.equals(owner) && claims.setTtl(key, ttlMs, TimeUnit.MILLISECONDS));
+        if (isClaimed) {
+            heldClaims.add(key);
+            lostClaims.remove(key);
+        }
+        return isClaimed;
+    }
+
     public void removeClaim(String key) {
+        heldClaims.remove(key);
+        lostClaims.remove(key);
         claims.computeIfPresent(key, (k, v) -> null);
     }
 
+    /**
+     * Renews the TTL of all claims of this pod, if claim leases are enabled.
+     * <p>
+     * The owners are looked up with a single cluster call and the TTLs of the claims this pod still owns are renewed
+     * in parallel, see {@link ParallelKeyOperations}.
+     * </p>
+     * <p>
+     * Claims that expired and were taken by another pod in the meantime are not renewed and forgotten.
+     * A {@link ClaimsLostEvent} is published for them, so the tasks working on them can be stopped.
+     * Claims of a pod that stops renewing them expire on their own and become claimable again.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${polaris.claim.lease.heartbeat-interval-ms}")
+    public void renewClaims() {
+        if (!polarisConfig.isClaimLeaseEnabled() || heldClaims.isEmpty()) {
+            return;
+        }
+
+        var uuid = hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
+        var keys = new HashSet<>(heldClaims);
+        Map<String, String> owners = claims.getAll(keys);
+
+        var ownedKeys = keys.stream().filter(key -> uuid.equals(owners.get(key))).toList();
+        Map<String, Boolean> renewed = ParallelKeyOperations.runForAll(ownedKeys, key -> claims.setTtl(key, polarisConfig.getClaimLeaseTtlMs(), TimeUnit.MILLISECONDS));
+
+        var lostKeys = keys.stream().filter(key -> !Boolean.TRUE.equals(renewed.get(key))).toList();
+        lostKeys.forEach(heldClaims::remove);
+        log.debug("Renewed {} claims, lost {} claims", keys.size() - lostKeys.size(), lostKeys.size());
+
+        if (!lostKeys.isEmpty()) {
+            log.warn("Lost the claims of subscriptionIds {}, because their leases could not be renewed", lostKeys);
+            lostClaims.addAll(lostKeys);
+            applicationEventPublisher.publishEvent(new ClaimsLostEvent(Set.copyOf(lostKeys)));
+        }
+    }
+
+    /**
+     * Checks whether this pod lost the claim of the key, because it could not renew its lease, see {@link #renewClaims()}.
+     *
+     * @param key The key to check.
+     * @return True if the claim was lost and not claimed again since, false otherwise.
+     */
+    public boolean isClaimLost(String key) {
+        return lostClaims.contains(key);
+    }
+
+    /**
+     * Gets the keys nobody holds a claim for, e.g. because the lease of a hung pod expired.
+     *
+     * @param keys The keys to check.
+     * @return The keys without a claim.
+     */
+    public Set<String> getUnclaimedKeys(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Set.of();
+        }
+
+        var claimedKeys = claims.getAll(new HashSet<>(keys)).keySet();
+        return keys.stream().filter(key -> !claimedKeys.contains(key)).collect(Collectors.toSet());
+    }
+
+    /**
+     * Removes all claims of the given member.
+     * <p>
+     * If indexed removal is enabled, the claims are removed by a predicate on every partition owner in parallel.
+     * Otherwise, all claims are fetched and removed one by one.
+     * </p>
+     *
+     * @param member The member whose claims are removed.
+     */
     public void removeMemberClaims(Member member) {
+        if (polarisConfig.isClaimIndexedRemovalEnabled()) {
+            claims.removeAll(Predicates.equal("this", member.getUuid().toString()));
+            return;
+        }
+
         claims.entrySet().removeIf(entry -> entry.getValue().equals(member.getUuid().toString()));
     }
 
@@ -56,14 +274,88 @@ public class WorkerService implements MembershipListener {
         globalLock.unlock();
     }
 
+    /**
+     * Locks the given key, e.g. a subscription id, cluster-wide.
+     * <p>
+     * If striped locking is enabled, the key is mapped to one of {@link PolarisConfig#getLockStripes()} CP locks,
+     * so that work for keys on other stripes can run in parallel. Otherwise, the global lock is used.
+     * </p>
+     *
+     * @param key The key to lock.
+     * @return True if the lock has been acquired within 10 seconds, false otherwise.
+     */
+    public boolean tryLock(String key) {
+        if (stripedLocks.length == 0) {
+            return tryGlobalLock();
+        }
+
+        return getStripedLock(key).tryLock(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Unlocks the given key, see {@link #tryLock(String)}.
+     *
+     * @param key The key to unlock.
+     */
+    public void unlock(String key) {
+        if (stripedLocks.length == 0) {
+            globalUnlock();
+            return;
+        }
+
+        getStripedLock(key).unlock();
+    }
+
+    int getStripe(String key) {
+        return Math.floorMod(key.hashCode(), stripedLocks.length);
+    }
+
+    private FencedLock getStripedLock(String key) {
+        int stripe = getStripe(key);
+        var lock = stripedLocks[stripe];
+        if (lock == null) {
+            // Proxies are cheap and always refer to the same CP lock, so a racing initialization does no harm
+            lock = hazelcastInstance.getCPSubsystem().getLock("polaris-lock-" + stripe);
+            stripedLocks[stripe] = lock;
+        }
+
+        return lock;
+    }
+
     @Override
     public void memberAdded(MembershipEvent membershipEvent) {
+        if (polarisConfig.isOwnershipRingEnabled()) {
+            rebuildOwnershipRing(membershipEvent.getMembers());
+        }
         applicationEventPublisher.publishEvent(membershipEvent);
     }
 
     @Override
     public void memberRemoved(MembershipEvent membershipEvent) {
+        if (polarisConfig.isOwnershipRingEnabled()) {
+            rebuildOwnershipRing(membershipEvent.getMembers());
+        }
+        var sample = Timer.start(meterRegistry);
         removeMemberClaims(membershipEvent.getMember());
+        sample.stop(meterRegistry.timer(METRIC_RECLAIM, TAG_PHASE, "remove-claims"));
+
+        // Listeners reclaim the circuit breaker messages of the removed member synchronously
+        sample = Timer.start(meterRegistry);
         applicationEventPublisher.publishEvent(membershipEvent);
+        sample.stop(meterRegistry.timer(METRIC_RECLAIM, TAG_PHASE, "reclaim"));
+    }
+
+    /**
+     * Returns whether the member is a Polaris pod, as opposed to a member of another Horizon component.
+     */
+    static boolean isPolarisMember(Member member) {
+        return POLARIS_QUALIFIER.equals(member.getAttribute(MEMBER_ATTRIBUTE_QUALIFIER));
+    }
+
+    private void rebuildOwnershipRing(Set<Member> members) {
+        var start = System.nanoTime();
+        var memberIds = members.stream().filter(WorkerService::isPolarisMember).map(member -> member.getUuid().toString()).toList();
+        ownershipRing = new ConsistentHashRing(memberIds, polarisConfig.getOwnershipRingVirtualNodes());
+        log.info("Rebuilt ownership ring for {} Polaris members in {} ms", memberIds.size(), (System.nanoTime() - start) / 1_000_000);
     }
 }
@@ -12,6 +12,7 @@ import de.telekom.horizon.polaris.service.ThreadPoolService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.query.Criteria;
 
 import java.util.Date;
 import java.util.List;
@@ -68,4 +69,17 @@ public class HandleDeliveryTypeChangeTask extends RepublishingTask {
 
         return super.getMessageStatesFromDB(subscriptionIds, timestampLessThan, pageable);
     }
+
+    /**
+     * Same as {@link #getMessageStatesFromDB(List, Date, Pageable)}, but as criteria for the keyset scan of the
+     * republishing pipeline.
+     */
+    @Override
+    protected Criteria getMessageStatesCriteria(List<String> subscriptionIds, Date timestampLessThan) {
+        if(DeliveryType.CALLBACK.equals(newPartialSubscription.deliveryType())) {
+            return messageStateQueryService.byStatusAndDeliveryType(List.of(Status.PROCESSED), DeliveryType.SERVER_SENT_EVENT, subscriptionIds);
+        }
+
+        return super.getMessageStatesCriteria(subscriptionIds, timestampLessThan);
+    }
 }
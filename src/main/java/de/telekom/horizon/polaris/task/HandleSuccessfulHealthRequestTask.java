@@ -7,8 +7,10 @@ package de.telekom.horizon.polaris.task;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerMessage;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
 import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.PartialSubscription;
 import de.telekom.horizon.polaris.service.SubscriptionRepublishingHolder;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
+import de.telekom.horizon.polaris.service.WorkerService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpMethod;
 
@@ -25,6 +27,8 @@ public class HandleSuccessfulHealthRequestTask extends RepublishingTask {
     private final HttpMethod httpMethod;
 
     private final SubscriptionRepublishingHolder subscriptionRepublishingHolder;
+    private final ThreadPoolService threadPoolService;
+    private final WorkerService workerService;
 
     protected HandleSuccessfulHealthRequestTask(ThreadPoolService threadPoolService) {
         super(threadPoolService);
@@ -32,6 +36,8 @@ public class HandleSuccessfulHealthRequestTask extends RepublishingTask {
         this.callbackUrl = "";
         this.httpMethod = HttpMethod.HEAD;
         this.subscriptionRepublishingHolder = threadPoolService.getSubscriptionRepublishingHolder();
+        this.threadPoolService = threadPoolService;
+        this.workerService = threadPoolService.getWorkerService();
     }
 
     public HandleSuccessfulHealthRequestTask(String callbackUrl, HttpMethod httpMethod, ThreadPoolService threadPoolService) {
@@ -40,6 +46,8 @@ public class HandleSuccessfulHealthRequestTask extends RepublishingTask {
         this.callbackUrl = callbackUrl;
         this.httpMethod = httpMethod;
         this.subscriptionRepublishingHolder = threadPoolService.getSubscriptionRepublishingHolder();
+        this.threadPoolService = threadPoolService;
+        this.workerService = threadPoolService.getWorkerService();
     }
 
     /**
@@ -49,12 +57,6 @@ public class HandleSuccessfulHealthRequestTask extends RepublishingTask {
     public void run() {
         CallbackKey callbackKey = new CallbackKey(callbackUrl, httpMethod);
 
-        if(subscriptionRepublishingHolder.isRepublishing(callbackKey)) {
-            log.warn("Republishing already in progress for callbackUrl: {} and httpMethod: {}. skipping republishing to prevent multiple loops for single callback endpoint", callbackUrl, httpMethod);
-            return;
-        }
-        this.subscriptionRepublishingHolder.startRepublishing(callbackKey);
-
         log.info("Start HandleSuccessfulHealthRequestTask for callbackUrl: {} and httpMethod: {}", callbackUrl, httpMethod);
         var oHealthCheckData = healthCheckCache.get(callbackUrl, httpMethod);
         log.debug("callbackUrl: {}", callbackUrl);
@@ -72,17 +74,86 @@ public class HandleSuccessfulHealthRequestTask extends RepublishingTask {
         var subscriptionIds = healthCheckCache.clearBeforeRepublishing(callbackUrl, httpMethod);
         log.debug("subscriptionIds: {}", subscriptionIds);
 
-        republish(subscriptionIds);
-        this.subscriptionRepublishingHolder.indicateRepublishingFinished(callbackKey);
+        republishWithLease(callbackKey, subscriptionIds);
         log.info("Finished HandleSuccessfulHealthRequestTask for callbackUrl: {} and httpMethod: {}", callbackUrl, httpMethod);
     }
 
+    /**
+     * Republishes the subscription IDs if no other republishing runs for the callback endpoint.
+     * Otherwise, the subscription IDs are merged into the running republishing, which republishes them in a follow-up run.
+     * Subscription IDs merged into this republishing are republished here in one follow-up run as well.
+     * If the republishing fails before they were taken, they are handed back to the health check of the callback endpoint.
+     *
+     * @param callbackKey     The callback endpoint.
+     * @param subscriptionIds The list of subscription IDs for which to republish messages.
+     */
+    protected void republishWithLease(CallbackKey callbackKey, List<String> subscriptionIds) {
+        var oLease = subscriptionRepublishingHolder.tryStartRepublishing(callbackKey, subscriptionIds);
+        if (oLease.isEmpty()) {
+            return;
+        }
+
+        var lease = oLease.get();
+        try {
+            var currentSubscriptionIds = subscriptionIds;
+            do {
+                republish(currentSubscriptionIds);
+                currentSubscriptionIds = lease.takeFollowUpOrRelease();
+                if (lease.isLost()) {
+                    log.warn("Stopping republishing for callbackUrl: {} and httpMethod: {}, because its lease was lost", callbackKey.callbackUrl(), callbackKey.httpMethod());
+                } else if (!currentSubscriptionIds.isEmpty()) {
+                    log.info("Starting follow-up republishing for callbackUrl: {} and httpMethod: {} with merged subscriptionIds: {}", callbackKey.callbackUrl(), callbackKey.httpMethod(), currentSubscriptionIds);
+                }
+            } while (!currentSubscriptionIds.isEmpty());
+        } finally {
+            var droppedSubscriptionIds = lease.release();
+            if (!droppedSubscriptionIds.isEmpty()) {
+                handBackToHealthCheck(callbackKey, droppedSubscriptionIds);
+            }
+        }
+    }
+
+    /**
+     * Adds the subscription IDs back to the health check cache, so the next successful health request republishes them.
+     * Starts a health request task for the callback endpoint, if none is running.
+     *
+     * @param callbackKey     The callback endpoint.
+     * @param subscriptionIds The subscription IDs that were not republished.
+     */
+    protected void handBackToHealthCheck(CallbackKey callbackKey, List<String> subscriptionIds) {
+        log.info("Handing subscriptionIds {} back to the health check for callbackUrl: {} and httpMethod: {}", subscriptionIds, callbackKey.callbackUrl(), callbackKey.httpMethod());
+        boolean shouldStartHealthRequest = healthCheckCache.add(callbackKey.callbackUrl(), callbackKey.httpMethod(), subscriptionIds);
+        if (!shouldStartHealthRequest) {
+            return;
+        }
+
+        Optional<PartialSubscription> oPartialSubscription = subscriptionIds.stream()
+                .map(partialSubscriptionCache::get)
+                .flatMap(Optional::stream)
+                .findFirst();
+        if (oPartialSubscription.isEmpty()) {
+            log.warn("Could not find any of the subscriptionIds {} to start a health request for callbackUrl: {} and httpMethod: {}", subscriptionIds, callbackKey.callbackUrl(), callbackKey.httpMethod());
+            healthCheckCache.update(callbackKey.callbackUrl(), callbackKey.httpMethod(), false);
+            return;
+        }
+
+        var partialSubscription = oPartialSubscription.get();
+        threadPoolService.startHealthRequestTask(callbackKey.callbackUrl(), partialSubscription.publisherId(), partialSubscription.subscriberId(), partialSubscription.environment(), callbackKey.httpMethod());
+    }
+
     /**
      * Republishes messages for the specified subscription IDs and closing circuit breakers.
+     * Subscription IDs whose claim this pod lost are skipped, since another pod may republish them now.
      *
      * @param subscriptionIds The list of subscription IDs for which to republish messages.
      */
     protected void republish(List<String> subscriptionIds) {
+        var lostSubscriptionIds = subscriptionIds.stream().filter(workerService::isClaimLost).toList();
+        if (!lostSubscriptionIds.isEmpty()) {
+            log.info("Skipping republishing for subscriptionIds {}, because their claims were lost", lostSubscriptionIds);
+            subscriptionIds = subscriptionIds.stream().filter(subscriptionId -> !lostSubscriptionIds.contains(subscriptionId)).toList();
+        }
+
         setCircuitBreakersToRepublishing(subscriptionIds);
         queryDbPickStatesAndRepublishMessages(subscriptionIds);
         var stillRepublishingSubscriptionIds = subscriptionIds.stream()
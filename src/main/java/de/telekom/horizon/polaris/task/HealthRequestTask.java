@@ -6,6 +6,7 @@ package de.telekom.horizon.polaris.task;
 
 import de.telekom.horizon.polaris.cache.HealthCheckCache;
 import de.telekom.horizon.polaris.component.HealthCheckRestClient;
+import de.telekom.horizon.polaris.component.HostProbeAggregator;
 import de.telekom.horizon.polaris.config.PolarisConfig;
 import de.telekom.horizon.polaris.exception.CallbackException;
 import de.telekom.horizon.polaris.service.CircuitBreakerCacheService;
@@ -17,6 +18,10 @@ import org.springframework.http.HttpMethod;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static de.telekom.horizon.polaris.helper.CompletableFutures.propagateCancellation;
 
 /**
  * Task to make a HEAD or GET request to a given callback URL and environment, updating health check data and
@@ -37,6 +42,7 @@ public class HealthRequestTask implements Callable<Boolean> {
     private final HealthCheckCache healthCheckCache;
     private final CircuitBreakerCacheService circuitBreakerCache;
     private final PolarisConfig polarisConfig;
+    private final HostProbeAggregator hostProbeAggregator;
 
     public HealthRequestTask(String callbackUrl, String publisherId, String subscriberId, String environment, HttpMethod httpMethod, ThreadPoolService threadPoolService) {
         this.callbackUrl = callbackUrl;
@@ -48,6 +54,7 @@ public class HealthRequestTask implements Callable<Boolean> {
         this.healthCheckCache = threadPoolService.getHealthCheckCache();
         this.circuitBreakerCache = threadPoolService.getCircuitBreakerCacheService();
         this.polarisConfig = threadPoolService.getPolarisConfig();
+        this.hostProbeAggregator = threadPoolService.getHostProbeAggregator();
     }
 
     /**
@@ -70,17 +77,10 @@ public class HealthRequestTask implements Callable<Boolean> {
         boolean wasSuccessful = false;
         try {
             healthCheckCache.update(callbackUrl, httpMethod, true); // should be true already, just to make sure
-            var oReturnStatusLine = executeHealthCheckRequest(callbackUrl, publisherId, subscriberId, environment, httpMethod);
-
-            if (oReturnStatusLine.isEmpty()) {
-                log.warn("Could not execute health check request, returned statusLine is empty!");
-            } else {
-                var returnStatusLine = oReturnStatusLine.get();
-                var statusCode = returnStatusLine.getStatusCode();
-                updateHealthCheckInCaches(statusCode, returnStatusLine.getReasonPhrase());
-                var successfulStatusCodes = polarisConfig.getSuccessfulStatusCodes();
-                wasSuccessful = successfulStatusCodes.contains(statusCode);
-            }
+            var oReturnStatusLine = polarisConfig.isRequestHostAggregationEnabled()
+                    ? hostProbeAggregator.probe(callbackUrl, httpMethod, subscriberId, environment, () -> executeHealthCheckRequest(callbackUrl, publisherId, subscriberId, environment, httpMethod))
+                    : executeHealthCheckRequest(callbackUrl, publisherId, subscriberId, environment, httpMethod);
+            wasSuccessful = handleHealthCheckResponse(oReturnStatusLine);
         } catch (Exception exception) {
             log.error("Unexpected error while executing health check request or updating health check in caches.", exception);
         }
@@ -88,6 +88,50 @@ public class HealthRequestTask implements Callable<Boolean> {
         return wasSuccessful;
     }
 
+    /**
+     * Same as {@link #call()}, but sends the health check request without blocking the calling thread.
+     * The response is handled on a thread of the asynchronous HTTP client. Cancelling the returned future
+     * aborts the request.
+     *
+     * @return A future that completes with true if the health check was successful, false otherwise.
+     */
+    public CompletableFuture<Boolean> callAsync() {
+        try {
+            healthCheckCache.update(callbackUrl, httpMethod, true); // should be true already, just to make sure
+            var statusLineFuture = polarisConfig.isRequestHostAggregationEnabled()
+                    ? hostProbeAggregator.probeAsync(callbackUrl, httpMethod, subscriberId, environment, () -> executeHealthCheckRequestAsync(callbackUrl, publisherId, subscriberId, environment, httpMethod))
+                    : executeHealthCheckRequestAsync(callbackUrl, publisherId, subscriberId, environment, httpMethod);
+            return propagateCancellation(statusLineFuture
+                    .thenApply(this::handleHealthCheckResponse)
+                    .exceptionally(throwable -> {
+                        log.error("Unexpected error while executing health check request or updating health check in caches.", throwable);
+                        return false;
+                    }), statusLineFuture);
+        } catch (Exception exception) {
+            log.error("Unexpected error while executing health check request or updating health check in caches.", exception);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Updates the health check in the caches with the returned status line.
+     *
+     * @param oReturnStatusLine The status line of the health check response or empty if the request failed.
+     * @return True if the returned status code is one of the successful status codes, false otherwise.
+     */
+    private boolean handleHealthCheckResponse(Optional<StatusLine> oReturnStatusLine) {
+        if (oReturnStatusLine.isEmpty()) {
+            log.warn("Could not execute health check request, returned statusLine is empty!");
+            return false;
+        }
+
+        var returnStatusLine = oReturnStatusLine.get();
+        var statusCode = returnStatusLine.getStatusCode();
+        updateHealthCheckInCaches(statusCode, returnStatusLine.getReasonPhrase());
+        var successfulStatusCodes = polarisConfig.getSuccessfulStatusCodes();
+        return successfulStatusCodes.contains(statusCode);
+    }
+
     /**
      * Updates health check data in caches based on the provided status code and reason phrase.
      *
@@ -100,6 +144,11 @@ public class HealthRequestTask implements Callable<Boolean> {
         var subscriptionIds = healthCheckCache.getSubscriptionIds(callbackUrl, httpMethod);
         var healthCheckData = healthCheckCache.update(callbackUrl, httpMethod, statusCode, reasonPhrase);
 
+        if (polarisConfig.isCircuitBreakerAtomicUpdatesEnabled()) {
+            circuitBreakerCache.setLastHealthCheck(subscriptionIds, healthCheckData.getLastHealthCheckOrNull());
+            return;
+        }
+
         var circuitBreakerMessages = subscriptionIds.stream()
                 .map(circuitBreakerCache::getCircuitBreakerMessage)
                 .filter(Optional::isPresent)
@@ -141,4 +190,30 @@ public class HealthRequestTask implements Callable<Boolean> {
         return Optional.empty();
     }
 
+    /**
+     * Same as {@link #executeHealthCheckRequest(String, String, String, String, HttpMethod)}, but without blocking the calling thread.
+     *
+     * @return A future of an Optional containing the StatusLine of the health check response or an empty Optional if an exception occurs.
+     */
+    protected CompletableFuture<Optional<StatusLine>> executeHealthCheckRequestAsync(String callbackUrl, String publisherId, String subscriberId, String environment, HttpMethod httpMethod) {
+        CompletableFuture<StatusLine> statusLineFuture;
+        if (httpMethod.equals(HttpMethod.HEAD)) {
+            statusLineFuture = restClient.headAsync(callbackUrl, publisherId, subscriberId, environment);
+        } else if (httpMethod.equals(HttpMethod.GET)) {
+            statusLineFuture = restClient.getAsync(callbackUrl, publisherId, subscriberId, environment);
+        } else {
+            throw new IllegalArgumentException("HttpMethods needs to be HEAD or GET");
+        }
+
+        return propagateCancellation(statusLineFuture.<Optional<StatusLine>>handle((returnStatusLine, throwable) -> {
+            if (throwable != null) {
+                var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                log.error(cause.getMessage(), cause);
+                return Optional.empty();
+            }
+
+            log.info("Health check request ({}) for callback url '{}' returned code '{}'", httpMethod, callbackUrl, returnStatusLine.getStatusCode());
+            return Optional.of(returnStatusLine);
+        }), statusLineFuture);
+    }
 }
@@ -6,7 +6,6 @@ package de.telekom.horizon.polaris.task;
 
 import de.telekom.horizon.polaris.model.CallbackKey;
 import de.telekom.horizon.polaris.model.PartialSubscription;
-import de.telekom.horizon.polaris.service.SubscriptionRepublishingHolder;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpMethod;
@@ -24,12 +23,9 @@ import java.util.List;
 public class RepublishPartialSubscriptionsTask extends HandleSuccessfulHealthRequestTask {
     private final List<PartialSubscription> partialSubscriptions;
 
-    private final SubscriptionRepublishingHolder subscriptionRepublishingHolder;
-
     public RepublishPartialSubscriptionsTask(List<PartialSubscription> partialSubscriptions, ThreadPoolService threadPoolService) {
         super(threadPoolService);
 
-        this.subscriptionRepublishingHolder = threadPoolService.getSubscriptionRepublishingHolder();
         this.partialSubscriptions = partialSubscriptions;
     }
 
@@ -46,11 +42,6 @@ public class RepublishPartialSubscriptionsTask extends HandleSuccessfulHealthReq
             var httpMethod = partialSubscription.isGetMethodInsteadOfHead() ? HttpMethod.GET : HttpMethod.HEAD;
 
             CallbackKey callbackKey = new CallbackKey(callbackUrl, httpMethod);
-            if(subscriptionRepublishingHolder.isRepublishing(callbackKey)) {
-                log.warn("Republishing already in progress for callbackUrl: {} and httpMethod: {}. skipping republishing to prevent multiple loops for single callback endpoint", callbackUrl, httpMethod);
-                return;
-            }
-            this.subscriptionRepublishingHolder.startRepublishing(callbackKey);
 
             var oHealthCheckData = healthCheckCache.get(callbackUrl, httpMethod);
             if(oHealthCheckData.isEmpty()) {
@@ -64,8 +55,7 @@ public class RepublishPartialSubscriptionsTask extends HandleSuccessfulHealthReq
 
             log.debug("subscriptionIds: {}", subscriptionIds);
 
-            republish(subscriptionIds);
-            this.subscriptionRepublishingHolder.indicateRepublishingFinished(callbackKey);
+            republishWithLease(callbackKey, subscriptionIds);
         }
         log.info("Finished RepublishSubscriptionIdsTask for partialSubscriptions: {}", partialSubscriptions);
     }
@@ -4,6 +4,7 @@
 
 package de.telekom.horizon.polaris.task;
 
+import de.telekom.eni.pandora.horizon.model.event.IdentifiableMessage;
 import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
@@ -12,18 +13,29 @@ import de.telekom.eni.pandora.horizon.tracing.HorizonTracer;
 import de.telekom.horizon.polaris.cache.HealthCheckCache;
 import de.telekom.horizon.polaris.cache.PartialSubscriptionCache;
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.OffsetRangePicker;
 import de.telekom.horizon.polaris.helper.Republisher;
+import de.telekom.horizon.polaris.model.KeysetPosition;
 import de.telekom.horizon.polaris.service.CircuitBreakerCacheService;
+import de.telekom.horizon.polaris.service.MessageStateQueryService;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.kafka.core.KafkaTemplate;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 
 /**
  * Republishes Events based on a  callbackUrl or a subscription id.
@@ -35,6 +47,14 @@ import java.util.List;
  */
 @Slf4j
 public class RepublishingTask implements Runnable {
+    private static final String METRIC_PIPELINE_STAGE = "polaris.republish.pipeline.stage";
+    private static final String TAG_STAGE = "stage";
+    private static final String STAGE_FETCH = "fetch";
+    private static final String STAGE_PICK = "pick";
+    private static final String STAGE_PRODUCE = "produce";
+    private static final Slice<MessageStateMongoDocument> END_OF_BATCHES = new SliceImpl<>(List.of());
+    private static final PickedBatch END_OF_PICKED_BATCHES = new PickedBatch(END_OF_BATCHES, List.of());
+
     protected final CircuitBreakerCacheService circuitBreakerCache;
     protected final HealthCheckCache healthCheckCache;
     protected final PartialSubscriptionCache partialSubscriptionCache;
@@ -42,6 +62,8 @@ public class RepublishingTask implements Runnable {
     protected final PolarisConfig polarisConfig;
     protected final HorizonTracer tracer;
     protected final MessageStateMongoRepo messageStateMongoRepo;
+    protected final MessageStateQueryService messageStateQueryService;
+    protected final MeterRegistry meterRegistry;
     protected Republisher republisher;
     private Slice<MessageStateMongoDocument> messageStatesToRepublish;
 
@@ -56,13 +78,16 @@ public class RepublishingTask implements Runnable {
         this.circuitBreakerCache = threadPoolService.getCircuitBreakerCacheService();
         this.healthCheckCache = threadPoolService.getHealthCheckCache();
         this.messageStateMongoRepo = threadPoolService.getMessageStateMongoRepo();
+        this.messageStateQueryService = threadPoolService.getMessageStateQueryService();
+        this.meterRegistry = threadPoolService.getMeterRegistry();
 
         this.partialSubscriptionCache = threadPoolService.getPartialSubscriptionCache();
         this.kafkaTemplate = threadPoolService.getKafkaTemplate();
         this.polarisConfig = threadPoolService.getPolarisConfig();
         this.tracer = threadPoolService.getTracer();
 
-        this.republisher = new Republisher(kafkaTemplate, partialSubscriptionCache, polarisConfig, tracer, threadPoolService.getEventWriter());
+        var offsetRangePicker = polarisConfig.isPickingRangeEnabled() ? new OffsetRangePicker(threadPoolService.getPickingConsumerPool(), polarisConfig) : null;
+        this.republisher = new Republisher(kafkaTemplate, partialSubscriptionCache, polarisConfig, tracer, threadPoolService.getEventWriter(), offsetRangePicker);
     }
 
 
@@ -77,12 +102,22 @@ public class RepublishingTask implements Runnable {
         // Set CircuitBreakerMessage status to REPUBLISHING
         log.info("Updating circuit breaker messages to REPUBLISHING for {} subscriptionIds", subscriptionIds.size());
         log.debug("subscriptionIds: {}", subscriptionIds);
+        if (polarisConfig.isCircuitBreakerAtomicUpdatesEnabled()) {
+            circuitBreakerCache.compareAndSetStatus(subscriptionIds, null, CircuitBreakerStatus.REPUBLISHING);
+            return;
+        }
+
         for (var subscriptionId : subscriptionIds) {
             setCircuitBreakerToRepublishing(subscriptionId);
         }
     }
     protected void setCircuitBreakerToRepublishing(String subscriptionId) {
         log.info("Updating circuit breaker messages to REPUBLISHING for subscriptionId: {}", subscriptionId);
+        if (polarisConfig.isCircuitBreakerAtomicUpdatesEnabled()) {
+            circuitBreakerCache.compareAndSetStatus(subscriptionId, null, CircuitBreakerStatus.REPUBLISHING);
+            return;
+        }
+
         var oCBMessage = circuitBreakerCache.getCircuitBreakerMessage(subscriptionId);
         oCBMessage.ifPresent(circuitBreakerMessage -> circuitBreakerCache.updateCircuitBreakerStatus(circuitBreakerMessage.getSubscriptionId(), CircuitBreakerStatus.REPUBLISHING));
     }
@@ -94,6 +129,18 @@ public class RepublishingTask implements Runnable {
 
     }
 
+    /**
+     * Criteria for the message states to republish, used if the republishing pipeline or the projection is enabled.
+     * Must match the same message states as {@link #getMessageStatesFromDB(List, Date, Pageable)}.
+     *
+     * @param subscriptionIds   The list of subscription IDs for which to retrieve message states.
+     * @param timestampLessThan The timestamp indicating the maximum allowed timestamp for retrieved message states.
+     * @return The criteria for the keyset scan.
+     */
+    protected Criteria getMessageStatesCriteria(List<String> subscriptionIds, Date timestampLessThan) {
+        return messageStateQueryService.waitingOrFailedWithCallbackException(subscriptionIds, timestampLessThan);
+    }
+
     /**
      * Queries the DB, picks the consumer records and republishes them.
      *
@@ -101,6 +148,16 @@ public class RepublishingTask implements Runnable {
      * @return The {@link MessageStateMongoDocument MessageStateMongoDocuments} whereof the EventMessage could not get picked from Kafka
      */
     protected void queryDbPickStatesAndRepublishMessages(List<String> subscriptionIds) {
+        if (polarisConfig.isRepublishingPipelineEnabled()) {
+            queryDbPickStatesAndRepublishMessagesPipelined(subscriptionIds);
+            return;
+        }
+
+        if (polarisConfig.isRepublishingAsyncEnabled()) {
+            queryDbPickStatesAndRepublishMessagesAsync(subscriptionIds);
+            return;
+        }
+
         // We always stay at page 0, because the updated messages are not found by the query anymore (state messages gets set to PROCESSED or FAILED)
         Pageable pageable = PageRequest.of(0, polarisConfig.getRepublishingBatchSize(), Sort.by(Sort.Direction.ASC, "timestamp"));
         Slice<MessageStateMongoDocument> messageStateMongoDocuments;
@@ -109,7 +166,9 @@ public class RepublishingTask implements Runnable {
 
         do {
             log.info("Loading max. {} event states from MongoDB", polarisConfig.getRepublishingBatchSize());
-            messageStateMongoDocuments = getMessageStatesFromDB(subscriptionIds, timestamp, pageable);
+            messageStateMongoDocuments = polarisConfig.isRepublishingProjectionEnabled()
+                    ? messageStateQueryService.findSlice(getMessageStatesCriteria(subscriptionIds, timestamp), pageable)
+                    : getMessageStatesFromDB(subscriptionIds, timestamp, pageable);
 
             log.info("Found {} event states in MongoDb", messageStateMongoDocuments.getNumberOfElements());
             log.debug("messageStateMongoDocuments: {}", messageStateMongoDocuments);
@@ -117,4 +176,169 @@ public class RepublishingTask implements Runnable {
             republisher.pickAndRepublishBatch(messageStateMongoDocuments);
         } while(messageStateMongoDocuments.hasNext());
     }
+
+    /**
+     * Same as {@link #queryDbPickStatesAndRepublishMessages(List)}, but the previous batch is acknowledged while the
+     * next batch gets queried and picked.
+     * <p>
+     * The message states of the previous batch may not be updated yet when the next batch is queried, so they are
+     * read with a keyset scan instead of always reading the first page.
+     * </p>
+     *
+     * @param subscriptionIds The subscription ids of the message states to republish.
+     */
+    protected void queryDbPickStatesAndRepublishMessagesAsync(List<String> subscriptionIds) {
+        var batchSize = polarisConfig.getRepublishingBatchSize();
+        var criteria = getMessageStatesCriteria(subscriptionIds, new Date());
+        KeysetPosition position = null;
+        List<MessageStateMongoDocument> messageStates;
+        CompletableFuture<Void> previousBatchRepublished = null;
+
+        do {
+            log.info("Loading max. {} event states from MongoDB after {}", batchSize, position);
+            messageStates = messageStateQueryService.findNextBatch(criteria, position, batchSize);
+            log.info("Found {} event states in MongoDb", messageStates.size());
+            if (messageStates.isEmpty()) {
+                break;
+            }
+
+            var batchRepublished = republisher.pickAndRepublishBatchAsync(new SliceImpl<>(messageStates));
+            if (previousBatchRepublished != null) {
+                republisher.awaitRepublished(previousBatchRepublished);
+            }
+            previousBatchRepublished = batchRepublished;
+            position = KeysetPosition.of(messageStates.getLast());
+        } while (messageStates.size() >= batchSize);
+
+        if (previousBatchRepublished != null) {
+            republisher.awaitRepublished(previousBatchRepublished);
+        }
+    }
+
+    /**
+     * Same as {@link #queryDbPickStatesAndRepublishMessages(List)}, but fetching, picking and producing run as stages
+     * on their own virtual threads. Batch N+1 is fetched from MongoDB while batch N is picked from Kafka and batch
+     * N-1 is produced.
+     * <p>
+     * The stages are connected by bounded queues, so a slow stage blocks the stages in front of it and at most
+     * {@link PolarisConfig#getRepublishingPipelineQueueCapacity()} batches wait between two stages.
+     * Since a batch may be fetched before the previous batches have been republished, the message states are read
+     * with a keyset scan instead of always reading the first page.
+     * </p>
+     *
+     * @param subscriptionIds The subscription ids of the message states to republish.
+     */
+    protected void queryDbPickStatesAndRepublishMessagesPipelined(List<String> subscriptionIds) {
+        var queueCapacity = Math.max(1, polarisConfig.getRepublishingPipelineQueueCapacity());
+        var fetchedBatches = new ArrayBlockingQueue<Slice<MessageStateMongoDocument>>(queueCapacity);
+        var pickedBatches = new ArrayBlockingQueue<PickedBatch>(queueCapacity);
+        var criteria = getMessageStatesCriteria(subscriptionIds, new Date());
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var fetchStage = executor.submit(() -> runStage(STAGE_FETCH, () -> fetchBatches(criteria, fetchedBatches), () -> fetchedBatches.put(END_OF_BATCHES), () -> {}));
+            var pickStage = executor.submit(() -> runStage(STAGE_PICK, () -> pickBatches(fetchedBatches, pickedBatches), () -> pickedBatches.put(END_OF_PICKED_BATCHES), () -> fetchStage.cancel(true)));
+            runStage(STAGE_PRODUCE, () -> produceBatches(pickedBatches), () -> {}, () -> pickStage.cancel(true));
+        }
+    }
+
+    private void fetchBatches(Criteria criteria, BlockingQueue<Slice<MessageStateMongoDocument>> fetchedBatches) throws InterruptedException {
+        var batchSize = polarisConfig.getRepublishingBatchSize();
+        KeysetPosition position = null;
+        List<MessageStateMongoDocument> messageStates;
+
+        do {
+            log.info("Loading max. {} event states from MongoDB after {}", batchSize, position);
+            var sample = Timer.start(meterRegistry);
+            messageStates = messageStateQueryService.findNextBatch(criteria, position, batchSize);
+            sample.stop(stageTimer(STAGE_FETCH));
+
+            log.info("Found {} event states in MongoDb", messageStates.size());
+            if (messageStates.isEmpty()) {
+                break;
+            }
+
+            fetchedBatches.put(new SliceImpl<>(messageStates));
+            position = KeysetPosition.of(messageStates.getLast());
+        } while (messageStates.size() >= batchSize);
+    }
+
+    private void pickBatches(BlockingQueue<Slice<MessageStateMongoDocument>> fetchedBatches, BlockingQueue<PickedBatch> pickedBatches) throws InterruptedException {
+        Slice<MessageStateMongoDocument> messageStates;
+        while ((messageStates = fetchedBatches.take()) != END_OF_BATCHES) {
+            var sample = Timer.start(meterRegistry);
+            try {
+                pickedBatches.put(new PickedBatch(messageStates, republisher.pickBatch(messageStates)));
+            } catch (RuntimeException e) {
+                // Keep taking batches, otherwise the fetch stage would block forever
+                log.error("Could not pick batch of {} event states", messageStates.getNumberOfElements(), e);
+            } finally {
+                sample.stop(stageTimer(STAGE_PICK));
+            }
+        }
+    }
+
+    private void produceBatches(BlockingQueue<PickedBatch> pickedBatches) throws InterruptedException {
+        CompletableFuture<Void> previousBatchRepublished = null;
+        PickedBatch pickedBatch;
+        while ((pickedBatch = pickedBatches.take()) != END_OF_PICKED_BATCHES) {
+            var sample = Timer.start(meterRegistry);
+            try {
+                var batchRepublished = republisher.republishBatchAsync(pickedBatch.messageStates(), pickedBatch.identifiableMessages());
+                if (previousBatchRepublished != null) {
+                    republisher.awaitRepublished(previousBatchRepublished);
+                }
+                previousBatchRepublished = batchRepublished;
+            } catch (RuntimeException e) {
+                // Keep taking batches, otherwise the pick stage would block forever
+                log.error("Could not republish batch of {} event states", pickedBatch.messageStates().getNumberOfElements(), e);
+            } finally {
+                sample.stop(stageTimer(STAGE_PRODUCE));
+            }
+        }
+
+        if (previousBatchRepublished != null) {
+            republisher.awaitRepublished(previousBatchRepublished);
+        }
+    }
+
+    /**
+     * Runs a stage of the republishing pipeline and signals the end of its output afterward, even if it failed,
+     * so that the following stages do not wait forever.
+     * <p>
+     * Afterward, the previous stage is cancelled. It has already finished if this stage took all of its batches,
+     * otherwise it would block forever on the full queue in between. A stage that is interrupted that way does not
+     * signal the end of its output, because nobody takes it anymore.
+     * </p>
+     */
+    private void runStage(String stage, Stage body, Stage signalEnd, Runnable cancelPreviousStage) {
+        try {
+            body.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted republishing pipeline stage {}", stage);
+        } catch (Exception e) {
+            log.error("Unexpected error in republishing pipeline stage {}", stage, e);
+        } finally {
+            cancelPreviousStage.run();
+            if (!Thread.currentThread().isInterrupted()) {
+                try {
+                    signalEnd.run();
+                } catch (Exception e) {
+                    log.error("Could not signal end of republishing pipeline stage {}", stage, e);
+                }
+            }
+        }
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder(METRIC_PIPELINE_STAGE).tag(TAG_STAGE, stage).register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private record PickedBatch(Slice<MessageStateMongoDocument> messageStates, List<IdentifiableMessage> identifiableMessages) {
+    }
 }
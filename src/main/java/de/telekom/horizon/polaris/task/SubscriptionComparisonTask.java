@@ -9,10 +9,13 @@ import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerHealthCheck;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.eni.pandora.horizon.mongo.repository.MessageStateMongoRepo;
+import de.telekom.horizon.polaris.cache.DistributedHealthCheckCache;
 import de.telekom.horizon.polaris.cache.HealthCheckCache;
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
 import de.telekom.horizon.polaris.model.HealthCheckData;
 import de.telekom.horizon.polaris.model.PartialSubscription;
+import de.telekom.horizon.polaris.model.ReplicatedHealthCheck;
 import de.telekom.horizon.polaris.service.CircuitBreakerCacheService;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.service.WorkerService;
@@ -27,6 +30,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * <p>Compares current (new) subscription with old subscription.</p>
@@ -45,6 +49,7 @@ public class SubscriptionComparisonTask implements Runnable {
     private final PartialSubscription oldPartialSubscription;
     private final PartialSubscription currPartialSubscriptionOrNull; // Null if deleted
     private final HealthCheckCache healthCheckCache;
+    private final DistributedHealthCheckCache distributedHealthCheckCache;
     private final CircuitBreakerCacheService circuitBreakerCache;
     private final PolarisConfig polarisConfig;
     private final ThreadPoolService threadPoolService;
@@ -57,6 +62,7 @@ public class SubscriptionComparisonTask implements Runnable {
         this.oldPartialSubscription = oldPartialSubscription;
         this.currPartialSubscriptionOrNull = currPartialSubscriptionOrNull;
         this.healthCheckCache = threadPoolService.getHealthCheckCache();
+        this.distributedHealthCheckCache = threadPoolService.getDistributedHealthCheckCache();
         this.circuitBreakerCache = threadPoolService.getCircuitBreakerCacheService();
         this.polarisConfig = threadPoolService.getPolarisConfig();
         this.messageStateMongoRepo = threadPoolService.getMessageStateMongoRepo();
@@ -87,7 +93,7 @@ public class SubscriptionComparisonTask implements Runnable {
 
         String currCallbackUrlOrNull = currPartialSubscriptionOrNull.callbackUrl(); // can be null of new subscription is SSE
 
-        if (workerService.tryGlobalLock()) {
+        if (workerService.tryLock(subscriptionId)) {
             try {
                 if (workerService.tryClaim(subscriptionId)) {
                     if (hasDeliveryTypeChanged(DeliveryType.CALLBACK, DeliveryType.SERVER_SENT_EVENT)) {
@@ -161,7 +167,7 @@ public class SubscriptionComparisonTask implements Runnable {
                     }
                 }
             } finally {
-                workerService.globalUnlock();
+                workerService.unlock(subscriptionId);
             }
         }
     }
@@ -218,12 +224,16 @@ public class SubscriptionComparisonTask implements Runnable {
         // health request data needs to exist, else no subscription id for callback url was added, which means that no head request needs to be done
         boolean shouldStartHealthRequest = healthCheckCache.add(partialSubscription.callbackUrl(), currHttpMethod, partialSubscription.subscriptionId());
         if (shouldStartHealthRequest) {
+            var oAdoptedHealthCheck = adoptReplicatedHealthCheck(partialSubscription.callbackUrl(), currHttpMethod);
             var oHealthCheck = healthCheckCache.get(partialSubscription.callbackUrl(), currHttpMethod);
 
             var republishCount = oHealthCheck.map(HealthCheckData::getRepublishCount).orElse(0);
             var oLastCheckDate = oHealthCheck.map(HealthCheckData::getLastHealthCheckOrNull).map(CircuitBreakerHealthCheck::getLastCheckedDate);
 
-            Duration cooldown = HealthRequestTask.calculateCooldown(republishCount);
+            // Continue where a departed pod stopped, otherwise wait for the cooldown
+            Duration cooldown = oAdoptedHealthCheck.filter(replicatedHealthCheck -> replicatedHealthCheck.getNextDueAtMs() > 0)
+                    .map(replicatedHealthCheck -> Duration.ofMillis(Math.max(0, replicatedHealthCheck.getNextDueAtMs() - System.currentTimeMillis())))
+                    .orElseGet(() -> threadPoolService.getBackoffPolicy().getCooldown(new CallbackKey(partialSubscription.callbackUrl(), currHttpMethod), republishCount));
 
             // Reset cooldown and republish count if needed
             if (oLastCheckDate.isPresent()) {
@@ -238,4 +248,24 @@ public class SubscriptionComparisonTask implements Runnable {
             threadPoolService.startHealthRequestTask(partialSubscription.callbackUrl(), partialSubscription.publisherId(), partialSubscription.subscriberId(), partialSubscription.environment(), currHttpMethod, cooldown);
         }
     }
+
+    /**
+     * Adopts the health check of a departed pod for the given callbackUrl and httpMethod from the
+     * {@link DistributedHealthCheckCache} and restores its republish count and last health check into the local
+     * {@link HealthCheckCache}.
+     *
+     * @param callbackUrl The callback URL.
+     * @param httpMethod  The HTTP method.
+     * @return The adopted health check or empty if the distributed health cache is disabled or there is nothing to adopt.
+     */
+    private Optional<ReplicatedHealthCheck> adoptReplicatedHealthCheck(String callbackUrl, HttpMethod httpMethod) {
+        if (!polarisConfig.isHealthCacheDistributedEnabled()) {
+            return Optional.empty();
+        }
+
+        var key = new CallbackKey(callbackUrl.trim(), httpMethod);
+        var oAdoptedHealthCheck = distributedHealthCheckCache.adopt(key);
+        oAdoptedHealthCheck.ifPresent(adoptedHealthCheck -> healthCheckCache.restore(key.callbackUrl(), httpMethod, adoptedHealthCheck.getRepublishCount(), adoptedHealthCheck.getLastHealthCheckOrNull()));
+        return oAdoptedHealthCheck;
+    }
 }
@@ -0,0 +1,136 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.cache;
+
+import com.hazelcast.cluster.Cluster;
+import com.hazelcast.cluster.Member;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.EntryView;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.HealthCheckData;
+import de.telekom.horizon.polaris.model.ReplicatedHealthCheck;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpMethod;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static de.telekom.horizon.polaris.TestConstants.CALLBACK_URL;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DistributedHealthCheckCacheTest {
+
+    static final CallbackKey CALLBACK_KEY = new CallbackKey(CALLBACK_URL, HttpMethod.HEAD);
+    static final String MAP_KEY = "HEAD " + CALLBACK_URL;
+
+    UUID localUuid;
+    Config hazelcastConfig;
+    IMap<String, ReplicatedHealthCheck> replicatedHealthChecks;
+    DistributedHealthCheckCache distributedHealthCheckCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void prepare() {
+        var hazelcastInstance = mock(HazelcastInstance.class);
+        replicatedHealthChecks = mock(IMap.class);
+        when(hazelcastInstance.<String, ReplicatedHealthCheck>getMap(DistributedHealthCheckCache.MAP_NAME)).thenReturn(replicatedHealthChecks);
+        hazelcastConfig = new Config();
+        when(hazelcastInstance.getConfig()).thenReturn(hazelcastConfig);
+
+        localUuid = UUID.randomUUID();
+        var cluster = mock(Cluster.class);
+        var member = mock(Member.class);
+        when(hazelcastInstance.getCluster()).thenReturn(cluster);
+        when(cluster.getLocalMember()).thenReturn(member);
+        when(cluster.getMembers()).thenReturn(Set.of(member));
+        when(member.getUuid()).thenReturn(localUuid);
+
+        var polarisConfig = mock(PolarisConfig.class);
+        when(polarisConfig.getRequestCooldownResetMins()).thenReturn(90);
+        distributedHealthCheckCache = new DistributedHealthCheckCache(hazelcastInstance, polarisConfig);
+    }
+
+    @Test
+    @DisplayName("should write all snapshots in one call into a map with the cooldown reset as TTL")
+    @SuppressWarnings("unchecked")
+    void shouldPutAllSnapshotsAtOnce() {
+        var otherKey = new CallbackKey(CALLBACK_URL, HttpMethod.GET);
+        var healthCheckData = new HealthCheckData();
+        healthCheckData.getSubscriptionIds().add("subscriptionId");
+
+        distributedHealthCheckCache.putAll(Map.of(CALLBACK_KEY, healthCheckData, otherKey, healthCheckData), key -> 42L);
+
+        ArgumentCaptor<Map<String, ReplicatedHealthCheck>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(replicatedHealthChecks).setAll(captor.capture());
+        assertEquals(Set.of(MAP_KEY, "GET " + CALLBACK_URL), captor.getValue().keySet());
+        assertEquals(localUuid.toString(), captor.getValue().get(MAP_KEY).getOwnerUuid());
+        assertEquals(42L, captor.getValue().get(MAP_KEY).getNextDueAtMs());
+        verify(replicatedHealthChecks, never()).set(anyString(), any(), anyLong(), any());
+        assertEquals(90 * 60, hazelcastConfig.getMapConfig(DistributedHealthCheckCache.MAP_NAME).getTimeToLiveSeconds());
+    }
+
+    @Test
+    @DisplayName("should adopt the health check of a departed member and keep its expiration")
+    void shouldAdoptHealthCheckOfDepartedMember() {
+        var replicatedHealthCheck = createReplicatedHealthCheck(UUID.randomUUID().toString());
+        mockEntryView(replicatedHealthCheck, System.currentTimeMillis() + 60_000);
+
+        var oAdoptedHealthCheck = distributedHealthCheckCache.adopt(CALLBACK_KEY);
+
+        assertTrue(oAdoptedHealthCheck.isPresent());
+        assertEquals(localUuid.toString(), oAdoptedHealthCheck.get().getOwnerUuid());
+        verify(replicatedHealthChecks).set(eq(MAP_KEY), same(replicatedHealthCheck), longThat(ttlMs -> ttlMs > 0 && ttlMs <= 60_000), eq(TimeUnit.MILLISECONDS));
+        verify(replicatedHealthChecks).lock(MAP_KEY);
+        verify(replicatedHealthChecks).unlock(MAP_KEY);
+    }
+
+    @Test
+    @DisplayName("should not adopt the health check of a running member")
+    void shouldNotAdoptHealthCheckOfRunningMember() {
+        var replicatedHealthCheck = createReplicatedHealthCheck(localUuid.toString());
+        mockEntryView(replicatedHealthCheck, System.currentTimeMillis() + 60_000);
+
+        assertTrue(distributedHealthCheckCache.adopt(CALLBACK_KEY).isEmpty());
+        verify(replicatedHealthChecks, never()).set(anyString(), any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("should only remove owned health checks")
+    void shouldRemoveOnlyOwnedHealthChecks() {
+        var replicatedHealthCheck = createReplicatedHealthCheck(UUID.randomUUID().toString());
+        when(replicatedHealthChecks.get(MAP_KEY)).thenReturn(replicatedHealthCheck);
+
+        distributedHealthCheckCache.removeIfOwned(CALLBACK_KEY);
+        verify(replicatedHealthChecks, never()).delete(any());
+
+        replicatedHealthCheck.setOwnerUuid(localUuid.toString());
+        distributedHealthCheckCache.removeIfOwned(CALLBACK_KEY);
+        verify(replicatedHealthChecks).delete(MAP_KEY);
+        verify(replicatedHealthChecks, times(2)).unlock(MAP_KEY);
+    }
+
+    private static ReplicatedHealthCheck createReplicatedHealthCheck(String ownerUuid) {
+        return new ReplicatedHealthCheck(ownerUuid, CALLBACK_URL, HttpMethod.HEAD.name(), new HashSet<>(), 1, null, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockEntryView(ReplicatedHealthCheck replicatedHealthCheck, long expirationTime) {
+        EntryView<String, ReplicatedHealthCheck> entryView = mock(EntryView.class);
+        when(entryView.getValue()).thenReturn(replicatedHealthCheck);
+        when(entryView.getExpirationTime()).thenReturn(expirationTime);
+        when(replicatedHealthChecks.getEntryView(MAP_KEY)).thenReturn(entryView);
+    }
+}
@@ -6,20 +6,26 @@ package de.telekom.horizon.polaris.component;
 
 
 import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerMessage;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
+import de.telekom.horizon.polaris.model.ClaimsLostEvent;
 import de.telekom.horizon.polaris.model.PartialSubscription;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.util.MockGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.http.HttpMethod;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static de.telekom.horizon.polaris.TestConstants.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -43,6 +49,7 @@ class CircuitBreakerManagerTest {
 
         when(MockGenerator.polarisConfig.getPollingBatchSize()).thenReturn(100);
         when(threadPoolService.getWorkerService().tryGlobalLock()).thenReturn(true);
+        when(threadPoolService.getWorkerService().tryLock(any())).thenReturn(true);
         when(threadPoolService.getWorkerService().tryClaim(any())).thenReturn(true);
 
         circuitBreakerManager = spy(new CircuitBreakerManager(threadPoolService));
@@ -75,4 +82,94 @@ class CircuitBreakerManagerTest {
             Assertions.fail(ex.getMessage());
         }
     }
+
+    @Test
+    void should_claim_a_page_of_circuit_breaker_messages_at_once_if_batch_claiming_is_enabled() {
+        when(MockGenerator.polarisConfig.isClaimBatchEnabled()).thenReturn(true);
+        var fakeCircuitBreakerMessages = MockGenerator.createFakeCircuitBreakerMessages(4, true);
+        fakeCircuitBreakerMessages.forEach(circuitBreakerMessage -> circuitBreakerMessage.setStatus(CircuitBreakerStatus.OPEN));
+        var claimedSubscriptionIds = fakeCircuitBreakerMessages.subList(0, 3).stream().map(CircuitBreakerMessage::getSubscriptionId).toList();
+        // Changed its status after the page has been read
+        var changedSubscriptionId = claimedSubscriptionIds.get(2);
+        when(MockGenerator.circuitBreakerCache.getCircuitBreakerMessages(eq(0), anyInt(), eq(CircuitBreakerStatus.OPEN))).thenReturn(fakeCircuitBreakerMessages);
+        when(MockGenerator.workerService.tryClaimAll(any())).thenReturn(Set.copyOf(claimedSubscriptionIds));
+        when(MockGenerator.circuitBreakerCache.compareAndSetStatus(anyCollection(), eq(CircuitBreakerStatus.OPEN), eq(CircuitBreakerStatus.CHECKING)))
+                .thenReturn(Set.of(claimedSubscriptionIds.get(0), claimedSubscriptionIds.get(1)));
+
+        circuitBreakerManager.loadAndProcessCircuitBreakerMessages(CircuitBreakerStatus.OPEN);
+
+        verify(MockGenerator.workerService, never()).tryLock(any());
+        verify(MockGenerator.workerService, never()).tryClaim(any());
+        verify(MockGenerator.circuitBreakerCache).compareAndSetStatus(argThat((Collection<String> subscriptionIds) -> Set.copyOf(subscriptionIds).equals(Set.copyOf(claimedSubscriptionIds))), eq(CircuitBreakerStatus.OPEN), eq(CircuitBreakerStatus.CHECKING));
+        verify(MockGenerator.circuitBreakerCache, never()).updateCircuitBreakerMessage(any());
+        verify(threadPoolService, times(2)).startSubscriptionComparisonTask(argThat(partialSubscription -> !changedSubscriptionId.equals(partialSubscription.subscriptionId())), any());
+    }
+
+    @Test
+    void should_claim_circuit_breaker_messages_from_the_query_cache_if_enabled() {
+        when(MockGenerator.polarisConfig.isCircuitBreakerQueryCacheEnabled()).thenReturn(true);
+        when(MockGenerator.polarisConfig.getPollingBatchSize()).thenReturn(2);
+        var fakeCircuitBreakerMessages = MockGenerator.createFakeCircuitBreakerMessages(5, true);
+        when(MockGenerator.circuitBreakerCache.getCircuitBreakerMessagesFromQueryCache(CircuitBreakerStatus.OPEN)).thenReturn(fakeCircuitBreakerMessages);
+
+        circuitBreakerManager.loadAndProcessCircuitBreakerMessages(CircuitBreakerStatus.OPEN);
+
+        verify(MockGenerator.circuitBreakerCache, never()).getCircuitBreakerMessages(anyInt(), anyInt(), any());
+        verify(MockGenerator.workerService, times(5)).tryClaim(any());
+        verify(threadPoolService, times(5)).startSubscriptionComparisonTask(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void should_claim_opened_circuit_breakers_from_the_query_cache_listener() {
+        when(MockGenerator.polarisConfig.isCircuitBreakerQueryCacheEnabled()).thenReturn(true);
+        var fakeCircuitBreakerMessage = MockGenerator.createFakeCircuitBreakerMessages(1).getFirst();
+
+        circuitBreakerManager.listenForOpenedCircuitBreakers();
+
+        ArgumentCaptor<Consumer<CircuitBreakerMessage>> listenerCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(MockGenerator.circuitBreakerCache).addCircuitBreakerAddedListener(listenerCaptor.capture());
+        listenerCaptor.getValue().accept(fakeCircuitBreakerMessage);
+
+        verify(MockGenerator.workerService, timeout(5000)).tryClaim(SUBSCRIPTION_ID);
+    }
+
+    @Test
+    void should_only_reclaim_circuit_breakers_whose_claim_expired() {
+        when(MockGenerator.polarisConfig.isClaimLeaseEnabled()).thenReturn(true);
+        var fakeCircuitBreakerMessages = MockGenerator.createFakeCircuitBreakerMessages(3, true);
+        fakeCircuitBreakerMessages.get(0).setStatus(CircuitBreakerStatus.CHECKING);
+        fakeCircuitBreakerMessages.get(1).setStatus(CircuitBreakerStatus.REPUBLISHING);
+        fakeCircuitBreakerMessages.get(2).setStatus(CircuitBreakerStatus.CHECKING);
+        var expiredSubscriptionIds = Set.of(fakeCircuitBreakerMessages.get(0).getSubscriptionId(), fakeCircuitBreakerMessages.get(1).getSubscriptionId());
+        when(MockGenerator.circuitBreakerCache.getCircuitBreakerMessages(eq(0), anyInt())).thenReturn(fakeCircuitBreakerMessages);
+        when(MockGenerator.workerService.getUnclaimedKeys(any())).thenReturn(expiredSubscriptionIds);
+
+        circuitBreakerManager.reclaimExpiredClaims();
+
+        verify(MockGenerator.workerService, times(2)).tryClaim(argThat(expiredSubscriptionIds::contains));
+        verify(MockGenerator.workerService, never()).tryClaim(fakeCircuitBreakerMessages.get(2).getSubscriptionId());
+        verify(threadPoolService, times(2)).startSubscriptionComparisonTask(any(), any());
+    }
+
+    @Test
+    void should_not_reclaim_expired_claims_if_claim_leases_are_disabled() {
+        circuitBreakerManager.reclaimExpiredClaims();
+
+        verify(MockGenerator.circuitBreakerCache, never()).getCircuitBreakerMessages(anyInt(), anyInt());
+        verify(MockGenerator.workerService, never()).getUnclaimedKeys(any());
+    }
+
+    @Test
+    void should_stop_the_health_request_task_if_all_its_claims_were_lost() {
+        MockGenerator.healthCheckCache.add(CALLBACK_URL, HttpMethod.HEAD, List.of(SUBSCRIPTION_ID, "other-subscription"));
+        MockGenerator.healthCheckCache.add(CALLBACK_URL, HttpMethod.GET, SUBSCRIPTION_ID);
+
+        circuitBreakerManager.stopWorkingOnLostClaims(new ClaimsLostEvent(Set.of(SUBSCRIPTION_ID)));
+
+        Assertions.assertEquals(List.of("other-subscription"), MockGenerator.healthCheckCache.getSubscriptionIds(CALLBACK_URL, HttpMethod.HEAD));
+        Assertions.assertTrue(MockGenerator.healthCheckCache.getSubscriptionIds(CALLBACK_URL, HttpMethod.GET).isEmpty());
+        verify(threadPoolService, never()).stopHealthRequestTask(CALLBACK_URL, HttpMethod.HEAD);
+        verify(threadPoolService).stopHealthRequestTask(CALLBACK_URL, HttpMethod.GET);
+    }
 }
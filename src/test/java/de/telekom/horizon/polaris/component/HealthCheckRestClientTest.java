@@ -7,6 +7,7 @@ package de.telekom.horizon.polaris.component;
 import de.telekom.eni.pandora.horizon.auth.OAuth2TokenCache;
 import de.telekom.horizon.polaris.config.PolarisConfig;
 import de.telekom.horizon.polaris.exception.CallbackException;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -16,13 +17,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.net.http.HttpClient;
 import java.net.http.HttpTimeoutException;
-
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static de.telekom.horizon.polaris.TestConstants.CALLBACK_URL;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,6 +41,11 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class HealthCheckRestClientTest {
 
+    @RegisterExtension
+    static WireMockExtension wireMockServer = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
     @Mock
     OAuth2TokenCache tokenCache;
 
@@ -94,6 +109,63 @@ class HealthCheckRestClientTest {
         verify(closeableHttpResponse, times(1)).getStatusLine();
     }
 
+    @Test
+    @DisplayName("asynchronous requests to slow endpoints should not block each other")
+    void asyncRequestsToSlowEndpointsShouldNotBlockEachOther() throws CallbackException {
+        int requestCount = 50;
+        var delay = Duration.ofMillis(500);
+        wireMockServer.stubFor(head(urlEqualTo("/slow")).willReturn(aResponse().withStatus(200).withFixedDelay((int) delay.toMillis())));
+        wireMockServer.stubFor(get(urlEqualTo("/slow")).willReturn(aResponse().withStatus(503).withFixedDelay((int) delay.toMillis())));
+        when(polarisConfig.getMaxTimeout()).thenReturn(10000L);
+
+        // Two threads handle all responses, a blocking client would need one thread per request in flight
+        var executor = Executors.newFixedThreadPool(2);
+        var asyncRestClient = new HealthCheckRestClient(tokenCache, httpClient, HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build(), polarisConfig);
+        var url = wireMockServer.baseUrl() + "/slow";
+
+        try {
+            var start = System.nanoTime();
+            var requests = IntStream.range(0, requestCount)
+                    .mapToObj(i -> i % 2 == 0
+                            ? asyncRestClient.headAsync(url, "pantest-publisher", "pantest-subscriber", "default")
+                            : asyncRestClient.getAsync(url, "pantest-publisher", "pantest-subscriber", "default"))
+                    .toList();
+            var statusCodes = requests.stream().map(CompletableFuture::join).map(StatusLine::getStatusCode).toList();
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertEquals(requestCount / 2, statusCodes.stream().filter(statusCode -> statusCode == 200).count());
+            assertEquals(requestCount / 2, statusCodes.stream().filter(statusCode -> statusCode == 503).count());
+            // Sequentially, this would take requestCount * delay
+            assertTrue(elapsed.compareTo(delay.multipliedBy(requestCount / 5)) < 0, "elapsed: " + elapsed);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        wireMockServer.verify(requestCount / 2, headRequestedFor(urlEqualTo("/slow"))
+                .withHeader("x-pubsub-publisher-id", equalTo("pantest-publisher"))
+                .withHeader("x-pubsub-subscriber-id", equalTo("pantest-subscriber")));
+    }
+
+    @Test
+    @DisplayName("asynchronous request should fail with CallbackException for invalid uri")
+    void asyncRequestShouldFailWithCallbackExceptionForInvalidUri() {
+        var asyncRestClient = new HealthCheckRestClient(tokenCache, httpClient, HttpClient.newHttpClient(), polarisConfig);
+
+        var request = asyncRestClient.headAsync("Invalid uri", "pantest-publisher", "pantest-subscriber", "default");
+
+        var exception = assertThrows(CompletionException.class, request::join);
+        assertInstanceOf(CallbackException.class, exception.getCause());
+    }
+
+    @Test
+    @DisplayName("asynchronous request should fail if asynchronous requests are disabled")
+    void asyncRequestShouldFailWithoutAsyncHttpClient() {
+        var request = restClient.headAsync(CALLBACK_URL, "pantest-publisher", "pantest-subscriber", "default");
+
+        var exception = assertThrows(CompletionException.class, request::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
     @Test
     @DisplayName("execute get request successful")
     void executeGetRequestSuccessful() throws IOException {
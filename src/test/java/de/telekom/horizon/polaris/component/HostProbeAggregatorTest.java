@@ -0,0 +1,138 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import org.apache.http.HttpVersion;
+import org.apache.http.StatusLine;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static de.telekom.horizon.polaris.TestConstants.ENV;
+import static de.telekom.horizon.polaris.TestConstants.SUBSCRIBER_ID;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HostProbeAggregatorTest {
+
+    HostProbeAggregator hostProbeAggregator;
+    List<String> requestedUrls;
+
+    @BeforeEach
+    void prepare() {
+        var polarisConfig = mock(PolarisConfig.class);
+        when(polarisConfig.getRequestHostAggregationIntervalMs()).thenReturn(60000L);
+        when(polarisConfig.getRequestCooldownResetMins()).thenReturn(90);
+        when(polarisConfig.getSuccessfulStatusCodes()).thenReturn(List.of(200));
+
+        hostProbeAggregator = new HostProbeAggregator(polarisConfig);
+        requestedUrls = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("should share failed health checks between callback urls of the same origin")
+    void shouldShareFailedHealthChecks() {
+        assertEquals(503, probe("https://example.com/a", 503));
+        assertEquals(503, probe("HTTPS://EXAMPLE.COM:443/b?c=d", 200));
+        // Other port, scheme or http method
+        assertEquals(200, probe("https://example.com:8443/a", 200));
+        assertEquals(200, probe("http://example.com/a", 200));
+        assertEquals(200, hostProbeAggregator.probe("https://example.com/c", HttpMethod.GET, SUBSCRIBER_ID, ENV, request("https://example.com/c", 200)).orElseThrow().getStatusCode());
+
+        assertEquals(List.of("https://example.com/a", "https://example.com:8443/a", "http://example.com/a", "https://example.com/c"), requestedUrls);
+    }
+
+    @Test
+    @DisplayName("should not share health checks between subscribers or environments")
+    void shouldNotShareHealthChecksBetweenSubscribers() {
+        assertEquals(401, probe("https://example.com/a", 401));
+        // The token or subscriber of the first request may have been rejected, not the endpoint
+        assertEquals(200, hostProbeAggregator.probe("https://example.com/b", HttpMethod.HEAD, "otherSubscriber", ENV, request("https://example.com/b", 200)).orElseThrow().getStatusCode());
+        assertEquals(200, hostProbeAggregator.probe("https://example.com/c", HttpMethod.HEAD, SUBSCRIBER_ID, "otherEnvironment", request("https://example.com/c", 200)).orElseThrow().getStatusCode());
+        assertEquals(401, probe("https://example.com/d", 200));
+
+        assertEquals(List.of("https://example.com/a", "https://example.com/b", "https://example.com/c"), requestedUrls);
+    }
+
+    @Test
+    @DisplayName("should confirm successful health checks and stop aggregating if the results disagree")
+    void shouldSplitOriginOnDisagreement() {
+        assertEquals(200, probe("https://example.com/a", 200));
+        assertEquals(200, probe("https://example.com/b", 200));
+        assertFalse(hostProbeAggregator.isSplit("https://example.com:443"));
+
+        assertEquals(503, probe("https://example.com/c", 503));
+
+        assertTrue(hostProbeAggregator.isSplit("https://example.com:443"));
+        assertEquals(200, probe("https://example.com/d", 200));
+        assertEquals(List.of("https://example.com/a", "https://example.com/b", "https://example.com/c", "https://example.com/d"), requestedUrls);
+    }
+
+    @Test
+    @DisplayName("should join a health check that is in flight")
+    void shouldJoinInFlightHealthCheck() {
+        var response = new CompletableFuture<Optional<StatusLine>>();
+        var first = hostProbeAggregator.probeAsync("https://example.com/a", HttpMethod.HEAD, SUBSCRIBER_ID, ENV, () -> {
+            requestedUrls.add("https://example.com/a");
+            return response;
+        });
+        var second = hostProbeAggregator.probeAsync("https://example.com/b", HttpMethod.HEAD, SUBSCRIBER_ID, ENV, () -> CompletableFuture.completedFuture(request("https://example.com/b", 200).get()));
+        assertFalse(second.isDone());
+
+        response.complete(Optional.empty());
+
+        assertTrue(first.join().isEmpty());
+        assertTrue(second.join().isEmpty());
+        assertEquals(List.of("https://example.com/a"), requestedUrls);
+    }
+
+    @Test
+    @DisplayName("should abort a cancelled health check and let the joined ones send their own")
+    void shouldAbortCancelledHealthCheck() {
+        var response = new CompletableFuture<Optional<StatusLine>>();
+        var first = hostProbeAggregator.probeAsync("https://example.com/a", HttpMethod.HEAD, SUBSCRIBER_ID, ENV, () -> response);
+        var second = hostProbeAggregator.probeAsync("https://example.com/b", HttpMethod.HEAD, SUBSCRIBER_ID, ENV, () -> CompletableFuture.completedFuture(request("https://example.com/b", 200).get()));
+        assertFalse(second.isDone());
+
+        first.cancel(false);
+
+        assertTrue(response.isCancelled());
+        assertTrue(second.join().isPresent());
+        assertEquals(List.of("https://example.com/b"), requestedUrls);
+    }
+
+    @Test
+    @DisplayName("should not aggregate callback urls without a host")
+    void shouldNotAggregateInvalidUrls() {
+        assertNull(HostProbeAggregator.getOrigin("Invalid uri"));
+        assertNull(HostProbeAggregator.getOrigin("/relative"));
+
+        probe("Invalid uri", 503);
+        probe("Invalid uri", 503);
+
+        assertEquals(2, requestedUrls.size());
+    }
+
+    private int probe(String callbackUrl, int statusCode) {
+        return hostProbeAggregator.probe(callbackUrl, HttpMethod.HEAD, SUBSCRIBER_ID, ENV, request(callbackUrl, statusCode)).orElseThrow().getStatusCode();
+    }
+
+    private Supplier<Optional<StatusLine>> request(String callbackUrl, int statusCode) {
+        return () -> {
+            requestedUrls.add(callbackUrl);
+            return Optional.of(new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, null));
+        };
+    }
+}
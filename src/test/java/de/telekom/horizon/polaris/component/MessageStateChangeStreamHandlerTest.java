@@ -0,0 +1,143 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.lock.FencedLock;
+import com.hazelcast.map.IMap;
+import de.telekom.eni.pandora.horizon.model.db.StateError;
+import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
+import de.telekom.horizon.polaris.exception.CallbackException;
+import de.telekom.horizon.polaris.util.MockGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static de.telekom.horizon.polaris.TestConstants.ENV;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class MessageStateChangeStreamHandlerTest {
+
+    MessageStateChangeStreamHandler messageStateChangeStreamHandler;
+    FencedLock leaderLock;
+    IMap<String, String> resumeTokens;
+
+    @BeforeEach
+    void prepare() {
+        var threadPoolService = MockGenerator.mockThreadPoolService();
+        when(MockGenerator.polarisConfig.isChangeStreamEnabled()).thenReturn(true);
+        when(MockGenerator.polarisConfig.getCallbackExceptionType()).thenReturn(CallbackException.class.getName());
+        when(MockGenerator.polarisConfig.getDeliveringStatesOffsetMins()).thenReturn(15);
+        when(MockGenerator.polarisConfig.getPollingBatchSize()).thenReturn(10);
+
+        var hazelcastInstance = mock(HazelcastInstance.class, RETURNS_DEEP_STUBS);
+        leaderLock = mock(FencedLock.class);
+        resumeTokens = mock(IMap.class);
+        when(hazelcastInstance.getCPSubsystem().getLock(anyString())).thenReturn(leaderLock);
+        when(hazelcastInstance.<String, String>getMap(anyString())).thenReturn(resumeTokens);
+
+        messageStateChangeStreamHandler = new MessageStateChangeStreamHandler(threadPoolService, mock(MongoTemplate.class), hazelcastInstance);
+    }
+
+    @Test
+    @DisplayName("should republish FAILED events with a callback exception on the next flush")
+    void shouldRepublishFailedEvents() {
+        var doc = createFakeMessageState(Status.FAILED, new Date());
+        doc.setError(StateError.fromException(new CallbackException("bla")));
+        when(MockGenerator.messageStateQueryService.findByIds(any(), anyCollection())).thenReturn(List.of(doc));
+
+        messageStateChangeStreamHandler.onChange(doc);
+        messageStateChangeStreamHandler.flush();
+
+        verify(MockGenerator.messageStateQueryService).findByIds(any(), eq(List.of(doc.getUuid())));
+        verify(MockGenerator.threadPoolService).startRepublishTask(argThat((Slice<MessageStateMongoDocument> slice) -> slice.getContent().equals(List.of(doc))));
+
+        // The queue has been drained
+        messageStateChangeStreamHandler.flush();
+        verify(MockGenerator.messageStateQueryService, times(1)).findByIds(any(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("should only republish DELIVERING events that are older than the offset")
+    void shouldRepublishDeliveringEventsWhenDue() {
+        var dueDoc = createFakeMessageState(Status.DELIVERING, Date.from(Instant.now().minusSeconds(16 * 60)));
+        var notDueDoc = createFakeMessageState(Status.DELIVERING, new Date());
+
+        messageStateChangeStreamHandler.onChange(dueDoc);
+        messageStateChangeStreamHandler.onChange(notDueDoc);
+        messageStateChangeStreamHandler.flush();
+
+        verify(MockGenerator.messageStateQueryService).findByIds(any(), eq(List.of(dueDoc.getUuid())));
+    }
+
+    @Test
+    @DisplayName("should forget DELIVERING events that changed their status in the meantime")
+    void shouldForgetDeliveredEvents() {
+        var doc = createFakeMessageState(Status.DELIVERING, Date.from(Instant.now().minusSeconds(16 * 60)));
+
+        messageStateChangeStreamHandler.onChange(doc);
+        doc.setStatus(Status.DELIVERED);
+        messageStateChangeStreamHandler.onChange(doc);
+        messageStateChangeStreamHandler.flush();
+
+        verify(MockGenerator.messageStateQueryService, never()).findByIds(any(), anyCollection());
+        verify(MockGenerator.threadPoolService, never()).startRepublishTask(any());
+    }
+
+    @Test
+    @DisplayName("should ignore FAILED events without a callback exception")
+    void shouldIgnoreOtherFailedEvents() {
+        var doc = createFakeMessageState(Status.FAILED, new Date());
+        doc.setError(StateError.fromException(new IllegalStateException("bla")));
+
+        messageStateChangeStreamHandler.onChange(doc);
+        messageStateChangeStreamHandler.flush();
+
+        verify(MockGenerator.messageStateQueryService, never()).findByIds(any(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("should only store the resume token while holding the leader lock")
+    void shouldStoreResumeTokenOnlyAsLeader() {
+        var resumeToken = new BsonDocument("_data", new BsonString("token"));
+
+        // Flushing happens on every pod, so it must not touch the resume token
+        messageStateChangeStreamHandler.flush();
+        verify(resumeTokens, never()).set(anyString(), anyString());
+
+        when(leaderLock.isLockedByCurrentThread()).thenReturn(false);
+        assertFalse(messageStateChangeStreamHandler.storeResumeToken(resumeToken));
+        verify(resumeTokens, never()).set(anyString(), anyString());
+
+        when(leaderLock.isLockedByCurrentThread()).thenReturn(true);
+        assertTrue(messageStateChangeStreamHandler.storeResumeToken(resumeToken));
+        verify(resumeTokens).set(MessageStateChangeStreamHandler.RESUME_TOKEN_KEY, resumeToken.toJson());
+    }
+
+    private MessageStateMongoDocument createFakeMessageState(Status status, Date modified) {
+        var doc = MockGenerator.createFakeMessageStateMongoDocuments(1, ENV, status, false).getFirst();
+        doc.setDeliveryType(DeliveryType.CALLBACK);
+        doc.setModified(modified);
+        return doc;
+    }
+}
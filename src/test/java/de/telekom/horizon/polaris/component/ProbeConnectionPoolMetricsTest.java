@@ -0,0 +1,54 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.component;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProbeConnectionPoolMetricsTest {
+
+    @Test
+    @DisplayName("should publish the connections per route and remove the gauges of unused routes")
+    void shouldPublishConnectionsPerRoute() throws Exception {
+        var polarisConfig = mock(PolarisConfig.class);
+        when(polarisConfig.isRequestConnectionPoolEnabled()).thenReturn(true);
+        var meterRegistry = new SimpleMeterRegistry();
+        var connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(5);
+        var probeConnectionPoolMetrics = new ProbeConnectionPoolMetrics(connectionManager, meterRegistry, polarisConfig);
+
+        var route = new HttpRoute(new HttpHost("example.com", 443, "https"));
+        var connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+        probeConnectionPoolMetrics.updateRouteMeters();
+
+        assertEquals(1, gauge(meterRegistry, "https://example.com:443", "leased"));
+        assertEquals(5, gauge(meterRegistry, "https://example.com:443", "max"));
+        assertEquals(1, gauge(meterRegistry, "total", "leased"));
+
+        // The connection was never opened, so it is closed on release
+        connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+        connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        probeConnectionPoolMetrics.updateRouteMeters();
+
+        assertNull(meterRegistry.find("polaris.probe.connections").tag("route", "https://example.com:443").gauge());
+        assertEquals(0, gauge(meterRegistry, "total", "leased"));
+        connectionManager.close();
+    }
+
+    private double gauge(SimpleMeterRegistry meterRegistry, String route, String state) {
+        return meterRegistry.get("polaris.probe.connections").tag("route", route).tag("state", state).gauge().value();
+    }
+}
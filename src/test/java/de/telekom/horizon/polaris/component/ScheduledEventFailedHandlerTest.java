@@ -74,6 +74,17 @@ class ScheduledEventFailedHandlerTest {
         verify(MockGenerator.threadPoolService, atLeastOnce()).startRepublishTask(notNull());
     }
 
+    @Test
+    @DisplayName("should scan with a keyset if enabled")
+    void shouldScanWithKeyset() {
+        when(MockGenerator.polarisConfig.isPollingKeysetEnabled()).thenReturn(true);
+
+        scheduledEventFailedHandler.run();
+
+        verify(MockGenerator.messageStateQueryService, times(1)).forEachBatch(any(), eq(10), any());
+        verify(MockGenerator.messageStateMongoRepo, never()).findStatusFailedWithCallbackExceptionAsc(any());
+    }
+
     @Test
     @DisplayName("should not start SubscriptionComparisonTask when subscriptionId was not found")
     void shouldNotStartSubscriptionComparisonTask() throws CouldNotDetermineWorkingSetException {
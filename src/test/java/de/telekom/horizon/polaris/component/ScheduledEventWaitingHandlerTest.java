@@ -57,6 +57,7 @@ class ScheduledEventWaitingHandlerTest {
         scheduledEventWaitingHandler = new ScheduledEventWaitingHandler(circuitBreakerManager);
 
         when(threadPoolService.getWorkerService().tryGlobalLock()).thenReturn(true);
+        when(threadPoolService.getWorkerService().tryLock(any())).thenReturn(true);
         when(threadPoolService.getWorkerService().tryClaim(any())).thenReturn(true);
     }
 
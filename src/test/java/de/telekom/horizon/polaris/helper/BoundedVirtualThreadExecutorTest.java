@@ -0,0 +1,116 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedVirtualThreadExecutorTest {
+
+    @Test
+    @DisplayName("should run blocking tasks on virtual threads but not more than maxConcurrency at once")
+    void shouldLimitConcurrency() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var executor = new BoundedVirtualThreadExecutor("testExecutor", 10, meterRegistry);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        var futures = IntStream.range(0, 200).mapToObj(i -> executor.submitCompletable(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                // Blocks like a request to Hazelcast, Mongo or Kafka would
+                Thread.sleep(10);
+            } finally {
+                running.decrementAndGet();
+            }
+            return Thread.currentThread().isVirtual();
+        })).toList();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertTrue(futures.stream().allMatch(CompletableFuture::join));
+        assertEquals(10, maxRunning.get());
+        // Executions are timed like for the platform-thread pools
+        assertNotNull(meterRegistry.find("executor").tag("name", "testExecutor").timer());
+    }
+
+    @Test
+    @DisplayName("should report active and waiting tasks")
+    void shouldReportActiveAndQueuedTasks() throws InterruptedException {
+        var meterRegistry = new SimpleMeterRegistry();
+        var executor = new BoundedVirtualThreadExecutor("testExecutor", 1, meterRegistry);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var blocking = executor.submitCompletable(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        var waiting = executor.submitCompletable(() -> null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, meterRegistry.get("executor.active").tag("name", "testExecutor").gauge().value());
+        // The second task may still be starting its virtual thread
+        while (meterRegistry.get("executor.queued").tag("name", "testExecutor").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+        assertFalse(waiting.isDone());
+
+        release.countDown();
+        CompletableFuture.allOf(blocking, waiting).orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    @DisplayName("should not run a task that was cancelled while waiting for a permit")
+    void shouldSkipCancelledTasks() throws InterruptedException {
+        var executor = new BoundedVirtualThreadExecutor("testExecutor", 1, new SimpleMeterRegistry());
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var cancelledRuns = new AtomicInteger();
+
+        var blocking = executor.submitCompletable(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        var cancelled = executor.submit(cancelledRuns::incrementAndGet);
+        assertTrue(cancelled.cancel(false));
+
+        release.countDown();
+        blocking.orTimeout(5, TimeUnit.SECONDS).join();
+        // Runs after the cancelled task, since the permits are handed out in order
+        executor.submitCompletable(() -> null).orTimeout(5, TimeUnit.SECONDS).join();
+
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test
+    @DisplayName("should reject tasks once closed")
+    void shouldRejectTasksOnceClosed() {
+        var executor = new BoundedVirtualThreadExecutor("testExecutor", 1, new SimpleMeterRegistry());
+
+        executor.close();
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+
+    @Test
+    @DisplayName("should not accept a limit below one")
+    void shouldRejectInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedVirtualThreadExecutor("testExecutor", 0, new SimpleMeterRegistry()));
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDnsResolverTest {
+
+    static final long POSITIVE_TTL_MS = 300_000;
+    static final long NEGATIVE_TTL_MS = 60_000;
+
+    final AtomicLong clock = new AtomicLong(1_000_000);
+    final Map<String, Integer> lookups = new HashMap<>();
+    final List<Runnable> backgroundTasks = new ArrayList<>();
+    final Map<String, InetAddress> knownHosts = new HashMap<>();
+
+    SimpleMeterRegistry meterRegistry;
+    CachingDnsResolver dnsResolver;
+
+    @BeforeEach
+    void prepare() throws UnknownHostException {
+        knownHosts.put("example.com", InetAddress.getByAddress("example.com", new byte[]{10, 0, 0, 1}));
+        meterRegistry = new SimpleMeterRegistry();
+        dnsResolver = new CachingDnsResolver(host -> {
+            lookups.merge(host, 1, Integer::sum);
+            var address = knownHosts.get(host);
+            if (address == null) {
+                throw new UnknownHostException(host);
+            }
+            return new InetAddress[]{address};
+        }, POSITIVE_TTL_MS, NEGATIVE_TTL_MS, backgroundTasks::add, meterRegistry, clock::get);
+    }
+
+    @Test
+    @DisplayName("should cache resolved hosts until the ttl has passed")
+    void shouldCacheResolvedHosts() throws UnknownHostException {
+        assertArrayEquals(new byte[]{10, 0, 0, 1}, dnsResolver.resolve("example.com")[0].getAddress());
+        clock.addAndGet(POSITIVE_TTL_MS / 2);
+        dnsResolver.resolve("example.com");
+
+        assertEquals(1, lookups.get("example.com"));
+        assertEquals(0.5, dnsResolver.getHitRate());
+        assertEquals(1, meterRegistry.get("polaris.dns.cache").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("polaris.dns.resolve").tag("outcome", "resolved").timer().count());
+
+        clock.addAndGet(POSITIVE_TTL_MS);
+        dnsResolver.resolve("example.com");
+
+        assertEquals(2, lookups.get("example.com"));
+    }
+
+    @Test
+    @DisplayName("should cache unknown hosts with the negative ttl")
+    void shouldCacheUnknownHosts() {
+        assertThrows(UnknownHostException.class, () -> dnsResolver.resolve("dead.example.com"));
+        var exception = assertThrows(UnknownHostException.class, () -> dnsResolver.resolve("dead.example.com"));
+
+        assertEquals("dead.example.com", exception.getMessage());
+        assertEquals(1, lookups.get("dead.example.com"));
+
+        clock.addAndGet(NEGATIVE_TTL_MS);
+        assertThrows(UnknownHostException.class, () -> dnsResolver.resolve("dead.example.com"));
+
+        assertEquals(2, lookups.get("dead.example.com"));
+        assertEquals(2, meterRegistry.get("polaris.dns.resolve").tag("outcome", "unknown-host").timer().count());
+    }
+
+    @Test
+    @DisplayName("should refresh answers in the background before they expire")
+    void shouldRefreshInBackground() throws UnknownHostException {
+        dnsResolver.resolve("example.com");
+        clock.addAndGet(POSITIVE_TTL_MS * 9 / 10);
+
+        dnsResolver.resolve("example.com");
+        dnsResolver.resolve("example.com");
+
+        // Only one refresh is started and the lookup is not done on the request path
+        assertEquals(1, backgroundTasks.size());
+        assertEquals(1, lookups.get("example.com"));
+
+        backgroundTasks.getFirst().run();
+        clock.addAndGet(POSITIVE_TTL_MS / 2);
+        dnsResolver.resolve("example.com");
+
+        assertEquals(2, lookups.get("example.com"));
+        assertEquals(1.0 - 1.0 / 4, dnsResolver.getHitRate());
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    static final int KEY_COUNT = 10_000;
+
+    final List<String> keys = IntStream.range(0, KEY_COUNT).mapToObj(i -> UUID.nameUUIDFromBytes(("subscription-" + i).getBytes()).toString()).toList();
+
+    @Test
+    @DisplayName("should assign the same owner regardless of the member order")
+    void shouldBeDeterministic() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 64);
+        var reversedRing = new ConsistentHashRing(List.of("c", "b", "a"), 64);
+
+        keys.forEach(key -> assertEquals(ring.getOwner(key), reversedRing.getOwner(key)));
+    }
+
+    @Test
+    @DisplayName("should spread the keys over all members")
+    void shouldSpreadKeys() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        var counts = countOwners(ring);
+
+        assertEquals(4, counts.size());
+        // Every member should get roughly a quarter of the keys
+        counts.values().forEach(count -> assertTrue(count > KEY_COUNT / 8 && count < KEY_COUNT * 3 / 8, "unbalanced: " + counts));
+    }
+
+    @Test
+    @DisplayName("should only move the keys of the joining or leaving member")
+    void shouldOnlyMoveAffectedKeys() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        var grownRing = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (var key : keys) {
+            var oldOwner = ring.getOwner(key);
+            var newOwner = grownRing.getOwner(key);
+            if (!oldOwner.equals(newOwner)) {
+                // Keys only move to the new member
+                assertEquals("d", newOwner);
+                moved++;
+            }
+            // Removing the member again restores the old owner
+            assertEquals(oldOwner, new ConsistentHashRing(List.of("a", "b", "c"), 128).getOwner(key));
+        }
+
+        // Ideally a quarter of the keys moves, with a modulo scheme it would be three quarters
+        assertTrue(moved > KEY_COUNT / 8 && moved < KEY_COUNT * 3 / 8, "moved: " + moved);
+    }
+
+    @Test
+    @DisplayName("should have no owner without members")
+    void shouldHandleEmptyRing() {
+        assertNull(new ConsistentHashRing(List.of(), 128).getOwner("foo"));
+        assertEquals("a", new ConsistentHashRing(List.of("a"), 0).getOwner("foo"));
+    }
+
+    private Map<String, Integer> countOwners(ConsistentHashRing ring) {
+        var counts = new HashMap<String, Integer>();
+        keys.forEach(key -> counts.merge(ring.getOwner(key), 1, Integer::sum));
+        return counts;
+    }
+}
@@ -0,0 +1,113 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DecorrelatedJitterBackoffPolicyTest {
+
+    static final long BASE_MS = 60_000;
+    static final long CAP_MS = 3_600_000;
+
+    final Random random = new Random(42);
+    final DecorrelatedJitterBackoffPolicy backoffPolicy = new DecorrelatedJitterBackoffPolicy(BASE_MS, CAP_MS, 3, List.of(""), () -> random);
+
+    @Test
+    @DisplayName("should keep retry delays between base and cap and grow them")
+    void shouldGrowRetryDelaysWithinLimits() {
+        var callbackKey = new CallbackKey("https://example.com/callback", HttpMethod.HEAD);
+
+        long previousUpperMs = BASE_MS;
+        for (int i = 0; i < 50; i++) {
+            var delayMs = backoffPolicy.getRetryDelay(callbackKey).toMillis();
+
+            assertTrue(delayMs >= BASE_MS && delayMs <= Math.min(CAP_MS, previousUpperMs * 3), "delay: " + delayMs);
+            previousUpperMs = delayMs;
+        }
+
+        backoffPolicy.reset(callbackKey);
+        assertTrue(backoffPolicy.getRetryDelay(callbackKey).toMillis() <= BASE_MS * 3);
+    }
+
+    @Test
+    @DisplayName("should follow the curve for the cooldown")
+    void shouldFollowCurveForCooldown() {
+        var callbackKey = new CallbackKey("https://example.com/callback", HttpMethod.HEAD);
+
+        assertEquals(Duration.ZERO, backoffPolicy.getCooldown(callbackKey, 0));
+        for (int republishCount = 1; republishCount < 100; republishCount++) {
+            var cooldownMs = backoffPolicy.getCooldown(callbackKey, republishCount).toMillis();
+            var upperMs = Math.min(CAP_MS, BASE_MS * Math.pow(3, republishCount));
+
+            assertTrue(cooldownMs >= BASE_MS && cooldownMs <= upperMs, "cooldown: " + cooldownMs);
+        }
+    }
+
+    @Test
+    @DisplayName("should use the limits of the longest matching prefix")
+    void shouldUseOverrides() {
+        var policy = new DecorrelatedJitterBackoffPolicy(BASE_MS, CAP_MS, 3, List.of("https://example.com=1000:1000", " https://example.com/slow=5000:5000"), () -> random);
+
+        assertEquals(1000, policy.getRetryDelay(new CallbackKey("https://example.com/callback", HttpMethod.HEAD)).toMillis());
+        assertEquals(5000, policy.getRetryDelay(new CallbackKey("https://example.com/slow/callback", HttpMethod.HEAD)).toMillis());
+        assertEquals(5000, policy.getCooldown(new CallbackKey("https://example.com/slow/callback", HttpMethod.GET), 10).toMillis());
+        assertTrue(policy.getRetryDelay(new CallbackKey("https://other.example.com", HttpMethod.HEAD)).toMillis() >= BASE_MS);
+
+        assertThrows(IllegalArgumentException.class, () -> new DecorrelatedJitterBackoffPolicy(BASE_MS, CAP_MS, 3, List.of("https://example.com=1000"), () -> random));
+    }
+
+    @Test
+    @DisplayName("should flatten the peak probe rate after a mass outage")
+    void shouldFlattenPeakProbeRate() {
+        var polarisConfig = mock(PolarisConfig.class);
+        when(polarisConfig.getRequestDelayInbetweenMins()).thenReturn(5);
+        var fixedBackoffPolicy = new FixedBackoffPolicy(polarisConfig);
+
+        int endpointCount = 10_000;
+        var horizon = Duration.ofHours(2);
+
+        var fixedPeak = simulatePeakProbesPerSecond(fixedBackoffPolicy, endpointCount, horizon);
+        var jitterPeak = simulatePeakProbesPerSecond(backoffPolicy, endpointCount, horizon);
+
+        // With fixed delays, all endpoints are probed in the same second again and again
+        assertEquals(endpointCount, fixedPeak);
+        assertTrue(jitterPeak < endpointCount / 50, "peak: " + jitterPeak);
+    }
+
+    /**
+     * Lets all endpoints fail at the same time and keep failing, then counts the health requests per second.
+     * The health requests right at the outage are not counted, since they depend on when the circuit breakers were opened.
+     */
+    private int simulatePeakProbesPerSecond(BackoffPolicy policy, int endpointCount, Duration horizon) {
+        Map<Long, Integer> probesPerSecond = new HashMap<>();
+        IntStream.range(0, endpointCount).forEach(i -> {
+            var callbackKey = new CallbackKey("https://example.com/" + i, HttpMethod.HEAD);
+            long timeMs = 0;
+            while (true) {
+                timeMs += policy.getRetryDelay(callbackKey).toMillis();
+                if (timeMs > horizon.toMillis()) {
+                    break;
+                }
+                probesPerSecond.merge(timeMs / 1000, 1, Integer::sum);
+            }
+        });
+        return probesPerSecond.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+}
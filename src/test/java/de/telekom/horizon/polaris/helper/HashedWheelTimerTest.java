@@ -0,0 +1,130 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import com.google.common.util.concurrent.ListenableScheduledFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    static final int TIMEOUT_COUNT = 100_000;
+
+    ExecutorService workerExecutor;
+    HashedWheelTimer timer;
+
+    @BeforeEach
+    void prepare() {
+        workerExecutor = Executors.newFixedThreadPool(2);
+        timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 64, workerExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+        workerExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should run the task on the worker executor after the delay")
+    void shouldRunTaskAfterDelay() throws Exception {
+        var start = System.nanoTime();
+        // Longer than one rotation of the wheel
+        var future = timer.schedule(() -> Thread.currentThread().getName(), Duration.ofMillis(1000));
+
+        assertTrue(future.getDelay(TimeUnit.MILLISECONDS) > 500);
+        var threadName = future.get(5, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(1000).toNanos());
+        assertNotEquals("test-timer", threadName);
+        assertEquals(0, timer.getScheduledTimeouts());
+    }
+
+    @Test
+    @DisplayName("should run overdue tasks on the next tick")
+    void shouldRunOverdueTasks() throws Exception {
+        assertEquals("done", timer.schedule(() -> "done", Duration.ZERO).get(5, TimeUnit.SECONDS));
+        assertEquals("done", timer.schedule(() -> "done", Duration.ofMillis(-100)).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("should complete the future exceptionally if the task fails")
+    void shouldFailFuture() {
+        var future = timer.schedule(() -> {
+            throw new IllegalStateException("failed");
+        }, Duration.ofMillis(10));
+
+        var exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    @DisplayName("should not run cancelled tasks")
+    void shouldNotRunCancelledTasks() throws Exception {
+        var runs = new AtomicInteger();
+        var cancelled = timer.schedule(runs::incrementAndGet, Duration.ofMillis(100));
+        var notCancelled = timer.schedule(runs::incrementAndGet, Duration.ofMillis(200));
+
+        assertTrue(cancelled.cancel(false));
+        assertFalse(cancelled.cancel(false));
+        notCancelled.get(5, TimeUnit.SECONDS);
+
+        assertTrue(cancelled.isCancelled());
+        assertThrows(CancellationException.class, cancelled::get);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("should schedule and cancel 100k timeouts")
+    void shouldScheduleAndCancelManyTimeouts() throws Exception {
+        var runs = new AtomicInteger();
+        var futures = new ArrayList<ListenableScheduledFuture<Integer>>(TIMEOUT_COUNT);
+
+        // Spread the timeouts over many rotations like health requests with different cooldowns
+        for (int i = 0; i < TIMEOUT_COUNT; i++) {
+            futures.add(timer.schedule(runs::incrementAndGet, Duration.ofMinutes(5).plusMillis(i)));
+        }
+        assertEquals(TIMEOUT_COUNT, timer.getScheduledTimeouts());
+
+        futures.forEach(future -> assertTrue(future.cancel(false)));
+        assertEquals(0, timer.getScheduledTimeouts());
+
+        // Timeouts scheduled afterward still run, so the cancelled ones were removed from the wheel without breaking it
+        assertEquals(1, timer.schedule(() -> 1, Duration.ofMillis(50)).get(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    @DisplayName("should cancel all pending timeouts on stop")
+    void shouldCancelOnStop() {
+        var future = timer.schedule(() -> "done", Duration.ofMinutes(1));
+
+        timer.stop();
+
+        assertThrows(CancellationException.class, () -> future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("should reject new timeouts once stopped")
+    void shouldRejectOnceStopped() {
+        timer.stop();
+
+        assertThrows(RejectedExecutionException.class, () -> timer.schedule(() -> "done", Duration.ZERO));
+    }
+}
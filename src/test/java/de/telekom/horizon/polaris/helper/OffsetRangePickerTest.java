@@ -0,0 +1,126 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.exception.CouldNotPickMessageException;
+import de.telekom.horizon.polaris.service.PickingConsumerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static de.telekom.horizon.polaris.TestConstants.TOPIC;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@Slf4j
+class OffsetRangePickerTest {
+
+    @Mock
+    ConsumerFactory<String, String> consumerFactory;
+    @Mock
+    PolarisConfig polarisConfig;
+
+    MockConsumer<String, String> consumer;
+
+    OffsetRangePicker offsetRangePicker;
+
+    final TopicPartition topicPartition = new TopicPartition(TOPIC, 0);
+
+    @BeforeEach
+    void prepare() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updateBeginningOffsets(Map.of(topicPartition, 0L));
+        consumer.updateEndOffsets(Map.of(topicPartition, 200L));
+
+        when(consumerFactory.createConsumer(any(), any(), any(), any(Properties.class))).thenReturn(consumer);
+        when(polarisConfig.getPickingTimeoutMs()).thenReturn(200);
+        when(polarisConfig.getPickingRangeMaxGap()).thenReturn(10);
+        when(polarisConfig.getPickingRangeMaxPollRecords()).thenReturn(500);
+
+        offsetRangePicker = new OffsetRangePicker(new PickingConsumerPool(consumerFactory, polarisConfig, new SimpleMeterRegistry()), polarisConfig);
+    }
+
+    @Test
+    @DisplayName("should pick a contiguous range and drop records that are not needed")
+    void shouldPickContiguousRange() throws CouldNotPickMessageException {
+        consumer.schedulePollTask(() -> addRecords(0, 20));
+
+        var pickedRecords = offsetRangePicker.pick(Map.of(topicPartition, List.of(7L, 3L, 4L)));
+
+        assertEquals(3, pickedRecords.size());
+        assertEquals("value-4", pickedRecords.get(TOPIC, 0, 4).orElseThrow().value());
+        assertTrue(pickedRecords.get(TOPIC, 0, 5).isEmpty());
+        verify(consumerFactory, times(1)).createConsumer(any(), any(), any(), any(Properties.class));
+        assertTrue(consumer.closed());
+    }
+
+    @Test
+    @DisplayName("should pick offsets that are far apart as separate ranges")
+    void shouldPickSeparateRanges() throws CouldNotPickMessageException {
+        consumer.schedulePollTask(() -> addRecords(0, 5));
+        consumer.schedulePollTask(() -> addRecords(100, 105));
+
+        var pickedRecords = offsetRangePicker.pick(Map.of(topicPartition, List.of(1L, 102L)));
+
+        assertEquals(2, pickedRecords.size());
+        assertTrue(pickedRecords.get(TOPIC, 0, 1).isPresent());
+        assertTrue(pickedRecords.get(TOPIC, 0, 102).isPresent());
+    }
+
+    @Test
+    @DisplayName("should split sorted offsets by the configured maximum gap")
+    void shouldSplitIntoRanges() {
+        var ranges = offsetRangePicker.splitIntoRanges(new TreeSet<>(List.of(1L, 5L, 11L, 30L, 40L, 41L, 60L)));
+
+        assertEquals(3, ranges.size());
+        assertEquals(List.of(1L, 5L, 11L), List.copyOf(ranges.get(0)));
+        assertEquals(List.of(30L, 40L, 41L), List.copyOf(ranges.get(1)));
+        assertEquals(List.of(60L), List.copyOf(ranges.get(2)));
+    }
+
+    @Test
+    @DisplayName("should not wait for offsets beyond the end offset")
+    void shouldSkipOffsetsBeyondEndOffset() throws CouldNotPickMessageException {
+        var pickedRecords = offsetRangePicker.pick(Map.of(topicPartition, List.of(250L)));
+
+        assertEquals(0, pickedRecords.size());
+        assertTrue(pickedRecords.get(TOPIC, 0, 250).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should record a failure for a partition that can not be read")
+    void shouldRecordFailure() {
+        consumer.setPollException(new KafkaException("broker not available"));
+
+        var pickedRecords = offsetRangePicker.pick(Map.of(topicPartition, List.of(1L)));
+
+        assertThrows(CouldNotPickMessageException.class, () -> pickedRecords.get(TOPIC, 0, 1));
+    }
+
+    private void addRecords(long fromOffset, long toOffset) {
+        for (long offset = fromOffset; offset < toOffset; offset++) {
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, "key-" + offset, "value-" + offset));
+        }
+    }
+}
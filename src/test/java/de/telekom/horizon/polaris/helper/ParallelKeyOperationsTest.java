@@ -0,0 +1,57 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelKeyOperationsTest {
+
+    @Test
+    @DisplayName("should run the operations in parallel but not more than maxConcurrency at once")
+    void shouldLimitConcurrency() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var keys = IntStream.range(0, 100).boxed().toList();
+
+        var results = ParallelKeyOperations.runForAll(keys, 10, key -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                // Blocks like a round-trip to the cluster would
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return key * 2;
+        });
+
+        assertEquals(100, results.size());
+        assertEquals(84, results.get(42));
+        assertEquals(10, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("should leave out keys whose operation failed and keep null results")
+    void shouldLeaveOutFailedKeys() {
+        var results = ParallelKeyOperations.runForAll(List.of("ok", "null", "failed"), key -> switch (key) {
+            case "failed" -> throw new IllegalStateException("failed");
+            case "null" -> null;
+            default -> key;
+        });
+
+        assertEquals(Set.of("ok", "null"), results.keySet());
+        assertNull(results.get("null"));
+        assertTrue(ParallelKeyOperations.runForAll(List.<String>of(), key -> key).isEmpty());
+    }
+}
@@ -8,16 +8,22 @@ import brave.ScopedSpan;
 import brave.Span;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import de.telekom.eni.pandora.horizon.kafka.event.EventWriter;
+import de.telekom.eni.pandora.horizon.model.db.Coordinates;
 import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.IdentifiableMessage;
 import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.model.event.StatusMessage;
 import de.telekom.eni.pandora.horizon.model.event.SubscriptionEventMessage;
+import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.eni.pandora.horizon.tracing.HorizonTracer;
 import de.telekom.horizon.polaris.cache.PartialSubscriptionCache;
 import de.telekom.horizon.polaris.config.PolarisConfig;
 import de.telekom.horizon.polaris.model.PartialSubscription;
 import de.telekom.horizon.polaris.util.MockGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -28,11 +34,15 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.data.domain.SliceImpl;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.Duration;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static de.telekom.horizon.polaris.TestConstants.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -163,4 +173,67 @@ class RepublisherTest {
             assertNotEquals(fakeSubscriptionEventMessage.getDeliveryType(), subscriptionEventMessage.getDeliveryType());
         }
     }
+
+    @Test
+    @DisplayName("should pick partitions in parallel and keep the order of the message states")
+    void shouldPickPartitionsInParallel() {
+        final int eventCount = 12;
+
+        var docs = MockGenerator.createFakeMessageStateMongoDocuments(eventCount, ENV, Status.WAITING, false);
+        for (int i = 0; i < eventCount; i++) {
+            docs.get(i).setCoordinates(new Coordinates(i % 4, i));
+        }
+
+        when(polarisConfig.isPickingParallelEnabled()).thenReturn(true);
+        when(polarisConfig.getPickingParallelMaxPartitions()).thenReturn(2);
+        when(tracer.startSpanFromKafkaHeaders(anyString(), any())).thenReturn(Mockito.mock(Span.class));
+
+        var offsetRangePicker = mock(OffsetRangePicker.class);
+        when(offsetRangePicker.pick(any())).thenAnswer(invocation -> {
+            Map<TopicPartition, List<Long>> offsetsByPartition = invocation.getArgument(0);
+            var pickedRecords = new PickedRecords();
+            offsetsByPartition.forEach((topicPartition, offsets) -> offsets.forEach(offset -> {
+                var subscriptionEventMessage = MockGenerator.createFakeSubscriptionEventMessage(DeliveryType.CALLBACK, false);
+                subscriptionEventMessage.setUuid(docs.get(offset.intValue()).getUuid());
+                try {
+                    var fakeConsumerRecord = MockGenerator.createFakeConsumerRecord(subscriptionEventMessage);
+                    pickedRecords.add(new ConsumerRecord<>(topicPartition.topic(), topicPartition.partition(), offset, fakeConsumerRecord.key(), fakeConsumerRecord.value()));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            return pickedRecords;
+        });
+
+        republisher = new Republisher(transactionalKafkaTemplate, partialSubscriptionCache, polarisConfig, tracer, eventWriter, offsetRangePicker);
+        var identifiableMessages = republisher.pickMessages(new SliceImpl<>(docs));
+
+        verify(offsetRangePicker, times(4)).pick(any());
+        assertEquals(docs.stream().map(MessageStateMongoDocument::getUuid).toList(), identifiableMessages.stream().map(IdentifiableMessage::getUuid).toList());
+        identifiableMessages.forEach(identifiableMessage -> assertInstanceOf(SubscriptionEventMessage.class, identifiableMessage));
+    }
+
+    @Test
+    @DisplayName("should send all messages without blocking and wait for the acknowledgements")
+    void shouldRepublishBatchAsync() throws JsonProcessingException {
+        final int eventCount = 5;
+
+        var docs = MockGenerator.createFakeMessageStateMongoDocuments(eventCount, ENV, Status.WAITING, false);
+        docs.forEach(doc -> doc.setCoordinates(null));
+
+        var pendingSend = new CompletableFuture<SendResult<String, String>>();
+        when(eventWriter.send(anyString(), any()))
+                .thenReturn(pendingSend)
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("not acknowledged")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        var republished = republisher.pickAndRepublishBatchAsync(new SliceImpl<>(docs));
+
+        verify(eventWriter, times(eventCount)).send(anyString(), any());
+        assertFalse(republished.isDone());
+
+        pendingSend.complete(null);
+        assertTrue(republished.isDone());
+        assertDoesNotThrow(() -> republisher.awaitRepublished(republished));
+    }
 }
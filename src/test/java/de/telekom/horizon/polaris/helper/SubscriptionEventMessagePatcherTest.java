@@ -0,0 +1,70 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.helper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.model.event.SubscriptionEventMessage;
+import de.telekom.horizon.polaris.util.MockGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static de.telekom.horizon.polaris.TestConstants.EVENT_ID;
+import static de.telekom.horizon.polaris.TestConstants.SUBSCRIPTION_ID;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionEventMessagePatcherTest {
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+    final SubscriptionEventMessagePatcher patcher = new SubscriptionEventMessagePatcher(objectMapper);
+
+    @Test
+    @DisplayName("should produce the same JSON as binding, resetting and serializing the message")
+    void shouldPatchLikeFullBinding() throws JsonProcessingException {
+        var json = objectMapper.writeValueAsString(MockGenerator.createFakeSubscriptionEventMessage(DeliveryType.CALLBACK, true));
+
+        var patchedJson = patcher.patch(json, Status.PROCESSED, DeliveryType.SERVER_SENT_EVENT).orElseThrow();
+
+        var boundMessage = objectMapper.readValue(json, SubscriptionEventMessage.class);
+        boundMessage.setStatus(Status.PROCESSED);
+        boundMessage.setDeliveryType(DeliveryType.SERVER_SENT_EVENT);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(boundMessage)), objectMapper.readTree(patchedJson));
+    }
+
+    @Test
+    @DisplayName("should keep the delivery type if none is given")
+    void shouldKeepDeliveryType() throws JsonProcessingException {
+        var json = objectMapper.writeValueAsString(MockGenerator.createFakeSubscriptionEventMessage(DeliveryType.CALLBACK, false));
+
+        var patchedMessage = objectMapper.readValue(patcher.patch(json, Status.PROCESSED, null).orElseThrow(), SubscriptionEventMessage.class);
+
+        assertEquals(Status.PROCESSED, patchedMessage.getStatus());
+        assertEquals(DeliveryType.CALLBACK, patchedMessage.getDeliveryType());
+    }
+
+    @Test
+    @DisplayName("should read the fields needed for republishing")
+    void shouldReadFields() throws JsonProcessingException {
+        var json = objectMapper.writeValueAsString(MockGenerator.createFakeSubscriptionEventMessage(DeliveryType.CALLBACK, true));
+
+        var fields = patcher.readFields(json).orElseThrow();
+
+        assertEquals(EVENT_ID, fields.uuid());
+        assertEquals(SUBSCRIPTION_ID, fields.subscriptionId());
+        assertEquals(DeliveryType.CALLBACK, fields.deliveryType());
+    }
+
+    @Test
+    @DisplayName("should not patch JSON with an unexpected structure")
+    void shouldNotPatchUnexpectedStructure() {
+        assertTrue(patcher.patch("[]", Status.PROCESSED, null).isEmpty());
+        assertTrue(patcher.patch("{\"uuid\":\"1\",\"deliveryType\":\"callback\"}", Status.PROCESSED, null).isEmpty());
+        assertTrue(patcher.patch("{\"status\":{\"nested\":true},\"deliveryType\":\"callback\"}", Status.PROCESSED, null).isEmpty());
+        assertTrue(patcher.patch("{\"status\":", Status.PROCESSED, null).isEmpty());
+        assertTrue(patcher.readFields("{\"uuid\":\"1\"}").isEmpty());
+    }
+}
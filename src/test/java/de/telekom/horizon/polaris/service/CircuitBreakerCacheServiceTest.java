@@ -0,0 +1,117 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import de.telekom.eni.pandora.horizon.cache.service.CacheService;
+import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerHealthCheck;
+import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerMessage;
+import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.telekom.horizon.polaris.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CircuitBreakerCacheServiceTest {
+
+    CacheService cacheService;
+    WorkerService workerService;
+    IMap<String, CircuitBreakerMessage> circuitBreakerMap;
+    Map<String, CircuitBreakerMessage> realMap;
+    CircuitBreakerCacheService circuitBreakerCacheService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void prepare() {
+        cacheService = mock(CacheService.class);
+        workerService = mock(WorkerService.class);
+        circuitBreakerMap = mock(IMap.class);
+        var hazelcastInstance = mock(HazelcastInstance.class);
+        var polarisConfig = mock(PolarisConfig.class);
+        when(polarisConfig.isCircuitBreakerAtomicUpdatesEnabled()).thenReturn(true);
+        when(hazelcastInstance.<String, CircuitBreakerMessage>getMap("circuit-breakers")).thenReturn(circuitBreakerMap);
+
+        // Run the map operations against a local map like a partition owner would
+        realMap = new ConcurrentHashMap<>();
+        when(circuitBreakerMap.get(anyString())).thenAnswer(input -> realMap.get(input.getArgument(0, String.class)));
+        doAnswer(input -> realMap.put(input.getArgument(0), input.getArgument(1))).when(circuitBreakerMap).set(anyString(), any());
+        doAnswer(input -> realMap.remove(input.getArgument(0, String.class))).when(circuitBreakerMap).delete(anyString());
+
+        circuitBreakerCacheService = new CircuitBreakerCacheService(cacheService, workerService, hazelcastInstance, polarisConfig, "circuit-breakers");
+    }
+
+    @Test
+    @DisplayName("should only set the status if the current status matches")
+    void shouldCompareAndSetStatus() {
+        realMap.put("open", new CircuitBreakerMessage("open", CircuitBreakerStatus.OPEN, CALLBACK_URL, ENV));
+        realMap.put("checking", new CircuitBreakerMessage("checking", CircuitBreakerStatus.CHECKING, CALLBACK_URL, ENV));
+
+        var updated = circuitBreakerCacheService.compareAndSetStatus(List.of("open", "checking", "missing"), CircuitBreakerStatus.OPEN, CircuitBreakerStatus.CHECKING);
+
+        assertEquals(Set.of("open"), updated);
+        assertEquals(CircuitBreakerStatus.CHECKING, realMap.get("open").getStatus());
+        assertFalse(realMap.containsKey("missing"));
+
+        circuitBreakerCacheService.updateCircuitBreakerStatus("checking", CircuitBreakerStatus.REPUBLISHING);
+
+        assertEquals(CircuitBreakerStatus.REPUBLISHING, realMap.get("checking").getStatus());
+        verify(cacheService, never()).get(any());
+        verify(cacheService, never()).update(any(), any());
+        // Every update holds the key lock, without running entry processors on the partition owners
+        verify(circuitBreakerMap, times(4)).lock(anyString());
+        verify(circuitBreakerMap, times(4)).unlock(anyString());
+        verify(circuitBreakerMap, never()).executeOnKey(anyString(), any());
+        verify(circuitBreakerMap, never()).executeOnKeys(any(), any());
+    }
+
+    @Test
+    @DisplayName("should only close REPUBLISHING circuit breakers and remove their claims")
+    void shouldCloseIfRepublishing() {
+        realMap.put("republishing", new CircuitBreakerMessage("republishing", CircuitBreakerStatus.REPUBLISHING, CALLBACK_URL, ENV));
+        realMap.put("checking", new CircuitBreakerMessage("checking", CircuitBreakerStatus.CHECKING, CALLBACK_URL, ENV));
+
+        circuitBreakerCacheService.closeCircuitBreakersIfRepublishing(List.of("republishing", "checking"));
+
+        assertFalse(realMap.containsKey("republishing"));
+        assertTrue(realMap.containsKey("checking"));
+        verify(workerService).removeClaim("republishing");
+        verify(workerService, never()).removeClaim("checking");
+        verify(circuitBreakerMap).lock("republishing");
+        verify(circuitBreakerMap).unlock("republishing");
+        verify(circuitBreakerMap, never()).executeOnKeys(any(), any());
+    }
+
+    @Test
+    @DisplayName("should set the last health check of existing circuit breakers")
+    void shouldSetLastHealthCheck() {
+        realMap.put(SUBSCRIPTION_ID, new CircuitBreakerMessage(SUBSCRIPTION_ID, CircuitBreakerStatus.CHECKING, CALLBACK_URL, ENV));
+        var healthCheck = mock(CircuitBreakerHealthCheck.class);
+
+        var updated = circuitBreakerCacheService.setLastHealthCheck(List.of(SUBSCRIPTION_ID, "missing"), healthCheck);
+
+        assertEquals(Set.of(SUBSCRIPTION_ID), updated);
+        assertSame(healthCheck, realMap.get(SUBSCRIPTION_ID).getLastHealthCheck());
+        assertFalse(circuitBreakerCacheService.setLastHealthCheck("missing", healthCheck));
+        verify(circuitBreakerMap, never()).executeOnKeys(any(), any());
+    }
+
+    @Test
+    @DisplayName("should fail if the map behind the circuit breaker cache can not be determined")
+    void shouldFailWithoutMapName() {
+        assertThrows(IllegalStateException.class, () -> CircuitBreakerCacheService.getMapName(cacheService));
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.service;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import de.telekom.eni.pandora.horizon.model.event.Status;
+import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.KeysetPosition;
+import de.telekom.horizon.polaris.util.MockGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import static de.telekom.horizon.polaris.TestConstants.ENV;
+import static de.telekom.horizon.polaris.TestConstants.SUBSCRIPTION_ID;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageStateQueryServiceTest {
+
+    MongoServer mongoServer;
+    MongoTemplate mongoTemplate;
+    PolarisConfig polarisConfig;
+    MessageStateQueryService messageStateQueryService;
+
+    @BeforeEach
+    void prepare() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        mongoServer.bind();
+        mongoTemplate = new MongoTemplate(new SimpleMongoClientDatabaseFactory(mongoServer.getConnectionString() + "/test"));
+        polarisConfig = mock(PolarisConfig.class);
+        messageStateQueryService = new MessageStateQueryService(mongoTemplate, polarisConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("should scan all matching message states exactly once with a keyset")
+    void shouldScanWithKeyset() {
+        var docs = MockGenerator.createFakeMessageStateMongoDocuments(7, ENV, Status.WAITING, false);
+        for (int i = 0; i < docs.size(); i++) {
+            // Some documents share a timestamp, so the id has to break the tie
+            docs.get(i).setTimestamp(new Date(1_000L * (i / 2)));
+            mongoTemplate.save(docs.get(i));
+        }
+        var deliveringDoc = MockGenerator.createFakeMessageStateMongoDocuments(1, ENV, Status.DELIVERING, false).getFirst();
+        mongoTemplate.save(deliveringDoc);
+
+        var criteria = messageStateQueryService.waitingOrFailedWithCallbackException(List.of(SUBSCRIPTION_ID), new Date());
+        var scannedDocs = new ArrayList<MessageStateMongoDocument>();
+        KeysetPosition position = null;
+        List<MessageStateMongoDocument> batch;
+        do {
+            batch = messageStateQueryService.findNextBatch(criteria, position, 3);
+            scannedDocs.addAll(batch);
+            if (!batch.isEmpty()) {
+                position = KeysetPosition.of(batch.getLast());
+            }
+        } while (batch.size() == 3);
+
+        var expectedUuids = docs.stream()
+                .sorted(Comparator.comparing(MessageStateMongoDocument::getTimestamp).thenComparing(MessageStateMongoDocument::getUuid))
+                .map(MessageStateMongoDocument::getUuid)
+                .toList();
+        assertEquals(expectedUuids, scannedDocs.stream().map(MessageStateMongoDocument::getUuid).toList());
+    }
+
+    @Test
+    @DisplayName("should call the action for every page of a scan")
+    void shouldScanBatches() {
+        var docs = MockGenerator.createFakeMessageStateMongoDocuments(5, ENV, Status.WAITING, false);
+        docs.forEach(mongoTemplate::save);
+
+        var criteria = messageStateQueryService.waitingOrFailedWithCallbackException(List.of(SUBSCRIPTION_ID), new Date());
+        var pageSizes = new ArrayList<Integer>();
+        messageStateQueryService.forEachBatch(criteria, 2, messageStates -> pageSizes.add(messageStates.getNumberOfElements()));
+
+        assertEquals(List.of(2, 2, 1), pageSizes);
+    }
+
+    @Test
+    @DisplayName("should only load the fields needed for republishing if the projection is enabled")
+    void shouldProjectRepublishFields() {
+        when(polarisConfig.isRepublishingProjectionEnabled()).thenReturn(true);
+        var doc = MockGenerator.createFakeMessageStateMongoDocuments(1, ENV, Status.WAITING, false).getFirst();
+        mongoTemplate.save(doc);
+
+        var slice = messageStateQueryService.findSlice(messageStateQueryService.waitingOrFailedWithCallbackException(List.of(SUBSCRIPTION_ID), new Date()), PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "timestamp")));
+
+        assertEquals(1, slice.getNumberOfElements());
+        assertFalse(slice.hasNext());
+        var projectedDoc = slice.getContent().getFirst();
+        assertEquals(doc.getUuid(), projectedDoc.getUuid());
+        assertEquals(doc.getCoordinates(), projectedDoc.getCoordinates());
+        assertEquals(doc.getSubscriptionId(), projectedDoc.getSubscriptionId());
+        assertEquals(doc.getEvent().getId(), projectedDoc.getEvent().getId());
+        assertEquals(doc.getTopic(), projectedDoc.getTopic());
+        assertNull(projectedDoc.getMultiplexedFrom());
+        assertNull(projectedDoc.getEnvironment());
+    }
+
+    @Test
+    @DisplayName("should tell whether there is a next page")
+    void shouldFindSliceWithNextPage() {
+        MockGenerator.createFakeMessageStateMongoDocuments(3, ENV, Status.WAITING, false).forEach(mongoTemplate::save);
+
+        var slice = messageStateQueryService.findSlice(messageStateQueryService.waitingOrFailedWithCallbackException(List.of(SUBSCRIPTION_ID), new Date()), PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "timestamp")));
+
+        assertEquals(2, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.service;
+
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.exception.CouldNotPickMessageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Properties;
+
+import static de.telekom.horizon.polaris.TestConstants.TOPIC;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class PickingConsumerPoolTest {
+
+    @Mock
+    ConsumerFactory<String, String> consumerFactory;
+    @Mock
+    PolarisConfig polarisConfig;
+
+    SimpleMeterRegistry meterRegistry;
+
+    PickingConsumerPool pickingConsumerPool;
+
+    @BeforeEach
+    void prepare() {
+        when(consumerFactory.createConsumer(any(), any(), any(), any(Properties.class))).thenAnswer(invocation -> new MockConsumer<>(OffsetResetStrategy.EARLIEST));
+        when(polarisConfig.isPickingPoolEnabled()).thenReturn(true);
+        when(polarisConfig.getPickingPoolMaxConsumersPerTopic()).thenReturn(1);
+        when(polarisConfig.getPickingTimeoutMs()).thenReturn(50);
+
+        meterRegistry = new SimpleMeterRegistry();
+        pickingConsumerPool = new PickingConsumerPool(consumerFactory, polarisConfig, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("should reuse a healthy consumer that was handed back")
+    void shouldReuseHealthyConsumer() throws CouldNotPickMessageException {
+        var consumer = pickingConsumerPool.borrow(TOPIC);
+        pickingConsumerPool.giveBack(TOPIC, consumer, true);
+
+        assertSame(consumer, pickingConsumerPool.borrow(TOPIC));
+        verify(consumerFactory, times(1)).createConsumer(any(), any(), any(), any(Properties.class));
+        assertEquals(1, meterRegistry.get("polaris.picking.consumer.reused").tag("topic", TOPIC).counter().count());
+        assertEquals(1, meterRegistry.get("polaris.picking.consumer.created").tag("topic", TOPIC).counter().count());
+    }
+
+    @Test
+    @DisplayName("should close an unhealthy consumer instead of reusing it")
+    void shouldCloseUnhealthyConsumer() throws CouldNotPickMessageException {
+        var consumer = (MockConsumer<String, String>) pickingConsumerPool.borrow(TOPIC);
+        pickingConsumerPool.giveBack(TOPIC, consumer, false);
+
+        assertTrue(consumer.closed());
+        assertNotSame(consumer, pickingConsumerPool.borrow(TOPIC));
+        verify(consumerFactory, times(2)).createConsumer(any(), any(), any(), any(Properties.class));
+    }
+
+    @Test
+    @DisplayName("should fail if no consumer becomes available in time")
+    void shouldFailIfPoolIsExhausted() throws CouldNotPickMessageException {
+        pickingConsumerPool.borrow(TOPIC);
+
+        assertThrows(CouldNotPickMessageException.class, () -> pickingConsumerPool.borrow(TOPIC));
+        assertEquals(2, meterRegistry.get("polaris.picking.consumer.borrow.wait").tag("topic", TOPIC).timer().count());
+    }
+
+    @Test
+    @DisplayName("should create and close a consumer per borrow if pooling is disabled")
+    void shouldNotPoolIfDisabled() throws CouldNotPickMessageException {
+        when(polarisConfig.isPickingPoolEnabled()).thenReturn(false);
+
+        var consumer = (MockConsumer<String, String>) pickingConsumerPool.borrow(TOPIC);
+        pickingConsumerPool.giveBack(TOPIC, consumer, true);
+
+        assertTrue(consumer.closed());
+        assertNotSame(consumer, pickingConsumerPool.borrow(TOPIC));
+    }
+
+    @Test
+    @DisplayName("should close idle consumers on shutdown")
+    void shouldCloseIdleConsumers() throws CouldNotPickMessageException {
+        var consumer = (MockConsumer<String, String>) pickingConsumerPool.borrow(TOPIC);
+        pickingConsumerPool.giveBack(TOPIC, consumer, true);
+
+        pickingConsumerPool.close();
+
+        assertTrue(consumer.closed());
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright 2024 Deutsche Telekom IT GmbH
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package de.telekom.horizon.polaris.service;
+
+import com.hazelcast.cluster.Cluster;
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.CallbackKey;
+import de.telekom.horizon.polaris.model.RepublishingState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static de.telekom.horizon.polaris.TestConstants.CALLBACK_URL;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SubscriptionRepublishingHolderTest {
+
+    static final CallbackKey CALLBACK_KEY = new CallbackKey(CALLBACK_URL, HttpMethod.HEAD);
+
+    HazelcastInstance hazelcastInstance;
+    PolarisConfig polarisConfig;
+    IMap<String, RepublishingState> leases;
+    Map<String, RepublishingState> realMap;
+    Set<Member> members;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void prepare() {
+        hazelcastInstance = mock(HazelcastInstance.class);
+        polarisConfig = mock(PolarisConfig.class);
+        leases = mock(IMap.class);
+        when(hazelcastInstance.<String, RepublishingState>getMap(SubscriptionRepublishingHolder.MAP_NAME)).thenReturn(leases);
+        when(polarisConfig.getRepublishLeaseTtlMs()).thenReturn(60000L);
+
+        var cluster = mock(Cluster.class);
+        var member = mock(Member.class);
+        when(hazelcastInstance.getCluster()).thenReturn(cluster);
+        when(cluster.getLocalMember()).thenReturn(member);
+        when(member.getUuid()).thenReturn(UUID.randomUUID());
+        members = new HashSet<>(Set.of(member));
+        when(cluster.getMembers()).thenAnswer(input -> members);
+
+        // Back the lease map with a local map, values are copied like Hazelcast would serialize them
+        realMap = new HashMap<>();
+        when(leases.containsKey(anyString())).thenAnswer(input -> realMap.containsKey(input.getArgument(0, String.class)));
+        when(leases.get(anyString())).thenAnswer(input -> copy(realMap.get(input.getArgument(0, String.class))));
+        doAnswer(input -> realMap.put(input.getArgument(0), copy(input.getArgument(1)))).when(leases).set(anyString(), any(), anyLong(), any());
+        doAnswer(input -> realMap.remove(input.getArgument(0, String.class))).when(leases).delete(anyString());
+        when(leases.getAll(anySet())).thenAnswer(input -> {
+            var result = new HashMap<String, RepublishingState>();
+            input.<Set<String>>getArgument(0).stream().filter(realMap::containsKey).forEach(key -> result.put(key, copy(realMap.get(key))));
+            return result;
+        });
+        when(leases.setTtl(anyString(), anyLong(), any())).thenAnswer(input -> realMap.containsKey(input.getArgument(0, String.class)));
+    }
+
+    @Test
+    @DisplayName("should merge requests during a local republishing into one follow-up run")
+    void shouldMergeRequestsLocally() {
+        var subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(hazelcastInstance, polarisConfig);
+
+        assertMergesIntoOneFollowUpRun(subscriptionRepublishingHolder);
+        verifyNoInteractions(leases);
+    }
+
+    @Test
+    @DisplayName("should merge requests during a cluster-wide republishing into one follow-up run")
+    void shouldMergeRequestsInCluster() {
+        when(polarisConfig.isRepublishLeaseEnabled()).thenReturn(true);
+        var subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(hazelcastInstance, polarisConfig);
+
+        assertMergesIntoOneFollowUpRun(subscriptionRepublishingHolder);
+        verify(leases, atLeastOnce()).set(eq(CALLBACK_KEY.toString()), any(), eq(60000L), eq(TimeUnit.MILLISECONDS));
+        verify(leases, never()).executeOnKey(any(), any());
+        verify(leases, times(6)).lock(CALLBACK_KEY.toString());
+        verify(leases, times(6)).unlock(CALLBACK_KEY.toString());
+    }
+
+    @Test
+    @DisplayName("should take over the lease of a departed member with its pending subscription ids")
+    void shouldTakeOverLeaseOfDepartedMember() {
+        when(polarisConfig.isRepublishLeaseEnabled()).thenReturn(true);
+        var subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(hazelcastInstance, polarisConfig);
+        realMap.put(CALLBACK_KEY.toString(), new RepublishingState(UUID.randomUUID().toString(), new HashSet<>(Set.of("a"))));
+
+        var lease = subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("b")).orElseThrow();
+
+        assertEquals(List.of("a"), lease.takeFollowUpOrRelease());
+        assertTrue(lease.takeFollowUpOrRelease().isEmpty());
+        assertTrue(realMap.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should return the merged subscription ids that were not taken on release")
+    void shouldReturnDroppedSubscriptionIdsOnRelease() {
+        when(polarisConfig.isRepublishLeaseEnabled()).thenReturn(true);
+        var subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(hazelcastInstance, polarisConfig);
+
+        var lease = subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("a")).orElseThrow();
+        assertTrue(subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("b")).isEmpty());
+
+        assertEquals(List.of("b"), lease.release());
+        assertTrue(lease.release().isEmpty());
+        assertFalse(subscriptionRepublishingHolder.isRepublishing(CALLBACK_KEY));
+    }
+
+    @Test
+    @DisplayName("should renew the TTL of held leases on heartbeat")
+    void shouldRenewHeldLeases() {
+        when(polarisConfig.isRepublishLeaseEnabled()).thenReturn(true);
+        var subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(hazelcastInstance, polarisConfig);
+
+        var lease = subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("a")).orElseThrow();
+        subscriptionRepublishingHolder.renewLeases();
+        verify(leases).setTtl(CALLBACK_KEY.toString(), 60000L, TimeUnit.MILLISECONDS);
+
+        lease.release();
+        subscriptionRepublishingHolder.renewLeases();
+        verify(leases, times(1)).setTtl(anyString(), anyLong(), any());
+        assertTrue(realMap.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should stop the republishing of a lease that was taken over by another member")
+    void shouldStopRepublishingOfLostLease() {
+        when(polarisConfig.isRepublishLeaseEnabled()).thenReturn(true);
+        var subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(hazelcastInstance, polarisConfig);
+
+        var lease = subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("a")).orElseThrow();
+        // The lease expired and another member took it over with merged subscription ids
+        var otherState = new RepublishingState(UUID.randomUUID().toString(), new HashSet<>(Set.of("b")));
+        realMap.put(CALLBACK_KEY.toString(), otherState);
+
+        subscriptionRepublishingHolder.renewLeases();
+        verify(leases, never()).setTtl(anyString(), anyLong(), any());
+        assertTrue(lease.isLost());
+
+        assertTrue(lease.takeFollowUpOrRelease().isEmpty());
+        assertTrue(lease.release().isEmpty());
+        assertEquals(Set.of("b"), realMap.get(CALLBACK_KEY.toString()).getPendingSubscriptionIds());
+
+        subscriptionRepublishingHolder.renewLeases();
+        verify(leases, times(1)).getAll(anySet());
+    }
+
+    private void assertMergesIntoOneFollowUpRun(SubscriptionRepublishingHolder subscriptionRepublishingHolder) {
+        var oLease = subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("a"));
+        assertTrue(oLease.isPresent());
+        assertTrue(subscriptionRepublishingHolder.isRepublishing(CALLBACK_KEY));
+
+        assertTrue(subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("b")).isEmpty());
+        assertTrue(subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("b", "c")).isEmpty());
+
+        var lease = oLease.get();
+        assertEquals(Set.of("b", "c"), Set.copyOf(lease.takeFollowUpOrRelease()));
+        assertTrue(subscriptionRepublishingHolder.isRepublishing(CALLBACK_KEY));
+
+        assertTrue(lease.takeFollowUpOrRelease().isEmpty());
+        assertFalse(subscriptionRepublishingHolder.isRepublishing(CALLBACK_KEY));
+
+        // After the release, the next request starts a new republishing
+        assertTrue(subscriptionRepublishingHolder.tryStartRepublishing(CALLBACK_KEY, List.of("d")).isPresent());
+    }
+
+    private static RepublishingState copy(RepublishingState state) {
+        return state != null ? new RepublishingState(state.getOwnerUuid(), new HashSet<>(state.getPendingSubscriptionIds())) : null;
+    }
+}
@@ -11,6 +11,11 @@ import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.cp.CPSubsystem;
 import com.hazelcast.cp.lock.FencedLock;
 import com.hazelcast.map.IMap;
+import com.hazelcast.config.IndexType;
+import com.hazelcast.query.Predicate;
+import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.model.ClaimsLostEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,9 +24,13 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -42,6 +51,13 @@ public class WorkerServiceTest {
     @Mock
     IMap claims;
 
+    @Mock
+    PolarisConfig polarisConfig;
+
+    CPSubsystem cpSubsystem;
+
+    SimpleMeterRegistry meterRegistry;
+
     WorkerService workerServiceSpy;
 
     private final static String TEST_UUID = "f33fb884-8928-499a-9dd7-a32ad634b4c5";
@@ -49,14 +65,15 @@ public class WorkerServiceTest {
     @BeforeEach
     void init() {
         var cluster = Mockito.mock(Cluster.class);
-        var cpSubsystem = Mockito.mock(CPSubsystem.class);
+        cpSubsystem = Mockito.mock(CPSubsystem.class);
+        meterRegistry = new SimpleMeterRegistry();
 
         when(hazelcastInstance.getMap("polaris-member-claims")).thenReturn(claims);
         when(hazelcastInstance.getCluster()).thenReturn(cluster);
         when(cpSubsystem.getLock(any())).thenReturn(globalLock);
         when(hazelcastInstance.getCPSubsystem()).thenReturn(cpSubsystem);
 
-        workerServiceSpy = Mockito.spy(new WorkerService(hazelcastInstance, applicationEventPublisher));
+        workerServiceSpy = Mockito.spy(new WorkerService(hazelcastInstance, applicationEventPublisher, polarisConfig, meterRegistry));
 
 
         //this.hazelcastInstance.getCluster().addMembershipListener(this);
@@ -77,6 +94,117 @@ public class WorkerServiceTest {
         verify(globalLock).unlock();
     }
 
+    @Test
+    void testTryLockWithoutStripes() {
+        workerServiceSpy.tryLock("foobar");
+        workerServiceSpy.unlock("foobar");
+
+        verify(globalLock).tryLock(10, TimeUnit.SECONDS);
+        verify(globalLock).unlock();
+    }
+
+    @Test
+    void testTryLockWithStripes() {
+        when(polarisConfig.isLockStripedEnabled()).thenReturn(true);
+        when(polarisConfig.getLockStripes()).thenReturn(4);
+        var workerService = new WorkerService(hazelcastInstance, applicationEventPublisher, polarisConfig, meterRegistry);
+
+        var stripe = workerService.getStripe("foobar");
+        assertThat(stripe).isEqualTo(workerService.getStripe("foobar"));
+        assertThat(stripe).isBetween(0, 3);
+
+        workerService.tryLock("foobar");
+        workerService.tryLock("foobar");
+        workerService.unlock("foobar");
+
+        // The proxy of a stripe is only created once
+        verify(cpSubsystem, times(1)).getLock("polaris-lock-" + stripe);
+        verify(globalLock, times(2)).tryLock(10, TimeUnit.SECONDS);
+        verify(globalLock).unlock();
+    }
+
+    @Test
+    void testTryClaimWithOwnershipRing() {
+        var member = mockMember(UUID.fromString(TEST_UUID), WorkerService.POLARIS_QUALIFIER);
+        var otherMember = mockMember(UUID.randomUUID(), WorkerService.POLARIS_QUALIFIER);
+        // Members of other Horizon components must not own keys on the ring
+        var cometMember = Mockito.mock(Member.class);
+        when(cometMember.getAttribute(WorkerService.MEMBER_ATTRIBUTE_QUALIFIER)).thenReturn("comet");
+        when(hazelcastInstance.getCluster().getLocalMember()).thenReturn(member);
+        when(hazelcastInstance.getCluster().getMembers()).thenReturn(Set.of(member, otherMember, cometMember));
+        when(polarisConfig.isOwnershipRingEnabled()).thenReturn(true);
+        when(polarisConfig.getOwnershipRingVirtualNodes()).thenReturn(16);
+
+        var realMap = new ConcurrentHashMap<String, String>();
+        when(claims.computeIfAbsent(any(), any())).thenAnswer(input -> realMap.computeIfAbsent(input.getArgument(0), input.getArgument(1)));
+        when(claims.get(any())).thenAnswer(input -> realMap.get(input.getArgument(0)));
+
+        var workerService = new WorkerService(hazelcastInstance, applicationEventPublisher, polarisConfig, meterRegistry);
+
+        int claimed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (workerService.tryClaim("subscription-" + i)) {
+                claimed++;
+            }
+        }
+
+        // Both Polaris members own a part of the keys, but only the keys of this member are claimed
+        assertThat(claimed).isBetween(1, 99);
+        assertThat(realMap.size()).isEqualTo(claimed);
+
+        // After the other member left, all keys are owned locally
+        var membershipEvent = Mockito.mock(MembershipEvent.class);
+        when(membershipEvent.getMembers()).thenReturn(Set.of(member, cometMember));
+        when(membershipEvent.getMember()).thenReturn(otherMember);
+        workerService.memberRemoved(membershipEvent);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(workerService.tryClaim("subscription-" + i)).isTrue();
+        }
+
+        // After a new member joined, this member keeps the keys it claimed and the new member can not claim them
+        var newMember = mockMember(UUID.randomUUID(), WorkerService.POLARIS_QUALIFIER);
+        when(membershipEvent.getMembers()).thenReturn(Set.of(member, newMember, cometMember));
+        workerService.memberAdded(membershipEvent);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(workerService.tryClaim("subscription-" + i)).isTrue();
+        }
+        assertThat(Set.copyOf(realMap.values())).isEqualTo(Set.of(TEST_UUID));
+        assertThat(realMap.size()).isEqualTo(100);
+    }
+
+    @Test
+    void testTryClaimAllWithOwnershipRing() {
+        var member = mockMember(UUID.fromString(TEST_UUID), WorkerService.POLARIS_QUALIFIER);
+        var otherMember = mockMember(UUID.randomUUID(), WorkerService.POLARIS_QUALIFIER);
+        when(hazelcastInstance.getCluster().getLocalMember()).thenReturn(member);
+        when(hazelcastInstance.getCluster().getMembers()).thenReturn(Set.of(member, otherMember));
+        when(polarisConfig.isOwnershipRingEnabled()).thenReturn(true);
+        when(polarisConfig.getOwnershipRingVirtualNodes()).thenReturn(16);
+
+        var realMap = new ConcurrentHashMap<String, String>();
+        when(claims.putIfAbsent(any(), any())).thenAnswer(input -> realMap.putIfAbsent(input.getArgument(0), input.getArgument(1)));
+        when(claims.getAll(any())).thenAnswer(input -> {
+            Set<String> keys = input.getArgument(0);
+            var results = new HashMap<String, String>();
+            keys.stream().filter(realMap::containsKey).forEach(key -> results.put(key, realMap.get(key)));
+            return results;
+        });
+
+        var workerService = new WorkerService(hazelcastInstance, applicationEventPublisher, polarisConfig, meterRegistry);
+        var keys = IntStream.range(0, 100).mapToObj(i -> "subscription-" + i).toList();
+
+        var claimedKeys = workerService.tryClaimAll(keys);
+        assertThat(claimedKeys.size()).isBetween(1, 99);
+        assertThat(realMap.keySet()).isEqualTo(claimedKeys);
+
+        // A key of the other member that this member claimed before the ring changed stays with this member
+        var keyOfOtherMember = keys.stream().filter(key -> !claimedKeys.contains(key)).findFirst().orElseThrow();
+        realMap.put(keyOfOtherMember, TEST_UUID);
+        assertThat(workerService.tryClaimAll(keys)).isEqualTo(realMap.keySet());
+    }
+
     @Test
     void testTryClaim() {
         var member = Mockito.mock(Member.class);
@@ -93,6 +221,74 @@ public class WorkerServiceTest {
         assertThat(realMap.get(key)).isEqualTo(TEST_UUID);
     }
 
+    @Test
+    void testTryClaimAll() {
+        var member = Mockito.mock(Member.class);
+        when(member.getUuid()).thenReturn(UUID.fromString(TEST_UUID));
+        when(hazelcastInstance.getCluster().getLocalMember()).thenReturn(member);
+
+        var realMap = new ConcurrentHashMap<String, String>();
+        realMap.put("bar", TEST_UUID);
+        realMap.put("baz", "other-member");
+
+        when(claims.putIfAbsent(any(), any())).thenAnswer(input -> realMap.putIfAbsent(input.getArgument(0), input.getArgument(1)));
+
+        var claimedKeys = workerServiceSpy.tryClaimAll(List.of("foo", "bar", "baz"));
+
+        assertThat(claimedKeys).isEqualTo(Set.of("foo", "bar"));
+        assertThat(realMap.get("foo")).isEqualTo(TEST_UUID);
+        assertThat(realMap.get("baz")).isEqualTo("other-member");
+        verify(claims).putIfAbsent("baz", TEST_UUID);
+        verify(claims, never()).executeOnKeys(any(), any());
+    }
+
+    @Test
+    void testTryClaimAndRenewWithLease() {
+        var member = Mockito.mock(Member.class);
+        when(member.getUuid()).thenReturn(UUID.fromString(TEST_UUID));
+        when(hazelcastInstance.getCluster().getLocalMember()).thenReturn(member);
+        when(polarisConfig.isClaimLeaseEnabled()).thenReturn(true);
+        when(polarisConfig.getClaimLeaseTtlMs()).thenReturn(1000L);
+
+        var realMap = new ConcurrentHashMap<String, String>();
+        realMap.put("baz", "other-member");
+
+        when(claims.putIfAbsent(any(), any(), anyLong(), any())).thenAnswer(input -> realMap.putIfAbsent(input.getArgument(0), input.getArgument(1)));
+        when(claims.setTtl(any(), anyLong(), any())).thenAnswer(input -> realMap.containsKey(input.getArgument(0, String.class)));
+        when(claims.getAll(any())).thenAnswer(input -> {
+            Set<String> keys = input.getArgument(0);
+            var owners = new HashMap<String, String>();
+            keys.stream().filter(realMap::containsKey).forEach(key -> owners.put(key, realMap.get(key)));
+            return owners;
+        });
+
+        assertThat(workerServiceSpy.tryClaim("foo")).isTrue();
+        assertThat(workerServiceSpy.tryClaim("baz")).isFalse();
+        assertThat(workerServiceSpy.tryClaimAll(List.of("bar", "baz"))).isEqualTo(Set.of("bar"));
+
+        // Claiming again renews the lease
+        assertThat(workerServiceSpy.tryClaim("foo")).isTrue();
+        verify(claims, times(2)).putIfAbsent("foo", TEST_UUID, 1000L, TimeUnit.MILLISECONDS);
+        verify(claims).setTtl("foo", 1000L, TimeUnit.MILLISECONDS);
+
+        // The claim of "bar" expired and was taken by another member
+        realMap.put("bar", "other-member");
+        workerServiceSpy.renewClaims();
+        verify(claims).getAll(Set.of("foo", "bar"));
+        verify(claims, times(2)).setTtl("foo", 1000L, TimeUnit.MILLISECONDS);
+        verify(claims, never()).setTtl(eq("bar"), anyLong(), any());
+        verify(applicationEventPublisher).publishEvent(new ClaimsLostEvent(Set.of("bar")));
+        assertThat(workerServiceSpy.isClaimLost("bar")).isTrue();
+        assertThat(workerServiceSpy.isClaimLost("foo")).isFalse();
+
+        // Only the claims that are still held are renewed on the next heartbeat
+        workerServiceSpy.renewClaims();
+        verify(claims).getAll(Set.of("foo"));
+        verify(claims, times(3)).setTtl("foo", 1000L, TimeUnit.MILLISECONDS);
+        verify(claims, never()).executeOnKey(any(), any());
+        assertThat(realMap.get("foo")).isEqualTo(TEST_UUID);
+    }
+
     @Test
     void testRemoveClaim() {
         var key = "foobar";
@@ -129,6 +325,21 @@ public class WorkerServiceTest {
         assertThat(realMap.isEmpty()).isTrue();
     }
 
+    @Test
+    void testRemoveMemberClaimsIndexed() {
+        when(polarisConfig.isClaimIndexedRemovalEnabled()).thenReturn(true);
+        var workerService = new WorkerService(hazelcastInstance, applicationEventPublisher, polarisConfig, meterRegistry);
+
+        var member = Mockito.mock(Member.class);
+        when(member.getUuid()).thenReturn(UUID.fromString(TEST_UUID));
+
+        workerService.removeMemberClaims(member);
+
+        verify(claims).addIndex(IndexType.HASH, "this");
+        verify(claims).removeAll(any(Predicate.class));
+        verify(claims, never()).entrySet();
+    }
+
     @Test
     void testMemberAdded() {
         var membershipEvent = Mockito.mock(MembershipEvent.class);
@@ -149,5 +360,14 @@ public class WorkerServiceTest {
 
         verify(workerServiceSpy, times(1)).removeMemberClaims(member);
         verify(applicationEventPublisher, times(1)).publishEvent(membershipEvent);
+        assertThat(meterRegistry.get(WorkerService.METRIC_RECLAIM).tag(WorkerService.TAG_PHASE, "remove-claims").timer().count()).isEqualTo(1L);
+        assertThat(meterRegistry.get(WorkerService.METRIC_RECLAIM).tag(WorkerService.TAG_PHASE, "reclaim").timer().count()).isEqualTo(1L);
+    }
+
+    private Member mockMember(UUID uuid, String qualifier) {
+        var member = Mockito.mock(Member.class);
+        when(member.getUuid()).thenReturn(uuid);
+        when(member.getAttribute(WorkerService.MEMBER_ATTRIBUTE_QUALIFIER)).thenReturn(qualifier);
+        return member;
     }
 }
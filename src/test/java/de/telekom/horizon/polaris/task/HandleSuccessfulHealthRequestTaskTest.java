@@ -8,6 +8,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
 import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
+import de.telekom.horizon.polaris.model.CallbackKey;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.util.MockGenerator;
 import lombok.extern.slf4j.Slf4j;
@@ -102,4 +103,21 @@ class HandleSuccessfulHealthRequestTaskTest {
         verify(MockGenerator.healthCheckCache, times(1)).clearBeforeRepublishing( eq(callbackUrl), eq(httpMethod));
     }
 
+    @Test
+    void should_hand_dropped_subscriptionIds_back_to_the_health_check() {
+        String callbackUrl = CALLBACK_URL;
+        HttpMethod httpMethod = HttpMethod.HEAD;
+
+        when(MockGenerator.partialSubscriptionCache.get(eq(SUBSCRIPTION_ID))).thenReturn(Optional.of(MockGenerator.createFakePartialSubscription(DeliveryType.CALLBACK, false)));
+        doNothing().when(threadPoolService).startHealthRequestTask(anyString(), anyString(), anyString(), anyString(), any(HttpMethod.class));
+
+        handleSuccessfulHealthRequestTask = new HandleSuccessfulHealthRequestTask(callbackUrl, httpMethod, threadPoolService);
+        handleSuccessfulHealthRequestTask.handBackToHealthCheck(new CallbackKey(callbackUrl, httpMethod), List.of(SUBSCRIPTION_ID));
+        // The health request task is already running, so it picks the subscriptionId up on its own
+        handleSuccessfulHealthRequestTask.handBackToHealthCheck(new CallbackKey(callbackUrl, httpMethod), List.of(SUBSCRIPTION_ID));
+
+        verify(MockGenerator.healthCheckCache, times(2)).add(eq(callbackUrl), eq(httpMethod), eq(List.of(SUBSCRIPTION_ID)));
+        verify(threadPoolService, times(1)).startHealthRequestTask(eq(callbackUrl), eq(PUBLISHER_ID), eq(SUBSCRIBER_ID), eq(ENV), eq(httpMethod));
+    }
+
 }
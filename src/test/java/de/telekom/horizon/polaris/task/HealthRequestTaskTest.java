@@ -27,6 +27,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import static de.telekom.horizon.polaris.TestConstants.*;
@@ -167,6 +168,48 @@ class HealthRequestTaskTest {
         assertFalse(wasSuccessful);
     }
 
+    @ParameterizedTest()
+    @MethodSource("httpMethodsInclude")
+    @DisplayName("should update HealthCheckData in Caches on asynchronous response")
+    void shouldUpdateHealthCheckDataInCachesOnAsyncResponse(HttpMethod method) {
+        when(restClient.getAsync(anyString(), anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(fakeStatusLine));
+        when(restClient.headAsync(anyString(), anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(fakeStatusLine));
+        healthRequestTask = new HealthRequestTask(CALLBACK_URL, PUBLISHER_ID, SUBSCRIBER_ID, ENV, method, threadPoolService);
+
+        assertTrue(healthRequestTask.callAsync().join());
+
+        verify(healthCheckCache, times(1)).update(anyString(), any(HttpMethod.class), eq(200), eq("Ok"));
+        verify(circuitBreakerCache, times(10)).updateCircuitBreakerMessage(isA(CircuitBreakerMessage.class));
+    }
+
+    @ParameterizedTest()
+    @MethodSource("httpMethodsInclude")
+    @DisplayName("should not be successful on failed asynchronous request")
+    void shouldNotBeSuccessfulOnFailedAsyncRequest(HttpMethod method) {
+        var failedRequest = CompletableFuture.<StatusLine>failedFuture(new CallbackException("Timeout"));
+        when(restClient.getAsync(anyString(), anyString(), anyString(), anyString())).thenReturn(failedRequest);
+        when(restClient.headAsync(anyString(), anyString(), anyString(), anyString())).thenReturn(failedRequest);
+        healthRequestTask = new HealthRequestTask(CALLBACK_URL, PUBLISHER_ID, SUBSCRIBER_ID, ENV, method, threadPoolService);
+
+        assertFalse(healthRequestTask.callAsync().join());
+
+        verify(healthCheckCache, never()).update(anyString(), any(HttpMethod.class), anyInt(), anyString());
+    }
+
+    @ParameterizedTest()
+    @MethodSource("httpMethodsInclude")
+    @DisplayName("should abort the asynchronous request when it gets cancelled")
+    void shouldAbortAsyncRequestOnCancel(HttpMethod method) {
+        var pendingRequest = new CompletableFuture<StatusLine>();
+        when(restClient.getAsync(anyString(), anyString(), anyString(), anyString())).thenReturn(pendingRequest);
+        when(restClient.headAsync(anyString(), anyString(), anyString(), anyString())).thenReturn(pendingRequest);
+        healthRequestTask = new HealthRequestTask(CALLBACK_URL, PUBLISHER_ID, SUBSCRIBER_ID, ENV, method, threadPoolService);
+
+        healthRequestTask.callAsync().cancel(false);
+
+        assertTrue(pendingRequest.isCancelled());
+        verify(healthCheckCache, never()).update(anyString(), any(HttpMethod.class), anyInt(), anyString());
+    }
 
     @ParameterizedTest
     @CsvSource( value = {
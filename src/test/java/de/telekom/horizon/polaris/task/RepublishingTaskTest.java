@@ -9,6 +9,7 @@ import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.horizon.polaris.helper.Republisher;
+import de.telekom.horizon.polaris.model.KeysetPosition;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.util.MockGenerator;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +22,7 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -127,4 +129,77 @@ class RepublishingTaskTest {
         Assertions.assertEquals( fakeMessageStates, firstCapturedSlice);
         Assertions.assertEquals(0, secondCapturedSlice.getNumberOfElements());
     }
+
+    @Test
+    @DisplayName("should fetch, pick and republish batches in a pipeline")
+    void shouldQueryDbPickStatesAndRepublishMessagesPipelined() {
+        var firstBatch = MockGenerator.createFakeMessageStateMongoDocuments(10, ENV, Status.WAITING, true);
+        var secondBatch = MockGenerator.createFakeMessageStateMongoDocuments(4, ENV, Status.WAITING, true);
+
+        when(MockGenerator.polarisConfig.isRepublishingPipelineEnabled()).thenReturn(true);
+        when(MockGenerator.messageStateQueryService.findNextBatch(any(), any(), eq(10)))
+                .thenReturn(firstBatch)
+                .thenReturn(secondBatch);
+
+        republishingTask = spy(new RepublishingTask(threadPoolService));
+        republishingTask.republisher = spy(republishingTask.republisher);
+
+        republishingTask.queryDbPickStatesAndRepublishMessages(fakeMessageStatesSubscriptionIds);
+
+        verify(MockGenerator.messageStateQueryService).findNextBatch(any(), isNull(), eq(10));
+        verify(MockGenerator.messageStateQueryService).findNextBatch(any(), eq(KeysetPosition.of(firstBatch.getLast())), eq(10));
+        verify(MockGenerator.messageStateQueryService, times(2)).findNextBatch(any(), any(), anyInt());
+
+        var argumentCaptor = ArgumentCaptor.forClass(Slice.class);
+        verify(republishingTask.republisher, times(2)).republishBatchAsync(argumentCaptor.capture(), anyList());
+        Assertions.assertEquals(firstBatch, argumentCaptor.getAllValues().get(0).getContent());
+        Assertions.assertEquals(secondBatch, argumentCaptor.getAllValues().get(1).getContent());
+        verify(MockGenerator.messageStateMongoRepo, never()).findByStatusWaitingOrWithCallbackExceptionAndSubscriptionIdsAndTimestampLessThanEqual(anyList(), anyList(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should scan the batches by keyset while the previous batch is republished asynchronously")
+    void shouldQueryDbPickStatesAndRepublishMessagesAsync() {
+        var firstBatch = MockGenerator.createFakeMessageStateMongoDocuments(10, ENV, Status.WAITING, true);
+        var secondBatch = MockGenerator.createFakeMessageStateMongoDocuments(4, ENV, Status.WAITING, true);
+
+        when(MockGenerator.polarisConfig.isRepublishingAsyncEnabled()).thenReturn(true);
+        when(MockGenerator.messageStateQueryService.findNextBatch(any(), any(), eq(10)))
+                .thenReturn(firstBatch)
+                .thenReturn(secondBatch);
+
+        republishingTask = spy(new RepublishingTask(threadPoolService));
+        republishingTask.republisher = spy(republishingTask.republisher);
+
+        republishingTask.queryDbPickStatesAndRepublishMessages(fakeMessageStatesSubscriptionIds);
+
+        verify(MockGenerator.messageStateQueryService).findNextBatch(any(), isNull(), eq(10));
+        verify(MockGenerator.messageStateQueryService).findNextBatch(any(), eq(KeysetPosition.of(firstBatch.getLast())), eq(10));
+        verify(MockGenerator.messageStateQueryService, times(2)).findNextBatch(any(), any(), anyInt());
+
+        var argumentCaptor = ArgumentCaptor.forClass(Slice.class);
+        verify(republishingTask.republisher, times(2)).pickAndRepublishBatchAsync(argumentCaptor.capture());
+        Assertions.assertEquals(firstBatch, argumentCaptor.getAllValues().get(0).getContent());
+        Assertions.assertEquals(secondBatch, argumentCaptor.getAllValues().get(1).getContent());
+        verify(republishingTask.republisher, times(2)).awaitRepublished(any());
+        verify(MockGenerator.messageStateMongoRepo, never()).findByStatusWaitingOrWithCallbackExceptionAndSubscriptionIdsAndTimestampLessThanEqual(anyList(), anyList(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should stop fetching if the pick stage of the pipeline stops early")
+    void shouldCancelFetchStageIfPickStageStops() {
+        var batch = MockGenerator.createFakeMessageStateMongoDocuments(10, ENV, Status.WAITING, true);
+
+        when(MockGenerator.polarisConfig.isRepublishingPipelineEnabled()).thenReturn(true);
+        // Full batches, so the fetch stage would keep putting batches into the queue
+        when(MockGenerator.messageStateQueryService.findNextBatch(any(), any(), eq(10))).thenReturn(batch);
+
+        republishingTask = spy(new RepublishingTask(threadPoolService));
+        republishingTask.republisher = spy(republishingTask.republisher);
+        doThrow(new AssertionError("pick stage stopped")).when(republishingTask.republisher).pickBatch(any());
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> republishingTask.queryDbPickStatesAndRepublishMessages(fakeMessageStatesSubscriptionIds));
+
+        verify(republishingTask.republisher, never()).republishBatchAsync(any(), anyList());
+    }
 }
@@ -9,7 +9,9 @@ import de.telekom.eni.pandora.horizon.model.event.DeliveryType;
 import de.telekom.eni.pandora.horizon.model.event.Status;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerMessage;
 import de.telekom.eni.pandora.horizon.model.meta.CircuitBreakerStatus;
+import de.telekom.horizon.polaris.model.CallbackKey;
 import de.telekom.horizon.polaris.model.PartialSubscription;
+import de.telekom.horizon.polaris.model.ReplicatedHealthCheck;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.util.MockGenerator;
 import de.telekom.horizon.polaris.util.ResultCaptor;
@@ -25,13 +27,16 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpMethod;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
 import static de.telekom.horizon.polaris.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -62,6 +67,7 @@ class SubscriptionComparisonTaskTest {
         ).thenReturn(new SliceImpl<>(Collections.emptyList()));
 
         when(MockGenerator.workerService.tryGlobalLock()).thenReturn(true);
+        when(MockGenerator.workerService.tryLock(any())).thenReturn(true);
         when(MockGenerator.workerService.tryClaim(any())).thenReturn(true);
     }
 
@@ -153,6 +159,27 @@ class SubscriptionComparisonTaskTest {
         verify(threadPoolService, times(1)).startHealthRequestTask(eq(CALLBACK_URL), eq(PUBLISHER_ID), eq(SUBSCRIBER_ID), eq(ENV), eq(HttpMethod.HEAD), any());
     }
 
+    @Test
+    @DisplayName("Continue adopted health check of departed pod with its republish count and next-due time")
+    void continueAdoptedHealthCheckOfDepartedPod() {
+        // prepare
+        when(MockGenerator.polarisConfig.isHealthCacheDistributedEnabled()).thenReturn(true);
+        var nextDueAtMs = System.currentTimeMillis() + Duration.ofMinutes(3).toMillis();
+        var adoptedHealthCheck = new ReplicatedHealthCheck("other-member", CALLBACK_URL, HttpMethod.HEAD.name(), new HashSet<>(List.of(SUBSCRIPTION_ID)), 5, null, nextDueAtMs);
+        when(MockGenerator.distributedHealthCheckCache.adopt(new CallbackKey(CALLBACK_URL, HttpMethod.HEAD))).thenReturn(Optional.of(adoptedHealthCheck));
+
+        PartialSubscription oldPartialSubscription = MockGenerator.createFakePartialSubscription(DeliveryType.CALLBACK, false, false);
+        PartialSubscription newPartialSubscription = MockGenerator.createFakePartialSubscription(DeliveryType.CALLBACK, false, false);
+
+        subscriptionComparisonTask = new SubscriptionComparisonTask(oldPartialSubscription, newPartialSubscription, threadPoolService);
+        subscriptionComparisonTask.run();
+
+        // 2^5 minutes would be the cooldown without the adopted next-due time
+        verify(threadPoolService, times(1)).startHealthRequestTask(eq(CALLBACK_URL), eq(PUBLISHER_ID), eq(SUBSCRIBER_ID), eq(ENV), eq(HttpMethod.HEAD),
+                argThat(delay -> delay.compareTo(Duration.ofMinutes(2)) > 0 && delay.compareTo(Duration.ofMinutes(3)) <= 0));
+        assertEquals(5, MockGenerator.healthCheckCache.get(CALLBACK_URL, HttpMethod.HEAD).orElseThrow().getRepublishCount());
+    }
+
     @Test
     @DisplayName("Start health request and clean healthCheckCache when httpMethod changed")
     void startHealthRequestAndCleanHealthCheckCacheWhenHttpMethodChanged() {
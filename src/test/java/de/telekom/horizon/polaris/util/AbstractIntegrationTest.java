@@ -109,6 +109,7 @@ public abstract class AbstractIntegrationTest {
     @BeforeEach
     void setUp() {
         when(workerService.tryGlobalLock()).thenReturn(true);
+        when(workerService.tryLock(any())).thenReturn(true);
         when(workerService.tryClaim(any())).thenReturn(true);
 
         eventType = "junit.test.event." + DigestUtils.sha1Hex(String.valueOf(System.currentTimeMillis()));
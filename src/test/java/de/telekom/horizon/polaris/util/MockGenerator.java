@@ -8,6 +8,7 @@ import brave.ScopedSpan;
 import brave.Span;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
 import de.telekom.eni.pandora.horizon.kafka.event.EventWriter;
 import de.telekom.eni.pandora.horizon.kubernetes.resource.Subscription;
 import de.telekom.eni.pandora.horizon.kubernetes.resource.SubscriptionResource;
@@ -25,13 +26,19 @@ import de.telekom.eni.pandora.horizon.model.meta.EventRetentionTime;
 import de.telekom.eni.pandora.horizon.mongo.model.MessageStateMongoDocument;
 import de.telekom.eni.pandora.horizon.mongo.repository.MessageStateMongoRepo;
 import de.telekom.eni.pandora.horizon.tracing.HorizonTracer;
+import de.telekom.horizon.polaris.cache.DistributedHealthCheckCache;
 import de.telekom.horizon.polaris.cache.HealthCheckCache;
 import de.telekom.horizon.polaris.cache.PartialSubscriptionCache;
 import de.telekom.horizon.polaris.component.CircuitBreakerManager;
 import de.telekom.horizon.polaris.component.HealthCheckRestClient;
+import de.telekom.horizon.polaris.component.HostProbeAggregator;
 import de.telekom.horizon.polaris.config.PolarisConfig;
+import de.telekom.horizon.polaris.helper.BackoffPolicy;
+import de.telekom.horizon.polaris.helper.FixedBackoffPolicy;
 import de.telekom.horizon.polaris.model.PartialSubscription;
 import de.telekom.horizon.polaris.service.CircuitBreakerCacheService;
+import de.telekom.horizon.polaris.service.MessageStateQueryService;
+import de.telekom.horizon.polaris.service.PickingConsumerPool;
 import de.telekom.horizon.polaris.service.SubscriptionRepublishingHolder;
 import de.telekom.horizon.polaris.service.ThreadPoolService;
 import de.telekom.horizon.polaris.service.WorkerService;
@@ -57,13 +64,18 @@ import static org.mockito.Mockito.*;
 
 public class MockGenerator {
     public static KafkaTemplate kafkaTemplate;
+    public static PickingConsumerPool pickingConsumerPool;
     public static PartialSubscriptionCache partialSubscriptionCache;
     public static PolarisConfig polarisConfig;
     public static MessageStateMongoRepo messageStateMongoRepo;
+    public static MessageStateQueryService messageStateQueryService;
     public static HorizonTracer tracer;
     public static ThreadPoolService threadPoolService;
     public static CircuitBreakerCacheService circuitBreakerCache;
     public static HealthCheckCache healthCheckCache;
+    public static DistributedHealthCheckCache distributedHealthCheckCache;
+    public static HostProbeAggregator hostProbeAggregator;
+    public static BackoffPolicy backoffPolicy;
     public static Environment environment;
     public static CircuitBreakerManager circuitBreakerManager;
     public static HealthCheckRestClient healthCheckRestClient;
@@ -78,18 +90,23 @@ public class MockGenerator {
     @SneakyThrows
     public static ThreadPoolService mockThreadPoolService() {
         kafkaTemplate = mock(KafkaTemplate.class);
+        pickingConsumerPool = mock(PickingConsumerPool.class);
 
         partialSubscriptionCache = mock(PartialSubscriptionCache.class);
         polarisConfig = mock(PolarisConfig.class);
         messageStateMongoRepo = mock(MessageStateMongoRepo.class);
+        messageStateQueryService = mock(MessageStateQueryService.class);
         tracer = mock(HorizonTracer.class);
         circuitBreakerCache = mock(CircuitBreakerCacheService.class);
         healthCheckCache = spy(new HealthCheckCache());
+        distributedHealthCheckCache = mock(DistributedHealthCheckCache.class);
+        hostProbeAggregator = new HostProbeAggregator(polarisConfig);
+        backoffPolicy = new FixedBackoffPolicy(polarisConfig);
         threadPoolService = mock(ThreadPoolService.class);
         environment = mock(Environment.class);
         eventWriter = mock(EventWriter.class);
         meterRegistry = new SimpleMeterRegistry();
-        subscriptionRepublishingHolder = new SubscriptionRepublishingHolder();
+        subscriptionRepublishingHolder = new SubscriptionRepublishingHolder(mock(HazelcastInstance.class), polarisConfig);
         workerService = mock(WorkerService.class);
 
 
@@ -110,11 +127,13 @@ public class MockGenerator {
         when(polarisConfig.getSubscriptionCheckThreadpoolQueueCapacity()).thenReturn(100);
 
         when(threadPoolService.getKafkaTemplate()).thenReturn(kafkaTemplate);
+        when(threadPoolService.getPickingConsumerPool()).thenReturn(pickingConsumerPool);
         when(threadPoolService.getPartialSubscriptionCache()).thenReturn(partialSubscriptionCache);
         when(threadPoolService.getHealthCheckCache()).thenReturn(healthCheckCache);
         when(threadPoolService.getPolarisConfig()).thenReturn(polarisConfig);
         when(threadPoolService.getCircuitBreakerCacheService()).thenReturn(circuitBreakerCache);
         when(threadPoolService.getMessageStateMongoRepo()).thenReturn(messageStateMongoRepo);
+        when(threadPoolService.getMessageStateQueryService()).thenReturn(messageStateQueryService);
         when(threadPoolService.getRestClient()).thenReturn(healthCheckRestClient);
         when(threadPoolService.getEventWriter()).thenReturn(eventWriter);
 
@@ -133,7 +152,7 @@ public class MockGenerator {
 
         when(kafkaTemplate.send((ProducerRecord) any())).thenReturn(mock(CompletableFuture.class));
 
-        threadPoolService = spy(new ThreadPoolService(circuitBreakerCache, healthCheckCache, partialSubscriptionCache, kafkaTemplate, polarisConfig, healthCheckRestClient, tracer, messageStateMongoRepo, eventWriter, meterRegistry, subscriptionRepublishingHolder, workerService));
+        threadPoolService = spy(new ThreadPoolService(circuitBreakerCache, healthCheckCache, partialSubscriptionCache, kafkaTemplate, pickingConsumerPool, polarisConfig, healthCheckRestClient, tracer, messageStateMongoRepo, messageStateQueryService, eventWriter, meterRegistry, subscriptionRepublishingHolder, workerService, distributedHealthCheckCache, hostProbeAggregator, backoffPolicy));
 
         return threadPoolService;
     }